@@ -4,9 +4,10 @@
 -- Extension UUID generation
 CREATE EXTENSION IF NOT EXISTS "uuid-ossp";
 
--- Order Audit Log Table
+-- Order Audit Log Table, range-partitioned by processed_at
+-- The stream processor creates upcoming partitions and detaches expired ones
 CREATE TABLE IF NOT EXISTS order_audit_log (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     order_id VARCHAR(255) NOT NULL,
     customer_id VARCHAR(255) NOT NULL,
     customer_name VARCHAR(255) NOT NULL,
@@ -29,10 +30,14 @@ CREATE TABLE IF NOT EXISTS order_audit_log (
     order_data JSONB NOT NULL, 
     processed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     created_at TIMESTAMP NOT NULL,
-    updated_at TIMESTAMP NOT NULL
-);
+    updated_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (id, processed_at)
+) PARTITION BY RANGE (processed_at);
+
+-- Catches rows outside the managed ranges so inserts never fail
+CREATE TABLE IF NOT EXISTS order_audit_log_default PARTITION OF order_audit_log DEFAULT;
 
-CREATE INDEX idx_order_audit_order_id ON order_audit_log(order_id);
+CREATE UNIQUE INDEX idx_order_audit_order_id ON order_audit_log(order_id, processed_at);
 CREATE INDEX idx_order_audit_customer_id ON order_audit_log(customer_id);
 CREATE INDEX idx_order_audit_status ON order_audit_log(order_status);
 CREATE INDEX idx_order_audit_processed_at ON order_audit_log(processed_at);
@@ -41,6 +46,17 @@ CREATE INDEX idx_order_audit_fraud_score ON order_audit_log(fraud_score) WHERE f
 
 CREATE INDEX idx_order_audit_order_data_gin ON order_audit_log USING GIN (order_data);
 
+-- Partition key of each order's audit row; keeps order_id unique across partitions.
+-- The suspicious flags let the audit upsert adjust customer_order_stats without reading old rows.
+CREATE TABLE IF NOT EXISTS order_audit_keys (
+    order_id VARCHAR(255) PRIMARY KEY,
+    processed_at TIMESTAMP NOT NULL,
+    is_suspicious BOOLEAN NOT NULL DEFAULT FALSE,
+    was_suspicious BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+CREATE INDEX idx_order_audit_keys_processed_at ON order_audit_keys(processed_at);
+
 -- Fraud Alerts Table
 CREATE TABLE IF NOT EXISTS fraud_alerts (
     id BIGSERIAL PRIMARY KEY,
@@ -55,10 +71,29 @@ CREATE TABLE IF NOT EXISTS fraud_alerts (
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
-CREATE INDEX idx_fraud_alerts_order_id ON fraud_alerts(order_id);
+CREATE UNIQUE INDEX idx_fraud_alerts_order_id ON fraud_alerts(order_id);
 CREATE INDEX idx_fraud_alerts_reviewed ON fraud_alerts(reviewed);
 CREATE INDEX idx_fraud_alerts_risk_level ON fraud_alerts(risk_level);
 
+-- Running per-customer totals, maintained by the stream processor's audit upsert
+CREATE TABLE IF NOT EXISTS customer_order_stats (
+    customer_id VARCHAR(255) PRIMARY KEY,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    lifetime_spend DECIMAL(17, 2) NOT NULL DEFAULT 0.00,
+    suspicious_count BIGINT NOT NULL DEFAULT 0,
+    first_order_at TIMESTAMP,
+    last_order_at TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Customer Profiles, owned by the customer service and read by the stream processor
+CREATE TABLE IF NOT EXISTS customer_profiles (
+    customer_id VARCHAR(255) PRIMARY KEY,
+    is_verified BOOLEAN NOT NULL DEFAULT FALSE,
+    total_orders INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Order Processing Stats 
 CREATE MATERIALIZED VIEW IF NOT EXISTS order_stats AS
 SELECT
@@ -85,5 +120,8 @@ $$ LANGUAGE plpgsql;
 
 -- Insert sample statistics 
 COMMENT ON TABLE order_audit_log IS 'Audit log of all processed orders from Kafka stream';
+COMMENT ON TABLE order_audit_keys IS 'Audit log partition key per order id';
 COMMENT ON TABLE fraud_alerts IS 'Flagged orders with potential fraud indicators';
+COMMENT ON TABLE customer_order_stats IS 'Per-customer order count, spend and suspicious count from the audit log';
+COMMENT ON TABLE customer_profiles IS 'Authoritative customer verification and order count';
 COMMENT ON MATERIALIZED VIEW order_stats IS 'Daily aggregated order statistics';
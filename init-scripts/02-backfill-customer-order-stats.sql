@@ -0,0 +1,14 @@
+-- One-off backfill of customer_order_stats from existing audit rows.
+-- Run once with the stream processor stopped when upgrading a database created before the table existed.
+INSERT INTO customer_order_stats (customer_id, order_count, lifetime_spend, suspicious_count,
+    first_order_at, last_order_at, updated_at)
+SELECT customer_id,
+    count(*),
+    sum(grand_total),
+    count(*) FILTER (WHERE is_suspicious),
+    min(created_at),
+    max(created_at),
+    now()
+FROM order_audit_log
+GROUP BY customer_id
+ON CONFLICT (customer_id) DO NOTHING;
@@ -0,0 +1,46 @@
+package com.ecommerce.processor.entity;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+
+// Running per-customer totals over order_audit_log, updated by the audit upsert itself
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper=false)
+@Table(name = "customer_order_stats")
+public class CustomerOrderStats extends PanacheEntityBase {
+
+    @Id
+    @Column(name = "customer_id", length = 255)
+    private String customerId;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "lifetime_spend", nullable = false, precision = 17, scale = 2)
+    private BigDecimal lifetimeSpend;
+
+    @Column(name = "suspicious_count", nullable = false)
+    private Long suspiciousCount;
+
+    @Column(name = "first_order_at")
+    private LocalDateTime firstOrderAt;
+
+    @Column(name = "last_order_at")
+    private LocalDateTime lastOrderAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,36 @@
+package com.ecommerce.processor.entity;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+
+// Written by the customer service; the stream processor only reads it
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper=false)
+@Table(name = "customer_profiles")
+public class CustomerProfile extends PanacheEntityBase {
+
+    @Id
+    @Column(name = "customer_id", length = 255)
+    private String customerId;
+
+    @Column(name = "is_verified", nullable = false)
+    private Boolean isVerified;
+
+    @Column(name = "total_orders", nullable = false)
+    private Integer totalOrders;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
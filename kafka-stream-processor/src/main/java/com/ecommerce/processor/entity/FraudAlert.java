@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper=false)
 @Table(name = "fraud_alerts", indexes = {
-    @Index(name = "idx_fraud_alerts_order_id", columnList = "order_id"),
+    @Index(name = "idx_fraud_alerts_order_id", columnList = "order_id", unique = true),
     @Index(name = "idx_fraud_alerts_reviewed", columnList = "reviewed"),
     @Index(name = "idx_fraud_alerts_risk_level", columnList = "risk_level")
 })
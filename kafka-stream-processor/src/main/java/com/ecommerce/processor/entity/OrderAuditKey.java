@@ -0,0 +1,38 @@
+package com.ecommerce.processor.entity;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper=false)
+@Table(name = "order_audit_keys", indexes = {
+    @Index(name = "idx_order_audit_keys_processed_at", columnList = "processed_at")
+})
+public class OrderAuditKey extends PanacheEntityBase {
+
+    @Id
+    @Column(name = "order_id", length = 255)
+    private String orderId;
+
+    @Column(name = "processed_at", nullable = false)
+    private LocalDateTime processedAt;
+
+    @Column(name = "is_suspicious", nullable = false)
+    private Boolean isSuspicious;
+
+    // Flag before the latest write, for the customer_order_stats adjustment
+    @Column(name = "was_suspicious", nullable = false)
+    private Boolean wasSuspicious;
+}
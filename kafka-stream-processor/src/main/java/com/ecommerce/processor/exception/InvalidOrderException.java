@@ -0,0 +1,12 @@
+package com.ecommerce.processor.exception;
+
+public class InvalidOrderException extends RuntimeException {
+
+    public InvalidOrderException(String message) {
+        super(message);
+    }
+
+    public InvalidOrderException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
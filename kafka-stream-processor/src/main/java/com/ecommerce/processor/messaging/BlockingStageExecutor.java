@@ -0,0 +1,81 @@
+package com.ecommerce.processor.messaging;
+
+import io.quarkus.virtual.threads.VirtualThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+
+@Slf4j
+@ApplicationScoped
+public class BlockingStageExecutor {
+
+    @Inject
+    @VirtualThreads
+    ExecutorService virtualThreads;
+
+    @ConfigProperty(name = "app.processing.persistence-concurrency", defaultValue = "16")
+    int concurrency;
+
+    private Semaphore permits;
+
+    public BlockingStageExecutor() {
+    }
+
+    BlockingStageExecutor(ExecutorService executor, int concurrency) {
+        this.virtualThreads = executor;
+        this.concurrency = concurrency;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(concurrency, true);
+        log.info("Blocking stage limited to {} concurrent tasks", concurrency);
+    }
+
+    // The returned stage completes once the task holds a permit, not when it finishes,
+    // so the caller only waits when every permit is taken.
+    public CompletionStage<Void> submit(Runnable task) {
+        CompletableFuture<Void> admitted = new CompletableFuture<>();
+        execute(task, admitted, null);
+        return admitted;
+    }
+
+    // Unlike submit, the returned stage completes only after the task has finished.
+    public CompletionStage<Void> run(Runnable task) {
+        CompletableFuture<Void> finished = new CompletableFuture<>();
+        execute(task, null, finished);
+        return finished;
+    }
+
+    private void execute(Runnable task, CompletableFuture<Void> admitted, CompletableFuture<Void> finished) {
+        virtualThreads.execute(() -> {
+            permits.acquireUninterruptibly();
+            if (admitted != null) {
+                admitted.complete(null);
+            }
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Blocking stage task failed", e);
+            } finally {
+                permits.release();
+                if (finished != null) {
+                    finished.complete(null);
+                }
+            }
+        });
+    }
+
+    public int inFlight() {
+        return concurrency - permits.availablePermits();
+    }
+}
@@ -0,0 +1,74 @@
+package com.ecommerce.processor.messaging;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+
+@Slf4j
+@ApplicationScoped
+public class KeyedWorkerPool {
+
+    @ConfigProperty(name = "app.processing.worker-count")
+    Optional<Integer> workerCount;
+
+    private ExecutorService[] lanes;
+
+    public KeyedWorkerPool() {
+    }
+
+    KeyedWorkerPool(int workerCount) {
+        start(workerCount);
+    }
+
+    @PostConstruct
+    void init() {
+        start(workerCount.orElse(Runtime.getRuntime().availableProcessors()));
+    }
+
+    private void start(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1, got " + count);
+        }
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        lanes = new ExecutorService[count];
+        for (int i = 0; i < count; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "order-worker-" + threadIndex.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        log.info("Started keyed worker pool with {} lanes", count);
+    }
+
+    public <T> CompletableFuture<T> submit(Object key, Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, lanes[laneFor(key)]);
+    }
+
+    public int size() {
+        return lanes.length;
+    }
+
+    int laneFor(Object key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+}
@@ -1,31 +1,59 @@
 package com.ecommerce.processor.messaging;
 
 import com.ecommerce.models.FraudCheckResult;
+import com.ecommerce.models.JsonCodec;
 import com.ecommerce.models.Order;
 import com.ecommerce.models.OrderEvent;
 import com.ecommerce.models.OrderStatus;
+import com.ecommerce.models.WireFormat;
+import com.ecommerce.processor.exception.InvalidOrderException;
+import com.ecommerce.processor.model.ProcessedOrder;
+import com.ecommerce.processor.service.AuditWriteBehind;
+import com.ecommerce.processor.service.FraudAlertDispatcher;
 import com.ecommerce.processor.service.FraudDetectionService;
 import com.ecommerce.processor.service.OrderEnrichmentService;
 import com.ecommerce.processor.service.OrderPersistenceService;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ecommerce.processor.service.TransientFailures;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.reactive.messaging.kafka.KafkaRecord;
+import io.smallrye.reactive.messaging.kafka.KafkaRecordBatch;
+import io.smallrye.reactive.messaging.kafka.OutgoingKafkaRecord;
+import io.smallrye.reactive.messaging.kafka.api.IncomingKafkaRecordMetadata;
+import io.smallrye.reactive.messaging.kafka.transactions.KafkaTransactions;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 
+import org.apache.kafka.common.header.Header;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Emitter;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
-import org.eclipse.microprofile.reactive.messaging.Outgoing;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import static io.smallrye.reactive.messaging.kafka.fault.KafkaDeadLetterQueue.*;
 
 
 @Slf4j
 @ApplicationScoped
 public class OrderStreamProcessor {
 
+    static final String VALIDATED_ORDERS = "validated-orders";
+    static final String FRAUD_ALERTS = "fraud-alerts";
+    static final String RAW_ORDERS_DLQ = "raw-orders-dlq";
+
     @Inject
     OrderEnrichmentService enrichmentService;
 
@@ -36,45 +64,408 @@ public class OrderStreamProcessor {
     OrderPersistenceService persistenceService;
 
     @Inject
-    @Channel("fraud-alerts")
-    Emitter<String> fraudAlertsEmitter;
+    KeyedWorkerPool workerPool;
 
-    private final ObjectMapper objectMapper;
+    @Inject
+    BlockingStageExecutor blockingStage;
 
-    public OrderStreamProcessor() {
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-    }
+    @Inject
+    RecentOrderFilter recentOrders;
+
+    @Inject
+    AuditWriteBehind writeBehind;
+
+    @Inject
+    FraudAlertDispatcher fraudAlerts;
+
+    @Inject
+    @Channel(VALIDATED_ORDERS)
+    Emitter<byte[]> validatedOrdersEmitter;
+
+    @Inject
+    @Channel(FRAUD_ALERTS)
+    Emitter<byte[]> fraudAlertsEmitter;
+
+    @Inject
+    @Channel(RAW_ORDERS_DLQ)
+    Emitter<byte[]> deadLetterEmitter;
+
+    @Inject
+    @Channel("orders-tx")
+    KafkaTransactions<byte[]> transactions;
+
+    @ConfigProperty(name = "app.processing.exactly-once", defaultValue = "false")
+    boolean exactlyOnce;
+
+    @ConfigProperty(name = "app.processing.retry-attempts", defaultValue = "3")
+    int retryAttempts;
+
+    @ConfigProperty(name = "app.processing.retry-backoff-ms", defaultValue = "200")
+    long retryBackoffMs;
+
+    // Format of the records this service writes; incoming records are read in whatever format their header names
+    @ConfigProperty(name = "app.messaging.wire-format", defaultValue = "json")
+    WireFormat wireFormat;
+
+    private final JsonCodec codec = JsonCodec.shared();
 
     @Incoming("raw-orders")
-    @Outgoing("validated-orders")
-    public String processOrder(String orderJson) {
+    public CompletionStage<Void> processOrders(KafkaRecordBatch<String, byte[]> batch) {
+        List<KafkaRecord<String, byte[]>> records = batch.getRecords();
+        log.info("Received batch of {} order messages from Kafka", records.size());
+
+        List<CompletableFuture<ProcessedOrder>> pending = new ArrayList<>(records.size());
+        for (KafkaRecord<String, byte[]> record : records) {
+            WireFormat format;
+            try {
+                format = formatOf(record);
+            } catch (IllegalArgumentException e) {
+                pending.add(CompletableFuture.failedFuture(new InvalidOrderException("Unsupported order payload", e)));
+                continue;
+            }
+            if (recentOrders.isDuplicate(record.getPayload(), format)) {
+                pending.add(CompletableFuture.completedFuture(null));
+                continue;
+            }
+            pending.add(workerPool.submit(orderingKey(record), () -> processOrder(record.getPayload(), format)));
+        }
+
+        // Transactions commit offsets, so exactly-once batches must finish in order; at-least-once
+        // batches only wait for admission and rely on the throttled commit strategy instead
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                .handle((ignored, failure) -> null)
+                .thenCompose(ignored -> exactlyOnce
+                        ? blockingStage.run(() -> persistAndPublish(batch, pending))
+                        : blockingStage.submit(() -> persistAndPublish(batch, pending)));
+    }
+
+    private void persistAndPublish(KafkaRecordBatch<String, byte[]> batch,
+                                   List<CompletableFuture<ProcessedOrder>> pending) {
+        List<KafkaRecord<String, byte[]>> records = batch.getRecords();
+        List<OutgoingKafkaRecord<String, byte[]>> outputs = new ArrayList<>();
         try {
-            log.info("Received order message from Kafka");
-            Order order = objectMapper.readValue(orderJson, Order.class);
-            log.info("Processing order: {}", order.getOrderId());
+            List<ProcessedOrder> scored = new ArrayList<>(records.size());
+            Map<ProcessedOrder, KafkaRecord<String, byte[]>> sources = new IdentityHashMap<>();
+
+            for (int i = 0; i < records.size(); i++) {
+                try {
+                    ProcessedOrder processed = pending.get(i).join();
+                    if (processed == null) {
+                        continue;
+                    }
+                    scored.add(processed);
+                    sources.put(processed, records.get(i));
+                } catch (CompletionException e) {
+                    log.error("Rejecting unprocessable order record", e.getCause());
+                    outputs.add(deadLetter(records.get(i), e.getCause()));
+                }
+            }
+
+            applyModelScores(scored);
+
+            if (!exactlyOnce && writeBehind.isEnabled()) {
+                publishAhead(batch, scored, sources, outputs);
+                return;
+            }
+
+            List<ProcessedOrder> persisted = persist(scored, sources, outputs);
+            List<CompletableFuture<Void>> alerts = new ArrayList<>();
+            for (ProcessedOrder processed : persisted) {
+                outputs.addAll(publish(processed, alerts));
+            }
+
+            if (exactlyOnce) {
+                // Outputs and the batch offsets commit atomically; an abort rewinds the consumer
+                transactions.withTransactionAndAck(batch, emitter -> {
+                    outputs.forEach(emitter::send);
+                    return Uni.createFrom().voidItem();
+                }).await().indefinitely();
+                rememberProcessed(persisted);
+            } else {
+                // Offsets only move once every output of the batch has reached the broker
+                sendAll(outputs).join();
+                rememberProcessed(persisted);
+                ackAfter(batch, alerts);
+            }
+            log.info("Batch processed: {} of {} orders persisted", persisted.size(), records.size());
+
+        } catch (Exception e) {
+            log.error("Failed to process batch of {} orders", records.size(), e);
+            batch.nack(e);
+        }
+    }
+
+    // Outputs go out as soon as the batch is scored; only the offsets wait for the durable flush.
+    // This keeps the audit write off the publish path, at the cost of one weaker guarantee: an order
+    // the database still rejects after a failed flush is dead-lettered after its event went out.
+    private void publishAhead(KafkaRecordBatch<String, byte[]> batch,
+                              List<ProcessedOrder> scored,
+                              Map<ProcessedOrder, KafkaRecord<String, byte[]>> sources,
+                              List<OutgoingKafkaRecord<String, byte[]>> outputs) {
+        List<CompletableFuture<Void>> alerts = new ArrayList<>();
+        for (ProcessedOrder processed : scored) {
+            outputs.addAll(publish(processed, alerts));
+        }
+        sendAll(outputs).join();
+
+        writeBehind.enqueue(scored).whenComplete((ignored, failure) -> {
+            if (failure == null) {
+                rememberProcessed(scored);
+                ackAfter(batch, alerts);
+                log.info("Batch flushed: {} orders persisted", scored.size());
+            } else {
+                log.warn("Write-behind flush failed, persisting batch of {} orders directly", scored.size(), failure);
+                blockingStage.submit(() -> persistDirectly(batch, scored, sources, alerts));
+            }
+        });
+    }
+
+    private void persistDirectly(KafkaRecordBatch<String, byte[]> batch,
+                                 List<ProcessedOrder> scored,
+                                 Map<ProcessedOrder, KafkaRecord<String, byte[]>> sources,
+                                 List<CompletableFuture<Void>> alerts) {
+        try {
+            List<OutgoingKafkaRecord<String, byte[]>> deadLetters = new ArrayList<>();
+            List<ProcessedOrder> persisted = persist(scored, sources, deadLetters);
+            if (persisted.size() < scored.size()) {
+                log.error("{} of {} orders were published but could not be stored; see raw-orders-dlq",
+                        scored.size() - persisted.size(), scored.size());
+            }
+            sendAll(deadLetters).join();
+            rememberProcessed(persisted);
+            ackAfter(batch, alerts);
+        } catch (Exception e) {
+            log.error("Failed to persist batch of {} orders", scored.size(), e);
+            batch.nack(e);
+        }
+    }
+
+    // Alerts handed to the dispatcher are not among the batch outputs, so the offsets also wait for them
+    private static void ackAfter(KafkaRecordBatch<String, byte[]> batch, List<CompletableFuture<Void>> alerts) {
+        if (alerts.isEmpty()) {
+            batch.ack();
+            return;
+        }
+        CompletableFuture.allOf(alerts.toArray(new CompletableFuture[0])).whenComplete((ignored, failure) -> {
+            if (failure == null) {
+                batch.ack();
+            } else {
+                log.error("Fraud alerts of a batch were not written", failure);
+                batch.nack(failure);
+            }
+        });
+    }
+
+    private void rememberProcessed(List<ProcessedOrder> persisted) {
+        recentOrders.markProcessed(persisted.stream()
+                .map(processed -> processed.getOrder().getOrderId())
+                .toList());
+    }
+
+    private CompletableFuture<Void> sendAll(List<OutgoingKafkaRecord<String, byte[]>> outputs) {
+        List<CompletableFuture<Void>> sends = new ArrayList<>(outputs.size());
+        for (OutgoingKafkaRecord<String, byte[]> output : outputs) {
+            CompletableFuture<Void> sent = new CompletableFuture<>();
+            emitterFor(output.getTopic()).send(output
+                    .withAck(() -> {
+                        sent.complete(null);
+                        return CompletableFuture.completedFuture(null);
+                    })
+                    .withNack(failure -> {
+                        sent.completeExceptionally(failure);
+                        return CompletableFuture.completedFuture(null);
+                    }));
+            sends.add(sent);
+        }
+        return CompletableFuture.allOf(sends.toArray(new CompletableFuture[0]));
+    }
+
+    private Emitter<byte[]> emitterFor(String topic) {
+        return switch (topic) {
+            case VALIDATED_ORDERS -> validatedOrdersEmitter;
+            case FRAUD_ALERTS -> fraudAlertsEmitter;
+            case RAW_ORDERS_DLQ -> deadLetterEmitter;
+            default -> throw new IllegalArgumentException("No emitter for topic " + topic);
+        };
+    }
+
+    // Orders still failing once transient retries run out are dead-lettered, not nacked: with the
+    // channel's fail strategy a nack would stop consumption, and the DLQ can be replayed later
+    private List<ProcessedOrder> persist(List<ProcessedOrder> scored,
+                                         Map<ProcessedOrder, KafkaRecord<String, byte[]>> sources,
+                                         List<OutgoingKafkaRecord<String, byte[]>> outputs) {
+        if (scored.size() > 1) {
+            try {
+                saveWithRetry(scored);
+                return scored;
+            } catch (RuntimeException e) {
+                if (TransientFailures.isTransient(e)) {
+                    giveUp(scored, sources, outputs, e);
+                    return List.of();
+                }
+                log.warn("Batch of {} orders rejected by the database, saving one order at a time",
+                        scored.size(), e);
+            }
+        }
+
+        // Isolate the offending orders so one bad row does not hold back the rest of the batch
+        List<ProcessedOrder> persisted = new ArrayList<>(scored.size());
+        for (int i = 0; i < scored.size(); i++) {
+            ProcessedOrder processed = scored.get(i);
+            try {
+                saveWithRetry(List.of(processed));
+                persisted.add(processed);
+            } catch (RuntimeException e) {
+                if (TransientFailures.isTransient(e)) {
+                    // The database is still unavailable; the rest of the batch would only wait out its own retries
+                    giveUp(scored.subList(i, scored.size()), sources, outputs, e);
+                    return persisted;
+                }
+                log.error("Order {} rejected by the database", processed.getOrder().getOrderId(), e);
+                outputs.add(deadLetter(sources.get(processed), e));
+            }
+        }
+        return persisted;
+    }
 
-            if (!enrichmentService.isValid(order)) {
-                log.error("Invalid order received: {}", order.getOrderId());
-                return null;
+    private void giveUp(List<ProcessedOrder> unsaved,
+                        Map<ProcessedOrder, KafkaRecord<String, byte[]>> sources,
+                        List<OutgoingKafkaRecord<String, byte[]>> outputs,
+                        RuntimeException failure) {
+        log.error("Dead-lettering {} orders after {} retries of a transient database failure",
+                unsaved.size(), retryAttempts, failure);
+        for (ProcessedOrder processed : unsaved) {
+            outputs.add(deadLetter(sources.get(processed), failure));
+        }
+    }
+
+    private void saveWithRetry(List<ProcessedOrder> processedOrders) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                persistenceService.saveProcessedOrders(processedOrders);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt > retryAttempts || !TransientFailures.isTransient(e)) {
+                    throw e;
+                }
+                log.warn("Transient failure saving {} orders (attempt {} of {}), retrying",
+                        processedOrders.size(), attempt, retryAttempts + 1, e);
+                backOff(attempt);
             }
+        }
+    }
 
-            order = enrichmentService.enrichOrder(order);
-            FraudCheckResult fraudResult = fraudDetectionService.analyzeOrder(order);
-            order.setFraudScore(fraudResult.getFraudScore());
-            
-            if (Boolean.TRUE.equals(fraudResult.getIsSuspicious())) {
-                order.setStatus(OrderStatus.FRAUD_SUSPECTED);
-                log.warn("Suspicious order detected: {} (Score: {})",
-                        order.getOrderId(), fraudResult.getFraudScore());
-
-                persistenceService.saveFraudAlert(fraudResult);
-                publishFraudAlert(fraudResult);
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMs << (attempt - 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    private OutgoingKafkaRecord<String, byte[]> deadLetter(KafkaRecord<String, byte[]> record, Throwable reason) {
+        OutgoingKafkaRecord<String, byte[]> deadLetter = KafkaRecord.of(RAW_ORDERS_DLQ, record.getKey(), record.getPayload())
+                .withHeader(DEAD_LETTER_EXCEPTION_CLASS_NAME, reason.getClass().getName())
+                .withHeader(DEAD_LETTER_REASON, String.valueOf(reason.getMessage()));
+
+        // The payload is kept as it arrived, so it keeps the header that says how to read it
+        Header contentType = record.getHeaders().lastHeader(WireFormat.HEADER);
+        if (contentType != null) {
+            deadLetter = deadLetter.withHeader(WireFormat.HEADER, contentType.value());
+        }
+
+        Optional<IncomingKafkaRecordMetadata> source = record.getMetadata(IncomingKafkaRecordMetadata.class);
+        if (source.isPresent()) {
+            deadLetter = deadLetter
+                    .withHeader(DEAD_LETTER_TOPIC, source.get().getTopic())
+                    .withHeader(DEAD_LETTER_PARTITION, String.valueOf(source.get().getPartition()))
+                    .withHeader(DEAD_LETTER_OFFSET, String.valueOf(source.get().getOffset()));
+        }
+
+        if (reason.getCause() != null) {
+            deadLetter = deadLetter
+                    .withHeader(DEAD_LETTER_CAUSE_CLASS_NAME, reason.getCause().getClass().getName())
+                    .withHeader(DEAD_LETTER_CAUSE, String.valueOf(reason.getCause().getMessage()));
+        }
+        return deadLetter;
+    }
+
+    // Records from producers that predate the header are JSON
+    private static WireFormat formatOf(KafkaRecord<String, byte[]> record) {
+        Header contentType = record.getHeaders().lastHeader(WireFormat.HEADER);
+        return WireFormat.fromHeader(contentType == null ? null : contentType.value());
+    }
+
+    private Object orderingKey(KafkaRecord<String, byte[]> record) {
+        // Unkeyed records fall back to their partition so they keep partition order
+        return record.getKey() != null ? record.getKey() : record.getPartition();
+    }
+
+    ProcessedOrder processOrder(byte[] payload, WireFormat format) {
+        Order order;
+        try {
+            order = format.readOrder(payload);
+        } catch (IOException e) {
+            throw new InvalidOrderException("Unparseable order payload", e);
+        }
+        log.info("Processing order: {}", order.getOrderId());
+
+        if (!enrichmentService.isValid(order)) {
+            throw new InvalidOrderException("Invalid order: " + order.getOrderId());
+        }
+
+        order = enrichmentService.enrichOrder(order);
+        FraudCheckResult fraudResult = fraudDetectionService.analyzeOrder(order);
+        applyFraudResult(order, fraudResult);
+
+        return new ProcessedOrder(order, fraudResult);
+    }
+
+    // Model scores depend only on the order, so the whole poll is scored in one pass once every order is enriched
+    private void applyModelScores(List<ProcessedOrder> scored) {
+        if (scored.isEmpty()) {
+            return;
+        }
+        List<Order> orders = new ArrayList<>(scored.size());
+        List<FraudCheckResult> results = new ArrayList<>(scored.size());
+        for (ProcessedOrder processed : scored) {
+            orders.add(processed.getOrder());
+            results.add(processed.getFraudResult());
+        }
+        if (!fraudDetectionService.applyModelScores(orders, results)) {
+            return;
+        }
+        for (ProcessedOrder processed : scored) {
+            applyFraudResult(processed.getOrder(), processed.getFraudResult());
+        }
+    }
+
+    private void applyFraudResult(Order order, FraudCheckResult fraudResult) {
+        order.setFraudScore(fraudResult.getFraudScore());
+
+        if (Boolean.TRUE.equals(fraudResult.getIsSuspicious())) {
+            order.setStatus(OrderStatus.FRAUD_SUSPECTED);
+            log.warn("Suspicious order detected: {} (Score: {})",
+                    order.getOrderId(), fraudResult.getFraudScore());
+        } else {
+            order.setStatus(OrderStatus.VALIDATED);
+        }
+    }
+
+    private List<OutgoingKafkaRecord<String, byte[]>> publish(ProcessedOrder processed,
+                                                             List<CompletableFuture<Void>> alerts) {
+        Order order = processed.getOrder();
+        List<OutgoingKafkaRecord<String, byte[]>> outputs = new ArrayList<>(2);
+        if (processed.isSuspicious()) {
+            if (fraudAlerts.isEnabled()) {
+                alerts.add(fraudAlerts.submit(processed.getFraudResult()).toCompletableFuture());
             } else {
-                order.setStatus(OrderStatus.VALIDATED);
+                outputs.add(publishFraudAlert(processed.getFraudResult()));
             }
+        }
 
-            persistenceService.saveOrderAuditLog(order);
+        try {
             OrderEvent validatedEvent = OrderEvent.builder()
                     .eventId(UUID.randomUUID().toString())
                     .eventType("ORDER_VALIDATED")
@@ -83,27 +474,31 @@ public class OrderStreamProcessor {
                     .order(order)
                     .build();
 
-            String validatedJson = objectMapper.writeValueAsString(validatedEvent);
+            // JSON events reuse the order JSON already written for the audit row
+            byte[] eventPayload = wireFormat == WireFormat.BINARY
+                    ? wireFormat.writeOrderEvent(validatedEvent)
+                    : codec.writeOrderEvent(validatedEvent, processed.orderJson());
+            outputs.add(KafkaRecord.<String, byte[]>of(VALIDATED_ORDERS, null, eventPayload)
+                    .withHeader(WireFormat.HEADER, wireFormat.contentType()));
             log.info("Order {} processed successfully. Status: {}, Fraud Score: {}",
                     order.getOrderId(),
                     order.getStatus(),
                     order.getFraudScore());
 
-            return validatedJson;
-
-        } catch (Exception e) {
-            log.error("Error processing order", e);
-            return null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error serializing validated order: " + order.getOrderId(), e);
         }
+        return outputs;
     }
 
-    private void publishFraudAlert(FraudCheckResult fraudResult) {
+    private OutgoingKafkaRecord<String, byte[]> publishFraudAlert(FraudCheckResult fraudResult) {
         try {
-            String fraudJson = objectMapper.writeValueAsString(fraudResult);
+            byte[] alert = wireFormat.writeFraudResult(fraudResult);
             log.info("Publishing fraud alert for order: {}", fraudResult.getOrderId());
-            fraudAlertsEmitter.send(fraudJson);
-        } catch (Exception e) {
-            log.error("Error publishing fraud alert for order: {}", fraudResult.getOrderId(), e);
+            return KafkaRecord.<String, byte[]>of(FRAUD_ALERTS, null, alert)
+                    .withHeader(WireFormat.HEADER, wireFormat.contentType());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error serializing fraud alert for order: " + fraudResult.getOrderId(), e);
         }
     }
 }
@@ -0,0 +1,38 @@
+package com.ecommerce.processor.messaging;
+
+import com.ecommerce.processor.service.FraudFeatureStore;
+import io.smallrye.common.annotation.Identifier;
+import io.smallrye.reactive.messaging.kafka.KafkaConsumerRebalanceListener;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.Collection;
+
+
+@Slf4j
+@ApplicationScoped
+@Identifier("raw-orders-rebalance")
+public class RawOrdersRebalanceListener implements KafkaConsumerRebalanceListener {
+
+    @Inject
+    FraudFeatureStore features;
+
+    @ConfigProperty(name = "app.fraud-detection.state.restore-timeout", defaultValue = "60s")
+    Duration restoreTimeout;
+
+    // Runs on the polling thread, so newly assigned partitions are not scored against stale velocity state
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        if (!features.awaitRestored(restoreTimeout)) {
+            log.warn("Fraud feature state still restoring after {}; consuming {} anyway", restoreTimeout, partitions);
+        }
+    }
+}
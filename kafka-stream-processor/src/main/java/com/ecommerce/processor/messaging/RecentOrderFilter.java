@@ -0,0 +1,160 @@
+package com.ecommerce.processor.messaging;
+
+import com.ecommerce.models.BinaryCodec;
+import com.ecommerce.models.WireFormat;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+
+@Slf4j
+@ApplicationScoped
+public class RecentOrderFilter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "app.processing.dedup.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.processing.dedup.window", defaultValue = "10m")
+    Duration window;
+
+    @ConfigProperty(name = "app.processing.dedup.max-entries", defaultValue = "100000")
+    int maxEntries;
+
+    private LongSupplier clock = System::nanoTime;
+    private Counter hits;
+    private Counter misses;
+
+    // Two generations: lookups check both, inserts go to current, and rotation drops previous.
+    // An order id is remembered for at least one window unless the size bound forces an early rotation.
+    private volatile Set<String> current = ConcurrentHashMap.newKeySet();
+    private volatile Set<String> previous = ConcurrentHashMap.newKeySet();
+    private volatile long rotatedAt;
+
+    public RecentOrderFilter() {
+    }
+
+    RecentOrderFilter(MeterRegistry registry, Duration window, int maxEntries, LongSupplier clock) {
+        this.registry = registry;
+        this.enabled = true;
+        this.window = window;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        rotatedAt = clock.getAsLong();
+        hits = Counter.builder("orders.dedup.hits")
+                .description("Records skipped because their order id was recently processed")
+                .register(registry);
+        misses = Counter.builder("orders.dedup.misses")
+                .description("Records whose order id was not recently processed")
+                .register(registry);
+        Gauge.builder("orders.dedup.size", this, RecentOrderFilter::size)
+                .description("Order ids currently remembered by the dedup filter")
+                .register(registry);
+        log.info("Dedup filter {} (window {}, max {} order ids)", enabled ? "enabled" : "disabled", window, maxEntries);
+    }
+
+    public boolean isDuplicate(byte[] payload, WireFormat format) {
+        if (!enabled) {
+            return false;
+        }
+
+        String orderId = format == WireFormat.BINARY ? BinaryCodec.shared().peekOrderId(payload) : peekOrderId(payload);
+        if (orderId == null) {
+            return false;
+        }
+
+        rotateIfExpired();
+        if (current.contains(orderId) || previous.contains(orderId)) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+
+    // Only called once the orders are durably stored, so a failed batch is never filtered on redelivery
+    public void markProcessed(Collection<String> orderIds) {
+        if (!enabled || orderIds.isEmpty()) {
+            return;
+        }
+
+        rotateIfExpired();
+        current.addAll(orderIds);
+        if (current.size() >= maxEntries / 2) {
+            synchronized (this) {
+                if (current.size() >= maxEntries / 2) {
+                    rotate();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return current.size() + previous.size();
+    }
+
+    private void rotateIfExpired() {
+        if (isExpired()) {
+            synchronized (this) {
+                if (isExpired()) {
+                    rotate();
+                }
+            }
+        }
+    }
+
+    private boolean isExpired() {
+        return clock.getAsLong() - rotatedAt >= window.toNanos();
+    }
+
+    private void rotate() {
+        previous = current;
+        current = ConcurrentHashMap.newKeySet();
+        rotatedAt = clock.getAsLong();
+    }
+
+    static String peekOrderId(byte[] payload) {
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("order_id".equals(field)) {
+                    return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+
+        } catch (IOException e) {
+            // Malformed payloads are left to the full parse, which dead-letters them
+            return null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.ecommerce.processor.model;
+
+import com.ecommerce.models.FraudCheckResult;
+import com.ecommerce.models.JsonCodec;
+import com.ecommerce.models.Order;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+
+@Data
+public class ProcessedOrder {
+
+    private Order order;
+
+    private FraudCheckResult fraudResult;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile String orderJson;
+
+    public ProcessedOrder(Order order, FraudCheckResult fraudResult) {
+        this.order = order;
+        this.fraudResult = fraudResult;
+    }
+
+    public void setOrder(Order order) {
+        this.order = order;
+        this.orderJson = null;
+    }
+
+    public boolean isSuspicious() {
+        return Boolean.TRUE.equals(fraudResult.getIsSuspicious());
+    }
+
+    // Written once, after scoring has finished with the order, and shared by the audit row and the
+    // validated-orders event
+    public String orderJson() throws JsonProcessingException {
+        String json = orderJson;
+        if (json == null) {
+            json = JsonCodec.shared().writeOrder(order);
+            orderJson = json;
+        }
+        return json;
+    }
+}
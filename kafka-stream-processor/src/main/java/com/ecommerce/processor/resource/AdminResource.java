@@ -2,8 +2,13 @@ package com.ecommerce.processor.resource;
 
 import com.ecommerce.processor.entity.FraudAlert;
 import com.ecommerce.processor.entity.OrderAuditLog;
+import com.ecommerce.processor.service.AuditArchiveService;
+import com.ecommerce.processor.service.FraudRuleEngine;
+import com.ecommerce.processor.service.FraudRuleSet;
+import com.ecommerce.processor.service.FraudShadowEvaluator;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -11,6 +16,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +29,15 @@ import java.util.Map;
 @Tag(name = "Admin", description = "Admin operations for monitoring and management")
 public class AdminResource {
 
+    @Inject
+    AuditArchiveService archive;
+
+    @Inject
+    FraudRuleEngine fraudRules;
+
+    @Inject
+    FraudShadowEvaluator shadowRules;
+
     @GET
     @Path("/stats")
     @Operation(
@@ -49,10 +64,12 @@ public class AdminResource {
     @Path("/orders/recent")
     @Operation(
         summary = "Get recent orders", 
-        description = "Returns the most recent processed orders")
-    public Response getRecentOrders(@QueryParam("limit") @DefaultValue("10") int limit) {
+        description = "Returns the most recent processed orders from the last given number of days")
+    public Response getRecentOrders(@QueryParam("limit") @DefaultValue("10") int limit,
+                                    @QueryParam("days") @DefaultValue("7") int days) {
+        // Bounding processedAt lets Postgres skip audit log partitions outside the window
         List<OrderAuditLog> recentOrders = PanacheEntityBase.find(
-                "ORDER BY processedAt DESC"
+                "processedAt >= ?1 ORDER BY processedAt DESC", LocalDateTime.now().minusDays(days)
         ).page(0, limit).list();
         return Response.ok(recentOrders).build();
     }
@@ -61,7 +78,10 @@ public class AdminResource {
     @Path("/orders/{orderId}")
     @Operation(summary = "Get order by ID", description = "Returns order details by order ID")
     public Response getOrderById(@PathParam("orderId") String orderId) {
-        OrderAuditLog order = PanacheEntityBase.find("orderId", orderId).firstResult();
+        OrderAuditLog order = OrderAuditLog.findByOrderId(orderId);
+        if (order == null) {
+            order = archive.findArchived(orderId).orElse(null);
+        }
 
         if (order == null) {
             return Response.status(Response.Status.NOT_FOUND)
@@ -94,6 +114,30 @@ public class AdminResource {
         return Response.ok(alerts).build();
     }
 
+    @GET
+    @Path("/fraud-rules")
+    @Operation(summary = "Get active fraud rules", description = "Returns the active fraud rule set and any shadow candidates")
+    public Response getFraudRules() {
+        FraudRuleSet active = fraudRules.active();
+        return Response.ok(Map.of("version", active.version(), "rules", active.flags(),
+                "shadow", shadowRules.candidateVersions())).build();
+    }
+
+    @POST
+    @Path("/fraud-rules/reload")
+    @Operation(summary = "Reload fraud rules", description = "Re-reads the fraud rule file and swaps it in if it compiles")
+    public Response reloadFraudRules() {
+        try {
+            FraudRuleSet reloaded = fraudRules.reload();
+            return Response.ok(Map.of("version", reloaded.version(), "rules", reloaded.flags())).build();
+        } catch (RuntimeException e) {
+            log.warn("Fraud rule reload rejected", e);
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", String.valueOf(e.getMessage())))
+                    .build();
+        }
+    }
+
     @GET
     @Path("/health-detailed")
     @Operation(summary = "Detailed health check", description = "Returns detailed health information")
@@ -0,0 +1,405 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.processor.entity.OrderAuditLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+
+// Columnar file of archived audit rows, sorted by order_id and cut into row groups of a few
+// thousand rows. Each group holds one deflated block per column. The footer has the file's
+// order_id range, a Bloom filter over its order ids and, per group, the first order_id and the
+// block offsets. A lookup that passes the filter picks the group by its first order_id, inflates
+// that group's order_id block, binary searches it and then inflates the same group's block of
+// every other column, so it decodes a few thousand rows rather than the whole file.
+//
+// Layout: column blocks by group, footer, footer length (int), magic. Files written before row
+// groups and the filter (magic OAC1) read as a single group that every lookup has to open.
+public final class AuditArchiveFile {
+
+    public static final String EXTENSION = ".oac";
+
+    static final int ROWS_PER_GROUP = 4096;
+
+    private static final int MAGIC = 0x4F414332; // "OAC2"
+    private static final int MAGIC_V1 = 0x4F414331; // "OAC1"
+    private static final int TRAILER_SIZE = Integer.BYTES * 2;
+    // About 1% false positives at 10 bits and 7 probes per order id
+    private static final int BLOOM_BITS_PER_ROW = 10;
+    private static final int BLOOM_HASHES = 7;
+    private static final long BLOOM_SEED = 0x7a3c1e5bd2f4968bL;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private enum Type { LONG, INT, TEXT, DECIMAL, DOUBLE, BOOLEAN, TIMESTAMP }
+
+    private record Column(String name, Type type,
+                          Function<OrderAuditLog, Object> getter,
+                          BiConsumer<OrderAuditLog, Object> setter) {
+    }
+
+    private static final List<Column> COLUMNS = List.of(
+            new Column("id", Type.LONG, log -> log.id, (log, v) -> log.id = (Long) v),
+            new Column("order_id", Type.TEXT, OrderAuditLog::getOrderId, (log, v) -> log.setOrderId((String) v)),
+            new Column("customer_id", Type.TEXT, OrderAuditLog::getCustomerId, (log, v) -> log.setCustomerId((String) v)),
+            new Column("customer_name", Type.TEXT, OrderAuditLog::getCustomerName, (log, v) -> log.setCustomerName((String) v)),
+            new Column("customer_email", Type.TEXT, OrderAuditLog::getCustomerEmail, (log, v) -> log.setCustomerEmail((String) v)),
+            new Column("order_status", Type.TEXT, OrderAuditLog::getOrderStatus, (log, v) -> log.setOrderStatus((String) v)),
+            new Column("total_items", Type.INT, OrderAuditLog::getTotalItems, (log, v) -> log.setTotalItems((Integer) v)),
+            new Column("subtotal", Type.DECIMAL, OrderAuditLog::getSubtotal, (log, v) -> log.setSubtotal((BigDecimal) v)),
+            new Column("shipping_cost", Type.DECIMAL, OrderAuditLog::getShippingCost, (log, v) -> log.setShippingCost((BigDecimal) v)),
+            new Column("voucher_discount", Type.DECIMAL, OrderAuditLog::getVoucherDiscount, (log, v) -> log.setVoucherDiscount((BigDecimal) v)),
+            new Column("grand_total", Type.DECIMAL, OrderAuditLog::getGrandTotal, (log, v) -> log.setGrandTotal((BigDecimal) v)),
+            new Column("payment_method", Type.TEXT, OrderAuditLog::getPaymentMethod, (log, v) -> log.setPaymentMethod((String) v)),
+            new Column("payment_transaction_id", Type.TEXT, OrderAuditLog::getPaymentTransactionId, (log, v) -> log.setPaymentTransactionId((String) v)),
+            new Column("is_payment_paid", Type.BOOLEAN, OrderAuditLog::getIsPaymentPaid, (log, v) -> log.setIsPaymentPaid((Boolean) v)),
+            new Column("shipping_city", Type.TEXT, OrderAuditLog::getShippingCity, (log, v) -> log.setShippingCity((String) v)),
+            new Column("shipping_province", Type.TEXT, OrderAuditLog::getShippingProvince, (log, v) -> log.setShippingProvince((String) v)),
+            new Column("shipping_country", Type.TEXT, OrderAuditLog::getShippingCountry, (log, v) -> log.setShippingCountry((String) v)),
+            new Column("fraud_score", Type.DOUBLE, OrderAuditLog::getFraudScore, (log, v) -> log.setFraudScore((Double) v)),
+            new Column("is_suspicious", Type.BOOLEAN, OrderAuditLog::getIsSuspicious, (log, v) -> log.setIsSuspicious((Boolean) v)),
+            new Column("source", Type.TEXT, OrderAuditLog::getSource, (log, v) -> log.setSource((String) v)),
+            new Column("order_data", Type.TEXT, OrderAuditLog::getOrderData, (log, v) -> log.setOrderData((String) v)),
+            new Column("processed_at", Type.TIMESTAMP, OrderAuditLog::getProcessedAt, (log, v) -> log.setProcessedAt((LocalDateTime) v)),
+            new Column("created_at", Type.TIMESTAMP, OrderAuditLog::getCreatedAt, (log, v) -> log.setCreatedAt((LocalDateTime) v)),
+            new Column("updated_at", Type.TIMESTAMP, OrderAuditLog::getUpdatedAt, (log, v) -> log.setUpdatedAt((LocalDateTime) v)));
+
+    private static final int ORDER_ID_COLUMN = 1;
+
+    public record Group(int rowCount, String firstOrderId, Map<String, long[]> blocks) {
+    }
+
+    // The filter is null for files written before it existed
+    public record Footer(Path path, int rowCount, String minOrderId, String maxOrderId, long[] bloom,
+                         List<Group> groups) {
+
+        public boolean mayContain(String orderId) {
+            if (rowCount == 0 || minOrderId.compareTo(orderId) > 0 || maxOrderId.compareTo(orderId) < 0) {
+                return false;
+            }
+            if (bloom == null) {
+                return true;
+            }
+            long bits = (long) bloom.length * Long.SIZE;
+            long h = Blocklist.hash(orderId, BLOOM_SEED);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Long.remainderUnsigned(h + i * (h >>> 32 | 1), bits);
+                if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Last group whose first order_id is not after the given one
+        Group groupFor(String orderId) {
+            int low = 0;
+            int high = groups.size() - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (groups.get(mid).firstOrderId().compareTo(orderId) <= 0) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return groups.get(low);
+        }
+    }
+
+    private AuditArchiveFile() {
+    }
+
+    public static Footer write(Path target, List<OrderAuditLog> auditLogs) throws IOException {
+        return write(target, auditLogs, ROWS_PER_GROUP);
+    }
+
+    // Written to a temp file and moved into place, so readers never see a partial archive
+    static Footer write(Path target, List<OrderAuditLog> auditLogs, int rowsPerGroup) throws IOException {
+        List<OrderAuditLog> rows = new ArrayList<>(auditLogs);
+        rows.sort(Comparator.comparing(OrderAuditLog::getOrderId));
+
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        List<Group> groups = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long offset = 0;
+            for (int from = 0; from < rows.size(); from += rowsPerGroup) {
+                List<OrderAuditLog> groupRows = rows.subList(from, Math.min(from + rowsPerGroup, rows.size()));
+                Map<String, long[]> blocks = new LinkedHashMap<>();
+                for (Column column : COLUMNS) {
+                    byte[] block = encodeColumn(column, groupRows);
+                    channel.write(ByteBuffer.wrap(block));
+                    blocks.put(column.name(), new long[]{offset, block.length});
+                    offset += block.length;
+                }
+                groups.add(new Group(groupRows.size(), groupRows.get(0).getOrderId(), blocks));
+            }
+
+            String minOrderId = rows.isEmpty() ? "" : rows.get(0).getOrderId();
+            String maxOrderId = rows.isEmpty() ? "" : rows.get(rows.size() - 1).getOrderId();
+            long[] bloom = bloom(rows);
+
+            ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(footerBytes);
+            footer.writeInt(rows.size());
+            footer.writeUTF(minOrderId);
+            footer.writeUTF(maxOrderId);
+            footer.writeInt(bloom.length);
+            for (long word : bloom) {
+                footer.writeLong(word);
+            }
+            footer.writeShort(COLUMNS.size());
+            for (Column column : COLUMNS) {
+                footer.writeUTF(column.name());
+            }
+            footer.writeInt(groups.size());
+            for (Group group : groups) {
+                footer.writeInt(group.rowCount());
+                footer.writeUTF(group.firstOrderId());
+                for (Column column : COLUMNS) {
+                    long[] block = group.blocks().get(column.name());
+                    footer.writeLong(block[0]);
+                    footer.writeLong(block[1]);
+                }
+            }
+            footer.writeInt(footerBytes.size());
+            footer.writeInt(MAGIC);
+            channel.write(ByteBuffer.wrap(footerBytes.toByteArray()));
+            channel.force(true);
+        }
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return readFooter(target);
+    }
+
+    public static Footer readFooter(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            int footerLength = trailer.getInt();
+            int magic = trailer.getInt();
+            if (magic != MAGIC && magic != MAGIC_V1) {
+                throw new IOException("Not an audit archive file: " + path);
+            }
+
+            ByteBuffer footerBuffer = read(channel, size - TRAILER_SIZE - footerLength, footerLength);
+            DataInputStream footer = new DataInputStream(new ByteArrayInputStream(
+                    footerBuffer.array(), footerBuffer.arrayOffset(), footerLength));
+            int rowCount = footer.readInt();
+            String minOrderId = footer.readUTF();
+            String maxOrderId = footer.readUTF();
+
+            if (magic == MAGIC_V1) {
+                int columnCount = footer.readShort();
+                Map<String, long[]> blocks = new LinkedHashMap<>();
+                for (int i = 0; i < columnCount; i++) {
+                    blocks.put(footer.readUTF(), new long[]{footer.readLong(), footer.readLong()});
+                }
+                return new Footer(path, rowCount, minOrderId, maxOrderId, null,
+                        List.of(new Group(rowCount, minOrderId, blocks)));
+            }
+
+            long[] bloom = new long[footer.readInt()];
+            for (int i = 0; i < bloom.length; i++) {
+                bloom[i] = footer.readLong();
+            }
+            String[] columns = new String[footer.readShort()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = footer.readUTF();
+            }
+            int groupCount = footer.readInt();
+            List<Group> groups = new ArrayList<>(groupCount);
+            for (int g = 0; g < groupCount; g++) {
+                int groupRows = footer.readInt();
+                String firstOrderId = footer.readUTF();
+                Map<String, long[]> blocks = new LinkedHashMap<>();
+                for (String column : columns) {
+                    blocks.put(column, new long[]{footer.readLong(), footer.readLong()});
+                }
+                groups.add(new Group(groupRows, firstOrderId, blocks));
+            }
+            return new Footer(path, rowCount, minOrderId, maxOrderId, bloom, groups);
+        }
+    }
+
+    public static Optional<OrderAuditLog> find(Footer footer, String orderId) throws IOException {
+        if (!footer.mayContain(orderId)) {
+            return Optional.empty();
+        }
+
+        Group group = footer.groupFor(orderId);
+        try (FileChannel channel = FileChannel.open(footer.path(), StandardOpenOption.READ)) {
+            Object[] orderIds = decodeColumn(channel, group, COLUMNS.get(ORDER_ID_COLUMN), group.rowCount());
+            int row = Arrays.binarySearch(orderIds, orderId);
+            if (row < 0) {
+                return Optional.empty();
+            }
+
+            OrderAuditLog auditLog = new OrderAuditLog();
+            for (Column column : COLUMNS) {
+                Object value = column == COLUMNS.get(ORDER_ID_COLUMN)
+                        ? orderIds[row]
+                        : decodeColumn(channel, group, column, row + 1)[row];
+                column.setter().accept(auditLog, value);
+            }
+            return Optional.of(auditLog);
+        }
+    }
+
+    public static List<OrderAuditLog> readAll(Footer footer) throws IOException {
+        try (FileChannel channel = FileChannel.open(footer.path(), StandardOpenOption.READ)) {
+            List<OrderAuditLog> rows = new ArrayList<>(footer.rowCount());
+            for (Group group : footer.groups()) {
+                int first = rows.size();
+                for (int i = 0; i < group.rowCount(); i++) {
+                    rows.add(new OrderAuditLog());
+                }
+                for (Column column : COLUMNS) {
+                    Object[] values = decodeColumn(channel, group, column, group.rowCount());
+                    for (int i = 0; i < values.length; i++) {
+                        column.setter().accept(rows.get(first + i), values[i]);
+                    }
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static long[] bloom(List<OrderAuditLog> rows) {
+        long bits = Math.max(64, ((long) rows.size() * BLOOM_BITS_PER_ROW + 63) / 64 * 64);
+        long[] words = new long[(int) (bits / 64)];
+        for (OrderAuditLog row : rows) {
+            long h = Blocklist.hash(row.getOrderId(), BLOOM_SEED);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Long.remainderUnsigned(h + i * (h >>> 32 | 1), bits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+        return words;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of audit archive file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] encodeColumn(Column column, List<OrderAuditLog> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            for (OrderAuditLog row : rows) {
+                writeValue(out, column.type(), column.getter().apply(row));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    // Decodes the first rows of a group's column block; values are variable-length, so the rows
+    // before the one wanted have to be read too
+    private static Object[] decodeColumn(FileChannel channel, Group group, Column column, int rows)
+            throws IOException {
+        long[] block = group.blocks().get(column.name());
+        if (block == null) {
+            return new Object[rows];
+        }
+
+        ByteBuffer compressed = read(channel, block[0], (int) block[1]);
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(compressed.array(), 0, (int) block[1])))) {
+            Object[] values = new Object[rows];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readValue(in, column.type());
+            }
+            return values;
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Type type, Object value) throws IOException {
+        if (type == Type.TEXT || type == Type.DECIMAL) {
+            writeText(out, value == null ? null
+                    : type == Type.DECIMAL ? ((BigDecimal) value).toPlainString() : (String) value);
+            return;
+        }
+
+        out.writeBoolean(value != null);
+        if (value == null) {
+            return;
+        }
+        switch (type) {
+            case LONG -> out.writeLong((Long) value);
+            case INT -> out.writeInt((Integer) value);
+            case DOUBLE -> out.writeDouble((Double) value);
+            case BOOLEAN -> out.writeBoolean((Boolean) value);
+            case TIMESTAMP -> out.writeLong(ChronoUnit.MICROS.between(EPOCH, (LocalDateTime) value));
+            default -> throw new IllegalStateException("Unhandled column type " + type);
+        }
+    }
+
+    private static Object readValue(DataInputStream in, Type type) throws IOException {
+        if (type == Type.TEXT || type == Type.DECIMAL) {
+            String text = readText(in);
+            return text == null || type == Type.TEXT ? text : new BigDecimal(text);
+        }
+
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return switch (type) {
+            case LONG -> in.readLong();
+            case INT -> in.readInt();
+            case DOUBLE -> in.readDouble();
+            case BOOLEAN -> in.readBoolean();
+            case TIMESTAMP -> EPOCH.plus(in.readLong(), ChronoUnit.MICROS);
+            default -> throw new IllegalStateException("Unhandled column type " + type);
+        };
+    }
+
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+}
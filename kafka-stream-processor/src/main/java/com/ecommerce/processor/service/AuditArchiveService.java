@@ -0,0 +1,274 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.processor.entity.OrderAuditLog;
+import io.quarkus.hibernate.orm.panache.Panache;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.sql.DataSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+
+@Slf4j
+@ApplicationScoped
+public class AuditArchiveService {
+
+    private static final DateTimeFormatter DAY_DIRECTORY = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
+    private static final String OLDEST_PROCESSED_AT = "SELECT min(processed_at) FROM order_audit_log";
+
+    private static final String PURGE_AUDIT_LOGS = """
+            DELETE FROM order_audit_log
+            WHERE processed_at >= :from AND processed_at < :to AND order_id IN (:orderIds)
+            """;
+
+    private static final String PURGE_AUDIT_KEYS = "DELETE FROM order_audit_keys WHERE order_id IN (:orderIds)";
+
+    // Session-level advisory lock key shared by every instance ("OAC" archive run)
+    private static final long ARCHIVE_LOCK = 0x4F4143L;
+
+    private static final String TRY_LOCK = "SELECT pg_try_advisory_lock(?)";
+
+    private static final String UNLOCK = "SELECT pg_advisory_unlock(?)";
+
+    @Inject
+    DataSource dataSource;
+
+    @ConfigProperty(name = "app.archive.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.archive.directory", defaultValue = "data/archive")
+    Path directory;
+
+    @ConfigProperty(name = "app.archive.max-age", defaultValue = "30d")
+    Duration maxAge;
+
+    @ConfigProperty(name = "app.archive.rows-per-file", defaultValue = "50000")
+    int rowsPerFile;
+
+    @ConfigProperty(name = "app.archive.check-interval", defaultValue = "1h")
+    Duration checkInterval;
+
+    // Footers only: order_id range, Bloom filter and row group offsets of every archive file
+    private final List<AuditArchiveFile.Footer> index = new CopyOnWriteArrayList<>();
+
+    private final Set<Path> indexed = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService scheduler;
+
+    public AuditArchiveService() {
+    }
+
+    AuditArchiveService(Path directory) {
+        this.enabled = true;
+        this.directory = directory;
+        refreshIndex();
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        refreshIndex();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refreshIndex();
+                archiveExclusively(LocalDate.now().minusDays(maxAge.toDays()));
+            } catch (Exception e) {
+                log.error("Audit log archiving failed", e);
+            }
+        }, checkInterval.toMillis(), checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public Optional<OrderAuditLog> findArchived(String orderId) {
+        for (AuditArchiveFile.Footer footer : index) {
+            if (!footer.mayContain(orderId)) {
+                continue;
+            }
+            try {
+                Optional<OrderAuditLog> archived = AuditArchiveFile.find(footer, orderId);
+                if (archived.isPresent()) {
+                    return archived;
+                }
+            } catch (IOException e) {
+                log.warn("Could not read audit archive {}", footer.path(), e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public int archivedFiles() {
+        return index.size();
+    }
+
+    // The archive directory is shared by every instance, so only the instance holding the advisory
+    // lock archives; the others skip the run and pick up its files on their next index refresh.
+    // The lock is held by the session, so it stays on one connection for the whole run.
+    void archiveExclusively(LocalDate cutoff) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!advisoryLock(connection, TRY_LOCK)) {
+                log.debug("Audit archiving is running on another instance");
+                return;
+            }
+            try {
+                archiveBefore(cutoff);
+            } finally {
+                advisoryLock(connection, UNLOCK);
+            }
+        }
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, ARCHIVE_LOCK);
+            try (ResultSet row = statement.executeQuery()) {
+                return row.next() && row.getBoolean(1);
+            }
+        }
+    }
+
+    // Each day is copied in order_id slices; a slice is deleted from Postgres only after its file is on disk.
+    // ArC intercepts self-invocation, so every load and purge below runs in its own transaction.
+    void archiveBefore(LocalDate cutoff) {
+        LocalDate day = oldestDay();
+        while (day != null && day.isBefore(cutoff)) {
+            String afterOrderId = "";
+            List<OrderAuditLog> slice;
+            while (!(slice = loadSlice(day, afterOrderId)).isEmpty()) {
+                Path file = archive(day, slice);
+                List<String> orderIds = slice.stream().map(OrderAuditLog::getOrderId).toList();
+                purge(day, orderIds);
+                afterOrderId = orderIds.get(orderIds.size() - 1);
+                log.info("Archived {} audit rows from {} to {}", slice.size(), day, file);
+            }
+            day = day.plusDays(1);
+        }
+    }
+
+    @Transactional
+    public LocalDate oldestDay() {
+        Object oldest = Panache.getEntityManager().createNativeQuery(OLDEST_PROCESSED_AT).getSingleResult();
+        if (oldest == null) {
+            return null;
+        }
+        return oldest instanceof LocalDateTime dateTime
+                ? dateTime.toLocalDate()
+                : ((Timestamp) oldest).toLocalDateTime().toLocalDate();
+    }
+
+    @Transactional
+    public List<OrderAuditLog> loadSlice(LocalDate day, String afterOrderId) {
+        return OrderAuditLog.<OrderAuditLog>find(
+                "processedAt >= ?1 and processedAt < ?2 and orderId > ?3 ORDER BY orderId",
+                day.atStartOfDay(), day.plusDays(1).atStartOfDay(), afterOrderId)
+                .page(0, rowsPerFile)
+                .list();
+    }
+
+    @Transactional
+    public void purge(LocalDate day, List<String> orderIds) {
+        Panache.getEntityManager().createNativeQuery(PURGE_AUDIT_LOGS)
+                .setParameter("from", day.atStartOfDay())
+                .setParameter("to", day.plusDays(1).atStartOfDay())
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        Panache.getEntityManager().createNativeQuery(PURGE_AUDIT_KEYS)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    // Files are named after the day and the slice's first and last order_id, so a run that
+    // repeats a slice after a crash or a failed purge rewrites the same file instead of adding a copy
+    Path archive(LocalDate day, List<OrderAuditLog> auditLogs) {
+        Path dayDirectory = directory.resolve(DAY_DIRECTORY.format(day));
+        List<String> orderIds = auditLogs.stream().map(OrderAuditLog::getOrderId).sorted().toList();
+        Path file = dayDirectory.resolve("order_audit_log-" + fileSafe(orderIds.get(0)) + "_"
+                + fileSafe(orderIds.get(orderIds.size() - 1)) + AuditArchiveFile.EXTENSION);
+        try {
+            addToIndex(AuditArchiveFile.write(file, auditLogs));
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to archive audit rows for " + day, e);
+        }
+    }
+
+    private static String fileSafe(String orderId) {
+        return orderId.replaceAll("[^A-Za-z0-9-]", "_");
+    }
+
+    // Adds files written since the last scan, by this instance or another one sharing the directory
+    void refreshIndex() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        int before = index.size();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.filter(AuditArchiveService::isArchiveFile).filter(file -> !indexed.contains(file)).sorted()
+                    .forEach(file -> {
+                        try {
+                            addToIndex(AuditArchiveFile.readFooter(file));
+                        } catch (IOException e) {
+                            log.warn("Skipping unreadable audit archive {}", file, e);
+                        }
+                    });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to scan audit archive directory " + directory, e);
+        }
+        if (index.size() > before) {
+            log.info("Indexed {} new audit archive files from {}", index.size() - before, directory);
+        }
+    }
+
+    // A rewritten file replaces its old footer, whose block offsets no longer hold
+    private void addToIndex(AuditArchiveFile.Footer footer) {
+        if (!indexed.add(footer.path())) {
+            index.removeIf(indexedFooter -> indexedFooter.path().equals(footer.path()));
+        }
+        index.add(footer);
+    }
+
+    private static boolean isArchiveFile(Path path) {
+        return path.getFileName().toString().endsWith(AuditArchiveFile.EXTENSION);
+    }
+}
@@ -0,0 +1,225 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.processor.entity.OrderAuditLog;
+import io.quarkus.hibernate.orm.panache.Panache;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ecommerce.processor.service.OrderPersistenceService.AUDIT_LOG_COLUMNS;
+import static com.ecommerce.processor.service.OrderPersistenceService.MERGE_INCOMING_AUDIT_LOGS;
+
+
+@Slf4j
+@ApplicationScoped
+public class AuditLogCopyWriter {
+
+    // Binary COPY cannot resolve conflicts, so rows land in a session-local staging table first
+    private static final String CREATE_STAGING = "CREATE TEMP TABLE IF NOT EXISTS order_audit_log_staging "
+            + "ON COMMIT DELETE ROWS AS SELECT " + AUDIT_LOG_COLUMNS + " FROM order_audit_log WITH NO DATA";
+
+    private static final String COPY_STAGING = "COPY order_audit_log_staging (" + AUDIT_LOG_COLUMNS
+            + ") FROM STDIN (FORMAT binary)";
+
+    private static final String MERGE_STAGING = "WITH incoming AS (SELECT * FROM order_audit_log_staging),\n"
+            + MERGE_INCOMING_AUDIT_LOGS;
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final short FIELD_COUNT = 23;
+    private static final LocalDateTime POSTGRES_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final byte JSONB_VERSION = 1;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    public void upsert(List<OrderAuditLog> auditLogs) {
+        if (auditLogs.isEmpty()) {
+            return;
+        }
+
+        Panache.getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING);
+            }
+
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            try (PGCopyOutputStream copy = new PGCopyOutputStream(pgConnection, COPY_STAGING, COPY_BUFFER_SIZE)) {
+                write(copy, auditLogs);
+            } catch (IOException e) {
+                throw new UncheckedIOException("COPY into order_audit_log_staging failed", e);
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                int merged = statement.executeUpdate(MERGE_STAGING);
+                log.debug("Merged {} audit rows from COPY staging", merged);
+            }
+        });
+    }
+
+    static void write(OutputStream target, List<OrderAuditLog> auditLogs) throws IOException {
+        DataOutputStream out = new DataOutputStream(target);
+        out.write(SIGNATURE);
+        out.writeInt(0);
+        out.writeInt(0);
+
+        for (OrderAuditLog auditLog : auditLogs) {
+            // Same column order as AUDIT_LOG_COLUMNS
+            out.writeShort(FIELD_COUNT);
+            writeText(out, auditLog.getOrderId());
+            writeText(out, auditLog.getCustomerId());
+            writeText(out, auditLog.getCustomerName());
+            writeText(out, auditLog.getCustomerEmail());
+            writeText(out, auditLog.getOrderStatus());
+            writeInteger(out, auditLog.getTotalItems());
+            writeNumeric(out, auditLog.getSubtotal());
+            writeNumeric(out, auditLog.getShippingCost());
+            writeNumeric(out, auditLog.getVoucherDiscount());
+            writeNumeric(out, auditLog.getGrandTotal());
+            writeText(out, auditLog.getPaymentMethod());
+            writeText(out, auditLog.getPaymentTransactionId());
+            writeBoolean(out, Boolean.TRUE.equals(auditLog.getIsPaymentPaid()));
+            writeText(out, auditLog.getShippingCity());
+            writeText(out, auditLog.getShippingProvince());
+            writeText(out, auditLog.getShippingCountry());
+            writeDouble(out, auditLog.getFraudScore());
+            writeBoolean(out, auditLog.getIsSuspicious());
+            writeText(out, auditLog.getSource());
+            writeJsonb(out, auditLog.getOrderData());
+            writeTimestamp(out, auditLog.getProcessedAt() != null ? auditLog.getProcessedAt() : LocalDateTime.now());
+            writeTimestamp(out, auditLog.getCreatedAt());
+            writeTimestamp(out, auditLog.getUpdatedAt());
+        }
+
+        out.writeShort(-1);
+        out.flush();
+    }
+
+    private static void writeNull(DataOutputStream out) throws IOException {
+        out.writeInt(-1);
+    }
+
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeNull(out);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeJsonb(DataOutputStream out, String json) throws IOException {
+        if (json == null) {
+            writeNull(out);
+            return;
+        }
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length + 1);
+        out.writeByte(JSONB_VERSION);
+        out.write(bytes);
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        if (value == null) {
+            writeNull(out);
+            return;
+        }
+        out.writeInt(4);
+        out.writeInt(value);
+    }
+
+    private static void writeDouble(DataOutputStream out, Double value) throws IOException {
+        if (value == null) {
+            writeNull(out);
+            return;
+        }
+        out.writeInt(8);
+        out.writeDouble(value);
+    }
+
+    private static void writeBoolean(DataOutputStream out, Boolean value) throws IOException {
+        if (value == null) {
+            writeNull(out);
+            return;
+        }
+        out.writeInt(1);
+        out.writeBoolean(value);
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime value) throws IOException {
+        if (value == null) {
+            writeNull(out);
+            return;
+        }
+        out.writeInt(8);
+        out.writeLong(ChronoUnit.MICROS.between(POSTGRES_EPOCH, value));
+    }
+
+    private static void writeNumeric(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            writeNull(out);
+            return;
+        }
+        byte[] encoded = encodeNumeric(value);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    // Postgres numeric wire format: base-10000 digit groups, weight of the first group, sign and display scale
+    static byte[] encodeNumeric(BigDecimal value) {
+        int scale = Math.max(value.scale(), 0);
+        BigInteger unscaled = value.abs().setScale(scale).unscaledValue();
+        String digits = unscaled.toString();
+
+        String integerPart = digits.length() > scale ? digits.substring(0, digits.length() - scale) : "0";
+        String fractionPart = digits.length() > scale
+                ? digits.substring(digits.length() - scale)
+                : "0".repeat(scale - digits.length()) + digits;
+
+        integerPart = "0".repeat((4 - integerPart.length() % 4) % 4) + integerPart;
+        fractionPart = fractionPart + "0".repeat((4 - fractionPart.length() % 4) % 4);
+
+        List<Short> groups = new ArrayList<>();
+        for (int i = 0; i < integerPart.length(); i += 4) {
+            groups.add(Short.parseShort(integerPart.substring(i, i + 4)));
+        }
+        for (int i = 0; i < fractionPart.length(); i += 4) {
+            groups.add(Short.parseShort(fractionPart.substring(i, i + 4)));
+        }
+
+        int weight = integerPart.length() / 4 - 1;
+        while (!groups.isEmpty() && groups.get(0) == 0) {
+            groups.remove(0);
+            weight--;
+        }
+        while (!groups.isEmpty() && groups.get(groups.size() - 1) == 0) {
+            groups.remove(groups.size() - 1);
+        }
+        if (groups.isEmpty()) {
+            weight = 0;
+        }
+
+        short sign = value.signum() < 0 ? (short) 0x4000 : 0;
+        ByteBuffer buffer = ByteBuffer.allocate(8 + groups.size() * 2);
+        buffer.putShort((short) groups.size());
+        buffer.putShort((short) weight);
+        buffer.putShort(sign);
+        buffer.putShort((short) scale);
+        groups.forEach(buffer::putShort);
+        return buffer.array();
+    }
+}
@@ -0,0 +1,305 @@
+package com.ecommerce.processor.service;
+
+import io.quarkus.hibernate.orm.panache.Panache;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+@Slf4j
+@ApplicationScoped
+public class AuditPartitionManager {
+
+    static final String PARENT_TABLE = "order_audit_log";
+    static final String PARTITION_PREFIX = PARENT_TABLE + "_p";
+
+    private static final String IS_PARTITIONED = """
+            SELECT count(*) FROM pg_partitioned_table pt
+            JOIN pg_class c ON c.oid = pt.partrelid
+            WHERE c.relname = :parent
+            """;
+
+    private static final String LIST_PARTITIONS = """
+            SELECT c.relname FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = :parent
+            """;
+
+    private static final String DEFAULT_PARTITION = """
+            SELECT d.relname FROM pg_partitioned_table pt
+            JOIN pg_class p ON p.oid = pt.partrelid
+            JOIN pg_class d ON d.oid = pt.partdefid
+            WHERE p.relname = :parent
+            """;
+
+    public enum Granularity {
+        DAILY(ChronoUnit.DAYS, DateTimeFormatter.BASIC_ISO_DATE),
+        MONTHLY(ChronoUnit.MONTHS, DateTimeFormatter.ofPattern("yyyyMM"));
+
+        private final ChronoUnit unit;
+        private final DateTimeFormatter suffix;
+
+        Granularity(ChronoUnit unit, DateTimeFormatter suffix) {
+            this.unit = unit;
+            this.suffix = suffix;
+        }
+
+        LocalDate periodStart(LocalDate date) {
+            return this == MONTHLY ? date.with(TemporalAdjusters.firstDayOfMonth()) : date;
+        }
+
+        LocalDate next(LocalDate periodStart) {
+            return periodStart.plus(1, unit);
+        }
+
+        String partitionName(LocalDate periodStart) {
+            return PARTITION_PREFIX + suffix.format(periodStart);
+        }
+
+        LocalDate parseStart(String partitionName) {
+            if (!partitionName.startsWith(PARTITION_PREFIX)) {
+                return null;
+            }
+            String value = partitionName.substring(PARTITION_PREFIX.length());
+            try {
+                return this == MONTHLY
+                        ? YearMonth.parse(value, suffix).atDay(1)
+                        : LocalDate.parse(value, suffix);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+
+    @ConfigProperty(name = "app.audit-partitions.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.audit-partitions.granularity", defaultValue = "daily")
+    Granularity granularity;
+
+    @ConfigProperty(name = "app.audit-partitions.premake", defaultValue = "3")
+    int premake;
+
+    @ConfigProperty(name = "app.audit-partitions.retention", defaultValue = "90d")
+    Duration retention;
+
+    @ConfigProperty(name = "app.audit-partitions.check-interval", defaultValue = "1h")
+    Duration checkInterval;
+
+    private ScheduledExecutorService scheduler;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                maintain(LocalDate.now());
+            } catch (Exception e) {
+                log.error("Audit log partition maintenance failed", e);
+            }
+        }, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Each change runs in its own transaction, so a partition that cannot be created or detached is
+    // retried on the next run without undoing the others
+    public void maintain(LocalDate today) {
+        if (!isPartitioned()) {
+            log.debug("{} is not partitioned, skipping partition maintenance", PARENT_TABLE);
+            return;
+        }
+
+        List<String> existing = listPartitions();
+        String defaultPartition = defaultPartition();
+        for (LocalDate start : partitionsToCreate(granularity, today, premake, existing)) {
+            try {
+                createPartition(start, defaultPartition);
+            } catch (Exception e) {
+                log.error("Could not create audit log partition {}", granularity.partitionName(start), e);
+            }
+        }
+
+        List<String> expired = partitionsToDetach(granularity, retentionCutoff(today), existing);
+        List<String> detached = new ArrayList<>();
+        for (String name : expired) {
+            try {
+                detachPartition(name);
+                detached.add(name);
+            } catch (Exception e) {
+                log.error("Could not detach audit log partition {}", name, e);
+            }
+        }
+
+        // Keys are only needed while their rows are still attached, including rows in the default partition
+        LocalDate oldestAttached = existing.stream()
+                .filter(name -> !detached.contains(name))
+                .map(granularity::parseStart)
+                .filter(start -> start != null)
+                .min(LocalDate::compareTo)
+                .orElse(null);
+        if (oldestAttached != null) {
+            pruneKeys(oldestAttached, defaultPartition);
+        }
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    boolean isPartitioned() {
+        Number partitioned = (Number) Panache.getEntityManager().createNativeQuery(IS_PARTITIONED)
+                .setParameter("parent", PARENT_TABLE)
+                .getSingleResult();
+        return partitioned.intValue() > 0;
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    @SuppressWarnings("unchecked")
+    List<String> listPartitions() {
+        return Panache.getEntityManager().createNativeQuery(LIST_PARTITIONS)
+                .setParameter("parent", PARENT_TABLE)
+                .getResultList();
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    @SuppressWarnings("unchecked")
+    String defaultPartition() {
+        List<String> names = Panache.getEntityManager().createNativeQuery(DEFAULT_PARTITION)
+                .setParameter("parent", PARENT_TABLE)
+                .getResultList();
+        return names.isEmpty() ? null : names.get(0);
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    void createPartition(LocalDate start, String defaultPartition) {
+        createPartition(Panache.getEntityManager(), granularity, start, defaultPartition);
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    void detachPartition(String name) {
+        // Detached tables keep their rows for archiving; only the live table stops scanning them
+        Panache.getEntityManager().createNativeQuery("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + name)
+                .executeUpdate();
+        log.info("Detached audit log partition {}", name);
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    void pruneKeys(LocalDate oldestAttached, String defaultPartition) {
+        EntityManager entityManager = Panache.getEntityManager();
+        LocalDateTime before = oldestAttached.atStartOfDay();
+        if (defaultPartition != null) {
+            Object value = entityManager.createNativeQuery("SELECT min(processed_at) FROM " + defaultPartition)
+                    .getSingleResult();
+            LocalDateTime oldestDefault = value instanceof Timestamp timestamp
+                    ? timestamp.toLocalDateTime()
+                    : (LocalDateTime) value;
+            if (oldestDefault != null && oldestDefault.isBefore(before)) {
+                before = oldestDefault;
+            }
+        }
+        int forgotten = entityManager.createNativeQuery("DELETE FROM order_audit_keys WHERE processed_at < :before")
+                .setParameter("before", before)
+                .executeUpdate();
+        if (forgotten > 0) {
+            log.info("Removed {} order keys older than {}", forgotten, before);
+        }
+    }
+
+    // Postgres refuses to add a partition while the default partition holds rows in its range, which
+    // happens whenever a period starts before its partition exists. The partition is therefore built
+    // as a plain table, the default partition's rows for the range are moved into it, and it is then
+    // attached. Writes to the default partition wait on its lock until the transaction commits.
+    static void createPartition(EntityManager entityManager, Granularity granularity, LocalDate start,
+                                String defaultPartition) {
+        String name = granularity.partitionName(start);
+        LocalDate end = granularity.next(start);
+        if (defaultPartition == null) {
+            entityManager.createNativeQuery("CREATE TABLE IF NOT EXISTS " + name
+                    + " PARTITION OF " + PARENT_TABLE
+                    + " FOR VALUES FROM ('" + start + "') TO ('" + end + "')")
+                    .executeUpdate();
+            log.info("Created audit log partition {}", name);
+            return;
+        }
+
+        entityManager.createNativeQuery("LOCK TABLE " + defaultPartition + " IN EXCLUSIVE MODE").executeUpdate();
+        entityManager.createNativeQuery("CREATE TABLE IF NOT EXISTS " + name
+                + " (LIKE " + PARENT_TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)")
+                .executeUpdate();
+        int moved = entityManager.createNativeQuery("WITH moved AS (DELETE FROM " + defaultPartition
+                + " WHERE processed_at >= :start AND processed_at < :end RETURNING *)"
+                + " INSERT INTO " + name + " SELECT * FROM moved")
+                .setParameter("start", start.atStartOfDay())
+                .setParameter("end", end.atStartOfDay())
+                .executeUpdate();
+        entityManager.createNativeQuery("ALTER TABLE " + PARENT_TABLE + " ATTACH PARTITION " + name
+                + " FOR VALUES FROM ('" + start + "') TO ('" + end + "')")
+                .executeUpdate();
+        if (moved > 0) {
+            log.info("Created audit log partition {} with {} rows moved from {}", name, moved, defaultPartition);
+        } else {
+            log.info("Created audit log partition {}", name);
+        }
+    }
+
+    LocalDate retentionCutoff(LocalDate today) {
+        return today.minusDays(retention.toDays());
+    }
+
+    static List<LocalDate> partitionsToCreate(Granularity granularity, LocalDate today, int premake,
+                                              Collection<String> existing) {
+        List<LocalDate> missing = new ArrayList<>();
+        LocalDate start = granularity.periodStart(today);
+        for (int i = 0; i <= premake; i++) {
+            if (!existing.contains(granularity.partitionName(start))) {
+                missing.add(start);
+            }
+            start = granularity.next(start);
+        }
+        return missing;
+    }
+
+    // A partition is detached only once its whole range lies before the cutoff
+    static List<String> partitionsToDetach(Granularity granularity, LocalDate cutoff, Collection<String> existing) {
+        List<String> expired = new ArrayList<>();
+        for (String name : existing) {
+            LocalDate start = granularity.parseStart(name);
+            if (start != null && !granularity.next(start).isAfter(cutoff)) {
+                expired.add(name);
+            }
+        }
+        expired.sort(null);
+        return expired;
+    }
+}
@@ -0,0 +1,212 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.processor.model.ProcessedOrder;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+@Slf4j
+@ApplicationScoped
+public class AuditWriteBehind {
+
+    // How often an idle writer wakes up to notice shutdown
+    private static final long IDLE_POLL_MS = 50;
+
+    @Inject
+    OrderPersistenceService persistenceService;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "app.processing.write-behind.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.processing.write-behind.capacity", defaultValue = "10000")
+    int capacity;
+
+    @ConfigProperty(name = "app.processing.write-behind.flush-size", defaultValue = "500")
+    int flushSize;
+
+    @ConfigProperty(name = "app.processing.write-behind.flush-interval", defaultValue = "200ms")
+    Duration flushInterval;
+
+    private BlockingQueue<Pending> buffer;
+    private Thread writer;
+    private volatile boolean running;
+    private Timer flushTimer;
+    private DistributionSummary flushSizes;
+
+    public AuditWriteBehind() {
+    }
+
+    AuditWriteBehind(OrderPersistenceService persistenceService, MeterRegistry registry,
+                     int capacity, int flushSize, Duration flushInterval) {
+        this.persistenceService = persistenceService;
+        this.registry = registry;
+        this.enabled = true;
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+        this.flushInterval = flushInterval;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+
+        buffer = new ArrayBlockingQueue<>(capacity);
+        Gauge.builder("orders.write_behind.depth", buffer, BlockingQueue::size)
+                .description("Orders waiting in the write-behind buffer")
+                .register(registry);
+        flushTimer = Timer.builder("orders.write_behind.flush")
+                .description("Time to durably write one flush of buffered orders")
+                .register(registry);
+        flushSizes = DistributionSummary.builder("orders.write_behind.flush.size")
+                .description("Orders written per flush")
+                .register(registry);
+
+        running = true;
+        writer = new Thread(this::drain, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Write-behind audit buffer started (capacity {}, flush at {} orders or {})",
+                capacity, flushSize, flushInterval);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Blocks while the buffer is full, which holds back the consumer until the writer catches up.
+    // The returned future completes once every order has been committed to the database.
+    public CompletableFuture<Void> enqueue(List<ProcessedOrder> processedOrders) {
+        Ticket ticket = new Ticket(processedOrders.size());
+        if (processedOrders.isEmpty()) {
+            ticket.completion.complete(null);
+            return ticket.completion;
+        }
+
+        try {
+            for (ProcessedOrder processed : processedOrders) {
+                buffer.put(new Pending(processed, ticket));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ticket.completion.completeExceptionally(e);
+        }
+        return ticket.completion;
+    }
+
+    public int depth() {
+        return buffer == null ? 0 : buffer.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(Math.max(flushInterval.multipliedBy(10).toMillis(), 1000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<Pending> chunk = new ArrayList<>(flushSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                Pending first = buffer.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                chunk.add(first);
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (chunk.size() < flushSize) {
+                    buffer.drainTo(chunk, flushSize - chunk.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (chunk.size() >= flushSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    chunk.add(next);
+                }
+
+                flush(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                chunk.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> chunk) {
+        List<ProcessedOrder> orders = new ArrayList<>(chunk.size());
+        for (Pending pending : chunk) {
+            orders.add(pending.order);
+        }
+
+        long start = System.nanoTime();
+        try {
+            persistenceService.saveProcessedOrders(orders);
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            flushSizes.record(orders.size());
+            chunk.forEach(pending -> pending.ticket.flushed());
+
+        } catch (Exception e) {
+            // The caller owns retries and dead-lettering, so every batch touched by this flush is failed back
+            log.warn("Write-behind flush of {} orders failed", orders.size(), e);
+            Set<Ticket> tickets = new LinkedHashSet<>();
+            chunk.forEach(pending -> tickets.add(pending.ticket));
+            tickets.forEach(ticket -> ticket.completion.completeExceptionally(e));
+        }
+    }
+
+    private record Pending(ProcessedOrder order, Ticket ticket) {
+    }
+
+    private static final class Ticket {
+
+        private final AtomicInteger remaining;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        private Ticket(int orders) {
+            this.remaining = new AtomicInteger(orders);
+        }
+
+        private void flushed() {
+            if (remaining.decrementAndGet() == 0) {
+                completion.complete(null);
+            }
+        }
+    }
+}
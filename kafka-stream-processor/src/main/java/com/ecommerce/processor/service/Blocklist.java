@@ -0,0 +1,175 @@
+package com.ecommerce.processor.service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+
+// A memory-mapped blocklist: a Bloom filter answers most lookups, and a probable hit is confirmed
+// by binary search over the sorted 64-bit fingerprints of every entry that follow it in the file.
+// Neither part is on the heap, so a list of tens of millions of entries costs page cache, not heap.
+//
+// Layout: magic, hash count (int), filter bits (long), entries (long), filter words, fingerprints.
+public final class Blocklist {
+
+    public enum Result {
+        MISS, FALSE_POSITIVE, HIT
+    }
+
+    static final int MAGIC = 0x424c4631;
+    private static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES * 2;
+    private static final long FILTER_SEED = 0x9e3779b97f4a7c15L;
+    private static final long FINGERPRINT_SEED = 0xc2b2ae3d27d4eb4fL;
+
+    private final Path file;
+    private final ByteBuffer data;
+    private final int hashes;
+    private final long bits;
+    private final long entries;
+    private final int fingerprintsOffset;
+
+    private Blocklist(Path file, ByteBuffer data) {
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException(file + " is not a blocklist file");
+        }
+        this.file = file;
+        this.data = data;
+        this.hashes = data.getInt(4);
+        this.bits = data.getLong(8);
+        this.entries = data.getLong(16);
+        this.fingerprintsOffset = HEADER_BYTES + (int) (bits / 8);
+        if ((long) fingerprintsOffset + entries * Long.BYTES != data.capacity()) {
+            throw new IllegalArgumentException(file + " is truncated");
+        }
+    }
+
+    public static Blocklist open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Blocklist(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Builds a blocklist file from a text file with one value per line, sized for the given false positive
+    // rate. Values go through the same normalizer used for lookups.
+    public static long build(Path source, Path target, UnaryOperator<String> normalizer,
+                             double falsePositiveRate) throws IOException {
+        long[] fingerprints = new long[1024];
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                if (count == fingerprints.length) {
+                    fingerprints = Arrays.copyOf(fingerprints, count * 2);
+                }
+                fingerprints[count++] = hash(normalizer.apply(line), FINGERPRINT_SEED);
+            }
+        }
+        fingerprints = Arrays.stream(fingerprints, 0, count).sorted().distinct().toArray();
+
+        long n = Math.max(fingerprints.length, 1);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bits = Math.max(64, (bits + 63) / 64 * 64);
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        long[] filter = new long[(int) (bits / 64)];
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank() && !line.startsWith("#")) {
+                        long h = hash(normalizer.apply(line), FILTER_SEED);
+                        for (int i = 0; i < hashes; i++) {
+                            long bit = Long.remainderUnsigned(h + i * (h >>> 32 | 1), bits);
+                            filter[(int) (bit >>> 6)] |= 1L << bit;
+                        }
+                    }
+                }
+            }
+            out.writeInt(MAGIC);
+            out.writeInt(hashes);
+            out.writeLong(bits);
+            out.writeLong(fingerprints.length);
+            for (long word : filter) {
+                out.writeLong(word);
+            }
+            for (long fingerprint : fingerprints) {
+                out.writeLong(fingerprint);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return fingerprints.length;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public long entries() {
+        return entries;
+    }
+
+    public long sizeBytes() {
+        return data.capacity();
+    }
+
+    public Result check(String normalized) {
+        if (entries == 0) {
+            return Result.MISS;
+        }
+        long h = hash(normalized, FILTER_SEED);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h + i * (h >>> 32 | 1), bits);
+            if ((data.getLong(HEADER_BYTES + (int) (bit >>> 6) * Long.BYTES) & (1L << bit)) == 0) {
+                return Result.MISS;
+            }
+        }
+        return containsFingerprint(hash(normalized, FINGERPRINT_SEED)) ? Result.HIT : Result.FALSE_POSITIVE;
+    }
+
+    private boolean containsFingerprint(long fingerprint) {
+        long low = 0;
+        long high = entries - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            long value = data.getLong(fingerprintsOffset + (int) (mid * Long.BYTES));
+            if (value < fingerprint) {
+                low = mid + 1;
+            } else if (value > fingerprint) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // FNV-1a over the UTF-16 chars, seeded and finished with the murmur3 mixer
+    static long hash(String value, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
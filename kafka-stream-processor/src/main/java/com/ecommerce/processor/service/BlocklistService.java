@@ -0,0 +1,224 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.Address;
+import com.ecommerce.models.Customer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+
+// Blocklists for customer emails, phones and shipping addresses. Each list is <name>.blf in the
+// blocklist directory; dropping a newer <name>.txt next to it rebuilds the filter on the next check.
+// All lists are swapped in together behind one volatile reference.
+@Slf4j
+@ApplicationScoped
+public class BlocklistService {
+
+    public enum Kind {
+        EMAIL("emails", "BLOCKLISTED_EMAIL", BlocklistService::normalizeEmail),
+        PHONE("phones", "BLOCKLISTED_PHONE", BlocklistService::normalizePhone),
+        ADDRESS("addresses", "BLOCKLISTED_ADDRESS", BlocklistService::normalizeAddress);
+
+        final String fileName;
+        final String flag;
+        final UnaryOperator<String> normalizer;
+
+        Kind(String fileName, String flag, UnaryOperator<String> normalizer) {
+            this.fileName = fileName;
+            this.flag = flag;
+            this.normalizer = normalizer;
+        }
+
+        public String flag() {
+            return flag;
+        }
+    }
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "app.fraud-detection.blocklist.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.fraud-detection.blocklist.directory", defaultValue = "data/blocklists")
+    Path directory;
+
+    @ConfigProperty(name = "app.fraud-detection.blocklist.false-positive-rate", defaultValue = "0.01")
+    double falsePositiveRate;
+
+    @ConfigProperty(name = "app.fraud-detection.blocklist.check-interval", defaultValue = "1m")
+    Duration checkInterval;
+
+    private volatile Map<Kind, Blocklist> lists = Map.of();
+    private Map<Kind, FileTime> loadedModified = Map.of();
+    private ScheduledExecutorService scheduler;
+
+    public BlocklistService() {
+    }
+
+    BlocklistService(Path directory, MeterRegistry registry) {
+        this.enabled = true;
+        this.directory = directory;
+        this.registry = registry;
+        this.falsePositiveRate = 0.01;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        reload();
+        for (Kind kind : Kind.values()) {
+            Gauge.builder("fraud.blocklist.entries", this, service -> service.entries(kind))
+                    .description("Entries in a fraud blocklist")
+                    .tag("list", kind.fileName)
+                    .register(registry);
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "blocklist-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (hasChanges()) {
+                    reload();
+                }
+            } catch (Exception e) {
+                log.error("Blocklist reload failed; keeping the current lists", e);
+            }
+        }, checkInterval.toMillis(), checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Rebuilds lists whose text source is newer, then maps and swaps in the whole set at once
+    public synchronized void reload() {
+        Map<Kind, Blocklist> loaded = new EnumMap<>(Kind.class);
+        Map<Kind, FileTime> modified = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            Path filter = directory.resolve(kind.fileName + ".blf");
+            Path source = directory.resolve(kind.fileName + ".txt");
+            try {
+                if (isNewer(source, filter)) {
+                    long entries = Blocklist.build(source, filter, kind.normalizer, falsePositiveRate);
+                    log.info("Built {} with {} entries from {}", filter, entries, source);
+                }
+                if (Files.exists(filter)) {
+                    modified.put(kind, Files.getLastModifiedTime(filter));
+                    loaded.put(kind, Blocklist.open(filter));
+                }
+            } catch (IOException | RuntimeException e) {
+                Blocklist current = lists.get(kind);
+                log.error("Could not load blocklist {}; keeping {}", filter,
+                        current == null ? "none" : current.entries() + " entries", e);
+                if (current != null) {
+                    loaded.put(kind, current);
+                    modified.put(kind, loadedModified.get(kind));
+                }
+            }
+        }
+        lists = loaded;
+        loadedModified = modified;
+        log.info("Blocklists loaded: {}", loaded.entrySet().stream()
+                .map(entry -> entry.getKey().fileName + "=" + entry.getValue().entries())
+                .toList());
+    }
+
+    public Blocklist.Result check(Kind kind, String value) {
+        Blocklist list = lists.get(kind);
+        if (list == null || value == null) {
+            return Blocklist.Result.MISS;
+        }
+        String normalized = kind.normalizer.apply(value);
+        if (normalized.isEmpty()) {
+            return Blocklist.Result.MISS;
+        }
+        Blocklist.Result result = list.check(normalized);
+        if (result != Blocklist.Result.MISS) {
+            registry.counter("fraud.blocklist.probable_hits", "list", kind.fileName,
+                    "result", result.name().toLowerCase(Locale.ROOT)).increment();
+        }
+        return result;
+    }
+
+    public boolean isBlocked(Customer customer, Address address, Kind kind) {
+        return switch (kind) {
+            case EMAIL -> customer != null && check(kind, customer.getEmail()) == Blocklist.Result.HIT;
+            case PHONE -> customer != null && check(kind, customer.getPhone()) == Blocklist.Result.HIT;
+            case ADDRESS -> address != null
+                    && check(kind, address.getPostalCode() + "|" + address.getStreet()) == Blocklist.Result.HIT;
+        };
+    }
+
+    public long entries(Kind kind) {
+        Blocklist list = lists.get(kind);
+        return list == null ? 0 : list.entries();
+    }
+
+    private synchronized boolean hasChanges() throws IOException {
+        for (Kind kind : Kind.values()) {
+            Path filter = directory.resolve(kind.fileName + ".blf");
+            FileTime modified = Files.exists(filter) ? Files.getLastModifiedTime(filter) : null;
+            if (isNewer(directory.resolve(kind.fileName + ".txt"), filter)
+                    || !Objects.equals(modified, loadedModified.get(kind))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNewer(Path source, Path target) throws IOException {
+        return Files.exists(source)
+                && (!Files.exists(target) || Files.getLastModifiedTime(source).compareTo(Files.getLastModifiedTime(target)) > 0);
+    }
+
+    static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Digits only, with a leading trunk 0 rewritten to the Indonesian country code
+    static String normalizePhone(String phone) {
+        String digits = phone.replaceAll("\\D", "");
+        return digits.startsWith("0") ? "62" + digits.substring(1) : digits;
+    }
+
+    // Same key as the shipping address velocity counters: postal code and street
+    static String normalizeAddress(String address) {
+        return address.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,137 @@
+package com.ecommerce.processor.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+
+// Per-customer order history from customer_order_stats, one primary key read per customer and
+// then served from memory. The audit writer invalidates the customers of every committed batch,
+// so a cached entry is never behind the database by more than the batch in flight.
+@Slf4j
+@ApplicationScoped
+public class CustomerHistoryService {
+
+    private static final String SELECT_STATS = """
+            SELECT order_count, lifetime_spend, suspicious_count, first_order_at, last_order_at
+            FROM customer_order_stats WHERE customer_id = ?
+            """;
+
+    public record History(long orderCount, BigDecimal lifetimeSpend, long suspiciousCount,
+                          LocalDateTime firstOrderAt, LocalDateTime lastOrderAt) {
+    }
+
+    @FunctionalInterface
+    interface Loader {
+        Optional<History> load(String customerId) throws Exception;
+    }
+
+    @Inject
+    DataSource dataSource;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "app.enrichment.customer-history.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.enrichment.customer-history.max-size", defaultValue = "100000")
+    long maxSize;
+
+    // Only bounds staleness from writers other than this instance
+    @ConfigProperty(name = "app.enrichment.customer-history.ttl", defaultValue = "10m")
+    Duration ttl;
+
+    private Loader loader;
+    private LoadingCache<String, Optional<History>> cache;
+
+    public CustomerHistoryService() {
+    }
+
+    CustomerHistoryService(Loader loader, MeterRegistry registry, long maxSize, Duration ttl) {
+        this.loader = loader;
+        this.registry = registry;
+        this.enabled = true;
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        if (loader == null) {
+            loader = this::select;
+        }
+
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(customerId -> loader.load(customerId));
+        CaffeineCacheMetrics.monitor(registry, cache, "customer-history");
+        log.info("Customer history cache: up to {} customers, {} TTL", maxSize, ttl);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Empty for a customer with no persisted orders, or when the lookup fails
+    public Optional<History> get(String customerId) {
+        try {
+            return cache.get(customerId);
+        } catch (RuntimeException e) {
+            log.warn("Customer history lookup for {} failed", customerId, e);
+            return Optional.empty();
+        }
+    }
+
+    public void invalidate(Collection<String> customerIds) {
+        if (cache != null) {
+            cache.invalidateAll(customerIds);
+        }
+    }
+
+    private Optional<History> select(String customerId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_STATS)) {
+            statement.setString(1, customerId);
+            try (ResultSet row = statement.executeQuery()) {
+                if (!row.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new History(
+                        row.getLong("order_count"),
+                        row.getBigDecimal("lifetime_spend"),
+                        row.getLong("suspicious_count"),
+                        toLocalDateTime(row.getTimestamp("first_order_at")),
+                        toLocalDateTime(row.getTimestamp("last_order_at"))));
+            }
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
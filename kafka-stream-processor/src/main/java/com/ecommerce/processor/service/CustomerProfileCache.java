@@ -0,0 +1,177 @@
+package com.ecommerce.processor.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+// Customer profiles from customer_profiles, cached by customer id. Caffeine bounds the cache by size
+// with W-TinyLFU admission, expires entries after the TTL and refreshes them in the background
+// once they are older than the refresh interval, so a hot customer never waits on the database.
+// Concurrent misses for one customer share a single load. A customer with no row is cached as empty.
+@Slf4j
+@ApplicationScoped
+public class CustomerProfileCache {
+
+    private static final String SELECT_PROFILE = """
+            SELECT is_verified, total_orders FROM customer_profiles WHERE customer_id = ?
+            """;
+
+    public record Profile(boolean verified, int totalOrders) {
+    }
+
+    @FunctionalInterface
+    interface Loader {
+        Optional<Profile> load(String customerId) throws Exception;
+    }
+
+    @Inject
+    DataSource dataSource;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "app.enrichment.customer-profiles.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.enrichment.customer-profiles.max-size", defaultValue = "100000")
+    long maxSize;
+
+    @ConfigProperty(name = "app.enrichment.customer-profiles.ttl", defaultValue = "10m")
+    Duration ttl;
+
+    @ConfigProperty(name = "app.enrichment.customer-profiles.refresh-after", defaultValue = "1m")
+    Duration refreshAfter;
+
+    @ConfigProperty(name = "app.enrichment.customer-profiles.load-timeout", defaultValue = "2s")
+    Duration loadTimeout;
+
+    @ConfigProperty(name = "app.enrichment.customer-profiles.loader-threads", defaultValue = "4")
+    int loaderThreads;
+
+    private Loader loader;
+    private ExecutorService executor;
+    private AsyncLoadingCache<String, Optional<Profile>> cache;
+    private Timer loadTimer;
+
+    public CustomerProfileCache() {
+    }
+
+    CustomerProfileCache(Loader loader, MeterRegistry registry, long maxSize, Duration ttl,
+                         Duration refreshAfter, Duration loadTimeout) {
+        this.loader = loader;
+        this.registry = registry;
+        this.enabled = true;
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.refreshAfter = refreshAfter;
+        this.loadTimeout = loadTimeout;
+        this.loaderThreads = 2;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        if (loader == null) {
+            loader = this::select;
+        }
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(loaderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "customer-profile-loader-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        loadTimer = Timer.builder("customer.profiles.load")
+                .description("Time to load one customer profile from the database")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .refreshAfterWrite(refreshAfter)
+                .executor(executor)
+                .recordStats()
+                .buildAsync(this::timedLoad);
+
+        CaffeineCacheMetrics.monitor(registry, cache, "customer-profiles");
+        Gauge.builder("customer.profiles.hit.ratio", cache, c -> c.synchronous().stats().hitRate())
+                .description("Share of customer profile lookups served from the cache")
+                .register(registry);
+        log.info("Customer profile cache: up to {} profiles, {} TTL, refreshed after {}", maxSize, ttl, refreshAfter);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Empty when the customer has no profile or the load fails or times out; the caller keeps the payload values
+    public Optional<Profile> get(String customerId) {
+        try {
+            return cache.get(customerId).get(loadTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Customer profile lookup for {} timed out after {}", customerId, loadTimeout);
+        } catch (ExecutionException e) {
+            log.warn("Customer profile lookup for {} failed", customerId, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Profile> timedLoad(String customerId) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return loader.load(customerId);
+        } finally {
+            loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Optional<Profile> select(String customerId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_PROFILE)) {
+            statement.setString(1, customerId);
+            try (ResultSet row = statement.executeQuery()) {
+                if (!row.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Profile(row.getBoolean("is_verified"), row.getInt("total_orders")));
+            }
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.FraudCheckResult;
+import com.ecommerce.models.WireFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.reactive.messaging.kafka.api.OutgoingKafkaRecordMetadata;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static io.smallrye.reactive.messaging.kafka.fault.KafkaDeadLetterQueue.*;
+
+
+// Takes fraud alerts off the order path. Alerts wait in a buffer keyed by order id, so a repeat
+// alert for an order that has not been written yet replaces the pending one. A writer thread
+// upserts them into fraud_alerts in batches, then publishes the batch to the fraud-alerts topic
+// and waits for the broker before taking the next one. Each submit returns a stage that completes
+// once its alert is written, so the caller can hold back its offsets until then.
+//
+// A batch that fails because the database or broker is unavailable goes back into the buffer and
+// is retried for as long as the outage lasts. Other failures count against each alert; alerts that
+// have failed max-attempts times are split off and retried in halves until the ones that fail on
+// their own are found. Those go to fraud-alerts-dlq so they cannot hold back the rest.
+//
+// Not used with exactly-once processing, where alerts stay in the order transaction.
+@Slf4j
+@ApplicationScoped
+public class FraudAlertDispatcher {
+
+    public enum Overflow {
+        // Hold back the caller, and with it the consumer, until the writer catches up
+        BLOCK,
+        // Write the new alert on the caller's thread, as if there were no dispatcher
+        INLINE
+    }
+
+    // How often an idle writer wakes up to notice shutdown
+    private static final long IDLE_POLL_MS = 50;
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+
+    @Inject
+    OrderPersistenceService persistenceService;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    @Channel("fraud-alerts-batched")
+    Emitter<byte[]> alertsEmitter;
+
+    @Inject
+    @Channel("fraud-alerts-dlq")
+    Emitter<byte[]> deadLetterEmitter;
+
+    @ConfigProperty(name = "app.processing.fraud-alerts.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.processing.exactly-once", defaultValue = "false")
+    boolean exactlyOnce;
+
+    @ConfigProperty(name = "app.processing.fraud-alerts.capacity", defaultValue = "10000")
+    int capacity;
+
+    @ConfigProperty(name = "app.processing.fraud-alerts.flush-size", defaultValue = "200")
+    int flushSize;
+
+    @ConfigProperty(name = "app.processing.fraud-alerts.flush-interval", defaultValue = "500ms")
+    Duration flushInterval;
+
+    @ConfigProperty(name = "app.processing.fraud-alerts.overflow", defaultValue = "block")
+    Overflow overflow;
+
+    @ConfigProperty(name = "app.processing.fraud-alerts.max-attempts", defaultValue = "5")
+    int maxAttempts;
+
+    @ConfigProperty(name = "app.processing.retry-backoff-ms", defaultValue = "200")
+    long retryBackoffMs;
+
+    @ConfigProperty(name = "app.messaging.wire-format", defaultValue = "json")
+    WireFormat wireFormat;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    // Non-transient failed flushes per order id; only touched by the writer thread
+    private final Map<String, Integer> attempts = new HashMap<>();
+
+    private Thread writer;
+    private volatile boolean running;
+    private Counter coalesced;
+    private Counter inline;
+    private Counter failed;
+    private Counter deadLettered;
+    private Timer flushTimer;
+    private DistributionSummary flushSizes;
+
+    public FraudAlertDispatcher() {
+    }
+
+    FraudAlertDispatcher(OrderPersistenceService persistenceService, Emitter<byte[]> alertsEmitter,
+                         Emitter<byte[]> deadLetterEmitter, MeterRegistry registry, int capacity,
+                         int flushSize, Duration flushInterval, Overflow overflow) {
+        this();
+        this.persistenceService = persistenceService;
+        this.alertsEmitter = alertsEmitter;
+        this.deadLetterEmitter = deadLetterEmitter;
+        this.registry = registry;
+        this.enabled = true;
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+        this.flushInterval = flushInterval;
+        this.overflow = overflow;
+        this.maxAttempts = 3;
+        this.retryBackoffMs = 10;
+        this.wireFormat = WireFormat.JSON;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        Gauge.builder("fraud.alerts.depth", this, FraudAlertDispatcher::depth)
+                .description("Fraud alerts waiting to be written")
+                .register(registry);
+        coalesced = Counter.builder("fraud.alerts.coalesced")
+                .description("Fraud alerts that replaced a pending alert for the same order")
+                .register(registry);
+        inline = Counter.builder("fraud.alerts.inline")
+                .description("Fraud alerts written on the caller's thread because the buffer was full")
+                .register(registry);
+        failed = Counter.builder("fraud.alerts.failed")
+                .description("Fraud alert batches that failed to be written or published")
+                .register(registry);
+        deadLettered = Counter.builder("fraud.alerts.dead.lettered")
+                .description("Fraud alerts sent to fraud-alerts-dlq after failing max-attempts times on their own")
+                .register(registry);
+        flushTimer = Timer.builder("fraud.alerts.flush")
+                .description("Time to write and publish one batch of fraud alerts")
+                .register(registry);
+        flushSizes = DistributionSummary.builder("fraud.alerts.flush.size")
+                .description("Fraud alerts written per batch")
+                .register(registry);
+
+        running = true;
+        writer = new Thread(this::drain, "fraud-alert-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Fraud alert dispatcher started (capacity {}, flush at {} alerts or {}, {} when full)",
+                capacity, flushSize, flushInterval, overflow);
+    }
+
+    public boolean isEnabled() {
+        return enabled && !exactlyOnce;
+    }
+
+    // Completes once the alert is in fraud_alerts and on the topic, or in fraud-alerts-dlq
+    public CompletionStage<Void> submit(FraudCheckResult alert) {
+        Pending entry = new Pending(alert);
+        lock.lock();
+        try {
+            Pending waiting = pending.get(alert.getOrderId());
+            if (waiting != null) {
+                waiting.alert = alert;
+                coalesced.increment();
+                return waiting.written;
+            }
+            while (pending.size() >= capacity && overflow == Overflow.BLOCK) {
+                notFull.await();
+            }
+            if (pending.size() < capacity) {
+                pending.put(alert.getOrderId(), entry);
+                notEmpty.signal();
+                return entry.written;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            lock.unlock();
+        }
+
+        // Full under INLINE; if the write fails the alert joins the buffer anyway and the writer retries it
+        inline.increment();
+        if (flush(List.of(entry)) == null) {
+            entry.written.complete(null);
+        } else {
+            requeue(List.of(entry));
+        }
+        return entry.written;
+    }
+
+    public int depth() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(Math.max(flushInterval.multipliedBy(10).toMillis(), 1000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        int failures = 0;
+        while (running || depth() > 0) {
+            try {
+                List<Pending> chunk = take();
+                if (chunk.isEmpty()) {
+                    continue;
+                }
+                Exception failure = flush(chunk);
+                if (failure == null) {
+                    written(chunk);
+                    failures = 0;
+                    continue;
+                }
+
+                if (TransientFailures.isTransient(failure)) {
+                    // An outage is not the alerts' fault, so it does not use up their attempts
+                    requeue(chunk);
+                } else {
+                    List<Pending> retry = new ArrayList<>(chunk.size());
+                    List<Pending> exhausted = new ArrayList<>();
+                    for (Pending entry : chunk) {
+                        (attempts.merge(entry.alert.getOrderId(), 1, Integer::sum) >= maxAttempts ? exhausted : retry).add(entry);
+                    }
+                    requeue(retry);
+                    if (!exhausted.isEmpty()) {
+                        isolate(exhausted);
+                    }
+                }
+                Thread.sleep(Math.min(retryBackoffMs << Math.min(failures++, 10), MAX_RETRY_BACKOFF_MS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Waits for a first alert, then up to the flush interval for a full batch
+    private List<Pending> take() throws InterruptedException {
+        lock.lock();
+        try {
+            if (pending.isEmpty() && !notEmpty.await(IDLE_POLL_MS, TimeUnit.MILLISECONDS)) {
+                return List.of();
+            }
+            long remaining = flushInterval.toNanos();
+            while (pending.size() < flushSize && remaining > 0 && running) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+
+            List<Pending> chunk = new ArrayList<>(Math.min(pending.size(), flushSize));
+            Iterator<Pending> entries = pending.values().iterator();
+            while (entries.hasNext() && chunk.size() < flushSize) {
+                chunk.add(entries.next());
+                entries.remove();
+            }
+            notFull.signalAll();
+            return chunk;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Halves a failing batch until each alert either goes through with others or fails on its own
+    private void isolate(List<Pending> entries) {
+        Exception failure = flush(entries);
+        if (failure == null) {
+            written(entries);
+            return;
+        }
+        if (TransientFailures.isTransient(failure)) {
+            requeue(entries);
+            return;
+        }
+        if (entries.size() > 1) {
+            int half = entries.size() / 2;
+            isolate(entries.subList(0, half));
+            isolate(entries.subList(half, entries.size()));
+            return;
+        }
+        deadLetter(entries.get(0), failure);
+    }
+
+    private void deadLetter(Pending entry, Exception reason) {
+        FraudCheckResult alert = entry.alert;
+        try {
+            Headers headers = new RecordHeaders()
+                    .add(WireFormat.HEADER, utf8(wireFormat.contentType()))
+                    .add(DEAD_LETTER_EXCEPTION_CLASS_NAME, utf8(reason.getClass().getName()))
+                    .add(DEAD_LETTER_REASON, utf8(String.valueOf(reason.getMessage())));
+            if (reason.getCause() != null) {
+                headers.add(DEAD_LETTER_CAUSE_CLASS_NAME, utf8(reason.getCause().getClass().getName()))
+                        .add(DEAD_LETTER_CAUSE, utf8(String.valueOf(reason.getCause().getMessage())));
+            }
+            send(deadLetterEmitter, alert, headers).join();
+        } catch (Exception e) {
+            log.warn("Could not dead-letter fraud alert for order {}, retrying", alert.getOrderId(), e);
+            requeue(List.of(entry));
+            return;
+        }
+        deadLettered.increment();
+        log.error("Fraud alert for order {} failed {} times on its own and was sent to fraud-alerts-dlq; "
+                + "the order stays suspicious in the audit log", alert.getOrderId(), attempts.remove(alert.getOrderId()), reason);
+        entry.written.complete(null);
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void written(List<Pending> entries) {
+        for (Pending entry : entries) {
+            if (!attempts.isEmpty()) {
+                attempts.remove(entry.alert.getOrderId());
+            }
+            entry.written.complete(null);
+        }
+    }
+
+    // A newer alert that arrived while the batch was out wins over the failed one, and completes it too
+    private void requeue(List<Pending> entries) {
+        lock.lock();
+        try {
+            for (Pending entry : entries) {
+                Pending newer = pending.putIfAbsent(entry.alert.getOrderId(), entry);
+                if (newer != null) {
+                    newer.written.whenComplete((ignored, failure) -> entry.written.complete(null));
+                }
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the failure, or null once the whole batch is written and published
+    private Exception flush(List<Pending> entries) {
+        long start = System.nanoTime();
+        List<FraudCheckResult> chunk = new ArrayList<>(entries.size());
+        for (Pending entry : entries) {
+            chunk.add(entry.alert);
+        }
+        try {
+            persistenceService.saveFraudAlerts(chunk);
+            publish(chunk).join();
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            flushSizes.record(chunk.size());
+            return null;
+        } catch (Exception e) {
+            failed.increment();
+            log.warn("Fraud alert batch of {} failed, retrying", chunk.size(), e);
+            return e;
+        }
+    }
+
+    private CompletableFuture<Void> publish(List<FraudCheckResult> chunk) throws JsonProcessingException {
+        byte[] contentType = wireFormat.contentType().getBytes(StandardCharsets.UTF_8);
+        List<CompletableFuture<Void>> sends = new ArrayList<>(chunk.size());
+        for (FraudCheckResult alert : chunk) {
+            sends.add(send(alertsEmitter, alert, new RecordHeaders().add(WireFormat.HEADER, contentType)));
+        }
+        return CompletableFuture.allOf(sends.toArray(new CompletableFuture[0]));
+    }
+
+    private CompletableFuture<Void> send(Emitter<byte[]> emitter, FraudCheckResult alert, Headers headers)
+            throws JsonProcessingException {
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        emitter.send(Message.of(wireFormat.writeFraudResult(alert))
+                .addMetadata(OutgoingKafkaRecordMetadata.<String>builder()
+                        .withKey(alert.getOrderId())
+                        .withHeaders(headers)
+                        .build())
+                .withAck(() -> {
+                    sent.complete(null);
+                    return CompletableFuture.completedFuture(null);
+                })
+                .withNack(failure -> {
+                    sent.completeExceptionally(failure);
+                    return CompletableFuture.completedFuture(null);
+                }));
+        return sent;
+    }
+
+    // The alert is replaced in place when a repeat arrives, so whoever waits on the first one
+    // is released by the write of the latest
+    private static final class Pending {
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+        private FraudCheckResult alert;
+
+        private Pending(FraudCheckResult alert) {
+            this.alert = alert;
+        }
+    }
+}
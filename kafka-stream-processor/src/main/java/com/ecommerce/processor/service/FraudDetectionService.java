@@ -1,16 +1,23 @@
 package com.ecommerce.processor.service;
 
 import com.ecommerce.models.FraudCheckResult;
+import com.ecommerce.models.Money;
 import com.ecommerce.models.Order;
-import com.ecommerce.models.OrderItem;
+import com.ecommerce.processor.service.VelocityStore.Window;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.math.BigDecimal;
-import java.time.LocalTime;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.LongSupplier;
 
 
 @Slf4j
@@ -26,80 +33,201 @@ public class FraudDetectionService {
     @ConfigProperty(name = "app.fraud-detection.suspicious-threshold", defaultValue = "50.0")
     double suspiciousThreshold;
 
+    @ConfigProperty(name = "app.fraud-detection.velocity.customer-orders-per-minute", defaultValue = "3")
+    int customerOrdersPerMinute;
+
+    @ConfigProperty(name = "app.fraud-detection.velocity.customer-orders-per-hour", defaultValue = "10")
+    int customerOrdersPerHour;
+
+    @ConfigProperty(name = "app.fraud-detection.velocity.customer-spend-per-day", defaultValue = "50000000")
+    BigDecimal customerSpendPerDay;
+
+    @ConfigProperty(name = "app.fraud-detection.velocity.address-orders-per-hour", defaultValue = "5")
+    int addressOrdersPerHour;
+
+    @ConfigProperty(name = "app.fraud-detection.velocity.max-event-lag", defaultValue = "5m")
+    Duration maxEventLag;
+
+    // Zone the checkout service writes createdAt in; this JVM's zone when not set
+    @ConfigProperty(name = "app.fraud-detection.velocity.client-zone")
+    Optional<ZoneId> clientZone;
+
+    @ConfigProperty(name = "app.fraud-detection.blocklist.score", defaultValue = "50.0")
+    double blocklistScore;
+
+    @ConfigProperty(name = "app.fraud-detection.linked-accounts.score", defaultValue = "40.0")
+    double linkedAccountsScore;
+
+    @Inject
+    FraudFeatureStore features;
+
+    @Inject
+    LinkedAccountIndex linkedAccounts;
+
+    @Inject
+    BlocklistService blocklists;
+
+    @Inject
+    FraudRuleEngine rules;
+
+    @Inject
+    FraudShadowEvaluator shadow;
+
+    @Inject
+    FraudModelScorer model;
+
+    LongSupplier clock = System::currentTimeMillis;
+
     public FraudCheckResult analyzeOrder(Order order) {
         if (!fraudDetectionEnabled) {
             return createLowRiskResult(order.getOrderId());
         }
 
+        FraudRuleSet ruleSet = ruleSet();
+        double suspiciousAt = ruleSet.suspiciousThreshold(suspiciousThreshold);
         List<String> flags = new ArrayList<>();
-        double fraudScore = 0.0;
+        double fraudScore = ruleSet.evaluate(order, flags);
+        int ruleFlags = flags.size();
+
+        // Scores outside the rule set are shared with shadow candidates as they are
+        double sharedScore = scoreBlocklists(order, flags) + scoreVelocity(order, flags)
+                + scoreLinkedAccounts(order, flags);
+        fraudScore = Math.min(fraudScore + sharedScore, 100.0);
+        FraudCheckResult.RiskLevel riskLevel = FraudCheckResult.calculateRiskLevel(fraudScore);
+        String recommendation = determineRecommendation(fraudScore, ruleSet.highRiskThreshold(highRiskThreshold), suspiciousAt);
 
-        if (order.getGrandTotal().compareTo(new BigDecimal("10000000")) > 0) {
-            fraudScore += 15.0;
-            flags.add("HIGH_VALUE_ORDER");
+        if (shadow != null && shadow.isEnabled()) {
+            shadow.submit(order, List.copyOf(flags.subList(0, ruleFlags)), sharedScore,
+                    fraudScore, fraudScore >= suspiciousAt, suspiciousThreshold);
         }
 
-        if (order.getCustomer().getTotalOrders() == 0 &&
-            order.getGrandTotal().compareTo(new BigDecimal("5000000")) > 0) {
-            fraudScore += 20.0;
-            flags.add("NEW_CUSTOMER_HIGH_VALUE");
+        log.debug("Fraud analysis for order {}: score={}, level={}, flags={}",
+                order.getOrderId(), fraudScore, riskLevel, flags);
+
+        return FraudCheckResult.builder()
+                .orderId(order.getOrderId())
+                .fraudScore(fraudScore)
+                .isSuspicious(fraudScore >= suspiciousAt)
+                .riskLevel(riskLevel)
+                .flags(flags)
+                .recommendation(recommendation)
+                .build();
+    }
+
+    // Adds the model score to results already produced by analyzeOrder, scoring the orders as one batch.
+    // Returns false when no model is configured and the results were left alone.
+    public boolean applyModelScores(List<Order> orders, List<FraudCheckResult> results) {
+        if (!fraudDetectionEnabled || model == null || !model.isEnabled() || orders.isEmpty()) {
+            return false;
+        }
+
+        double[] probabilities = model.score(orders);
+        FraudRuleSet ruleSet = ruleSet();
+        double suspiciousAt = ruleSet.suspiciousThreshold(suspiciousThreshold);
+        double highRiskAt = ruleSet.highRiskThreshold(highRiskThreshold);
+        for (int i = 0; i < results.size(); i++) {
+            FraudCheckResult result = results.get(i);
+            double fraudScore = Math.min(result.getFraudScore() + probabilities[i] * model.weight(), 100.0);
+            if (probabilities[i] >= model.flagThreshold()) {
+                result.getFlags().add("ML_HIGH_RISK");
+            }
+            result.setFraudScore(fraudScore);
+            result.setIsSuspicious(fraudScore >= suspiciousAt);
+            result.setRiskLevel(FraudCheckResult.calculateRiskLevel(fraudScore));
+            result.setRecommendation(determineRecommendation(fraudScore, highRiskAt, suspiciousAt));
         }
+        return true;
+    }
+
+    private FraudRuleSet ruleSet() {
+        return rules == null ? FraudRuleSet.defaults() : rules.active();
+    }
 
-        if (Boolean.FALSE.equals(order.getCustomer().getIsVerified())) {
-            fraudScore += 10.0;
-            flags.add("UNVERIFIED_CUSTOMER");
+    private double scoreBlocklists(Order order, List<String> flags) {
+        if (blocklists == null) {
+            return 0.0;
         }
 
-        for (OrderItem item : order.getItems()) {
-            if (item.getQuantity() > 10) {
-                fraudScore += 15.0;
-                flags.add("BULK_ORDER");
-                break;
+        double score = 0.0;
+        for (BlocklistService.Kind kind : BlocklistService.Kind.values()) {
+            if (blocklists.isBlocked(order.getCustomer(), order.getShippingAddress(), kind)) {
+                score += blocklistScore;
+                flags.add(kind.flag());
             }
         }
+        return score;
+    }
 
-        LocalTime orderTime = order.getCreatedAt().toLocalTime();
-        if (orderTime.isAfter(LocalTime.MIDNIGHT) && orderTime.isBefore(LocalTime.of(5, 0))) {
-            fraudScore += 10.0;
-            flags.add("LATE_NIGHT_ORDER");
+    private double scoreVelocity(Order order, List<String> flags) {
+        if (features == null || !features.isEnabled()) {
+            return 0.0;
         }
 
-        if (order.getPayment().getMethod().name().equals("COD") &&
-            order.getGrandTotal().compareTo(new BigDecimal("3000000")) > 0) {
-            fraudScore += 25.0;
-            flags.add("HIGH_VALUE_COD");
+        double score = 0.0;
+        long timestamp = velocityTime(order);
+        Money grandTotal = order.grandTotalMoney();
+
+        VelocityStore.Snapshot customer = features.recordCustomer(
+                order.getCustomer().getCustomerId(), order.getOrderId(), timestamp, grandTotal);
+        if (customer.orders(Window.ONE_MINUTE) > customerOrdersPerMinute) {
+            score += 20.0;
+            flags.add("CUSTOMER_ORDER_BURST");
+        } else if (customer.orders(Window.ONE_HOUR) > customerOrdersPerHour) {
+            score += 15.0;
+            flags.add("CUSTOMER_HIGH_VELOCITY");
+        }
+        // Flooring the limit keeps "more than" exact for a limit with a fraction of a sen
+        Money spendLimit = Money.of(customerSpendPerDay, Money.DEFAULT_CURRENCY, RoundingMode.FLOOR);
+        if (customer.spendMoney(Window.ONE_DAY).compareTo(spendLimit) > 0) {
+            score += 15.0;
+            flags.add("CUSTOMER_DAILY_SPEND");
         }
 
-        long electronicsCount = order.getItems().stream()
-                .filter(item -> item.getCategory() != null &&
-                        item.getCategory().equalsIgnoreCase("ELECTRONICS"))
-                .count();
-        if (electronicsCount >= 3) {
-            fraudScore += 15.0;
-            flags.add("MULTIPLE_ELECTRONICS");
+        if (order.getShippingAddress() != null) {
+            VelocityStore.Snapshot address = features.recordAddress(
+                    addressKey(order), order.getOrderId(), timestamp, grandTotal);
+            if (address.orders(Window.ONE_HOUR) > addressOrdersPerHour) {
+                score += 15.0;
+                flags.add("SHIPPING_ADDRESS_VELOCITY");
+            }
         }
+        return score;
+    }
 
-        fraudScore = Math.min(fraudScore, 100.0);
-        FraudCheckResult.RiskLevel riskLevel = FraudCheckResult.calculateRiskLevel(fraudScore);
-        String recommendation = determineRecommendation(fraudScore);
+    // createdAt comes from the client, so it is held within max-event-lag of processing time: a
+    // backdated order cannot step outside the windows and a future one cannot hold a key's slot.
+    // Orders that waited in the topic less than the lag keep their own time.
+    long velocityTime(Order order) {
+        long now = clock.getAsLong();
+        if (order.getCreatedAt() == null) {
+            return now;
+        }
+        long createdAt = order.getCreatedAt().atZone(clientZone.orElseGet(ZoneId::systemDefault))
+                .toInstant().toEpochMilli();
+        return Math.min(Math.max(createdAt, now - maxEventLag.toMillis()), now);
+    }
 
-        log.debug("Fraud analysis for order {}: score={}, level={}, flags={}",
-                order.getOrderId(), fraudScore, riskLevel, flags);
+    private double scoreLinkedAccounts(Order order, List<String> flags) {
+        if (linkedAccounts == null || !linkedAccounts.isEnabled()) {
+            return 0.0;
+        }
 
-        return FraudCheckResult.builder()
-                .orderId(order.getOrderId())
-                .fraudScore(fraudScore)
-                .isSuspicious(fraudScore >= suspiciousThreshold)
-                .riskLevel(riskLevel)
-                .flags(flags)
-                .recommendation(recommendation)
-                .build();
+        if (linkedAccounts.link(order) >= linkedAccounts.minCustomers()) {
+            flags.add("LINKED_ACCOUNTS");
+            return linkedAccountsScore;
+        }
+        return 0.0;
+    }
+
+    private static String addressKey(Order order) {
+        return (order.getShippingAddress().getPostalCode() + "|" + order.getShippingAddress().getStreet())
+                .toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
     }
 
-    private String determineRecommendation(double fraudScore) {
-        if (fraudScore >= highRiskThreshold) {
+    private String determineRecommendation(double fraudScore, double highRiskAt, double suspiciousAt) {
+        if (fraudScore >= highRiskAt) {
             return "REVIEW";
-        } else if (fraudScore >= suspiciousThreshold) {
+        } else if (fraudScore >= suspiciousAt) {
             return "APPROVE_WITH_MONITORING";
         } else {
             return "APPROVE";
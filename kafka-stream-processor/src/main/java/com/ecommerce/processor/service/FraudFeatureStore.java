@@ -0,0 +1,392 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.reactive.messaging.kafka.api.OutgoingKafkaRecordMetadata;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.AlterConfigOp;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+
+// Velocity state per customer and per shipping address. Both stores live in memory-mapped files
+// under the state directory, and every recorded order is also written to a changelog topic as a
+// delta. A tailer applies other instances' deltas into the local stores. Each store keeps the
+// changelog offsets it has applied next to its slots, so on startup the tailer resumes from there
+// and a new or restarted instance restores without replaying raw-orders or counting a delta twice. raw-orders is keyed by customer, so a customer's orders have one
+// writer at a time, but orders for one shipping address arrive on any instance; deltas add up
+// where slot images would overwrite each other. Deltas older than the longest window no longer
+// matter, so the topic is deleted by retention rather than compacted.
+@Slf4j
+@ApplicationScoped
+public class FraudFeatureStore {
+
+    private static final String CUSTOMER = "customer:";
+    private static final String ADDRESS = "address:";
+    private static final String LINKED = "linked:";
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    @Channel("fraud-features-changelog")
+    Emitter<byte[]> changelog;
+
+    @Inject
+    LinkedAccountIndex linkedAccounts;
+
+    @ConfigProperty(name = "app.fraud-detection.velocity.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.fraud-detection.velocity.capacity", defaultValue = "65536")
+    int capacity;
+
+    @ConfigProperty(name = "app.fraud-detection.velocity.stripes", defaultValue = "256")
+    int stripes;
+
+    @ConfigProperty(name = "app.fraud-detection.state.directory", defaultValue = "data/state")
+    Path directory;
+
+    @ConfigProperty(name = "app.fraud-detection.state.changelog.enabled", defaultValue = "true")
+    boolean changelogEnabled;
+
+    @ConfigProperty(name = "app.fraud-detection.state.changelog.topic", defaultValue = "fraud-features-changelog")
+    String changelogTopic;
+
+    @ConfigProperty(name = "app.fraud-detection.state.changelog.partitions", defaultValue = "6")
+    int changelogPartitions;
+
+    @ConfigProperty(name = "app.fraud-detection.state.changelog.replication-factor", defaultValue = "1")
+    short replicationFactor;
+
+    @ConfigProperty(name = "app.fraud-detection.state.changelog.retention", defaultValue = "48h")
+    Duration changelogRetention;
+
+    @ConfigProperty(name = "app.fraud-detection.state.checkpoint-interval", defaultValue = "10s")
+    Duration checkpointInterval;
+
+    @ConfigProperty(name = "quarkus.kafka.bootstrap-servers", defaultValue = "localhost:9092")
+    String bootstrapServers;
+
+    private VelocityStore customers;
+    private VelocityStore addresses;
+    private final CountDownLatch restored = new CountDownLatch(1);
+    private Timer restoreTimer;
+    private Counter publishFailed;
+    private Thread tailer;
+    private volatile boolean running;
+
+    public FraudFeatureStore() {
+    }
+
+    FraudFeatureStore(int capacity, int stripes) {
+        this.enabled = true;
+        this.capacity = capacity;
+        this.stripes = stripes;
+        this.customers = new VelocityStore(capacity, stripes);
+        this.addresses = new VelocityStore(capacity, stripes);
+        restored.countDown();
+    }
+
+    @PostConstruct
+    void init() {
+        boolean linking = linkedAccounts != null && linkedAccounts.isEnabled();
+        if (linking && !changelogEnabled) {
+            throw new IllegalStateException("app.fraud-detection.linked-accounts needs the fraud feature changelog "
+                    + "to link customers scored on other instances; enable app.fraud-detection.state.changelog "
+                    + "or disable linked accounts");
+        }
+        if (changelogEnabled) {
+            publishFailed = Counter.builder("fraud.features.publish.failed")
+                    .description("Fraud feature updates that could not be published to the changelog")
+                    .register(registry);
+        }
+        if (!enabled) {
+            // Linked accounts still replicate through the changelog with velocity scoring off
+            startTailer(linking);
+            return;
+        }
+
+        if (changelogEnabled && changelogPartitions > VelocityStore.MAX_PARTITIONS) {
+            throw new IllegalStateException("app.fraud-detection.state.changelog.partitions must be at most "
+                    + VelocityStore.MAX_PARTITIONS);
+        }
+        try {
+            // A new or resized store starts empty with no offsets, and so restores in full
+            customers = VelocityStore.open(directory.resolve("customer-velocity.dat"), capacity, stripes);
+            addresses = VelocityStore.open(directory.resolve("address-velocity.dat"), capacity, stripes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open fraud feature stores in " + directory, e);
+        }
+
+        for (Map.Entry<String, VelocityStore> store : Map.of("customer", customers, "address", addresses).entrySet()) {
+            Gauge.builder("fraud.features.store.bytes", store.getValue(), VelocityStore::sizeBytes)
+                    .description("Size of the memory-mapped fraud feature store")
+                    .tag("store", store.getKey())
+                    .register(registry);
+            Gauge.builder("fraud.features.store.keys", store.getValue(), VelocityStore::size)
+                    .description("Keys held in the fraud feature store")
+                    .tag("store", store.getKey())
+                    .register(registry);
+        }
+        restoreTimer = Timer.builder("fraud.features.restore")
+                .description("Time to catch up with the fraud feature changelog at startup")
+                .register(registry);
+
+        startTailer(changelogEnabled);
+    }
+
+    private void startTailer(boolean start) {
+        if (!start) {
+            restored.countDown();
+            return;
+        }
+        running = true;
+        tailer = new Thread(this::tail, "fraud-features-restore");
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    public boolean isEnabled() {
+        return customers != null;
+    }
+
+    public VelocityStore.Snapshot recordCustomer(String customerId, String orderId, long timestampMillis,
+                                                 Money amount) {
+        return record(customers, CUSTOMER, customerId, orderId, timestampMillis, amount);
+    }
+
+    public VelocityStore.Snapshot recordAddress(String addressKey, String orderId, long timestampMillis,
+                                                Money amount) {
+        return record(addresses, ADDRESS, addressKey, orderId, timestampMillis, amount);
+    }
+
+    // Shares a linked-account link with every instance through the changelog, with or without velocity scoring
+    public void publishLink(String customerId, byte[] link) {
+        if (changelogEnabled && changelog != null) {
+            send(LINKED + customerId, link);
+        }
+    }
+
+    // Lets a consumer that was just assigned partitions hold off until local state has caught up
+    public boolean awaitRestored(Duration timeout) {
+        try {
+            return restored.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        if (tailer != null) {
+            try {
+                tailer.join(Math.max(checkpointInterval.toMillis(), 1000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (customers != null) {
+            customers.flush();
+            addresses.flush();
+        }
+    }
+
+    private VelocityStore.Snapshot record(VelocityStore store, String prefix, String key, String orderId,
+                                          long timestampMillis, Money amount) {
+        VelocityStore.Snapshot snapshot = store.record(key, orderId, timestampMillis, amount.minor());
+        if (changelogEnabled && changelog != null) {
+            send(prefix + key, store.delta(orderId, timestampMillis, amount.minor()));
+        }
+        return snapshot;
+    }
+
+    // Losing a changelog entry only costs accuracy on other instances, so scoring goes on; the
+    // failure is counted so a changelog that has stopped taking updates shows up
+    private void send(String changelogKey, byte[] value) {
+        try {
+            changelog.send(Message.of(value)
+                    .addMetadata(OutgoingKafkaRecordMetadata.<String>builder().withKey(changelogKey).build())
+                    .withNack(failure -> {
+                        publishFailed.increment();
+                        log.warn("Could not publish fraud feature update for {}", changelogKey, failure);
+                        return CompletableFuture.completedFuture(null);
+                    }));
+        } catch (Exception e) {
+            publishFailed.increment();
+            log.warn("Could not publish fraud feature update for {}", changelogKey, e);
+        }
+    }
+
+    private void tail() {
+        long start = System.nanoTime();
+        try {
+            createChangelogTopic();
+        } catch (Exception e) {
+            log.warn("Could not create changelog topic {}; it must exist with cleanup.policy=delete",
+                    changelogTopic, e);
+        }
+
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(consumerConfig())) {
+            List<TopicPartition> partitions = consumer.partitionsFor(changelogTopic).stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+
+            // Links live in memory, so with linked accounts on everything is replayed; records the
+            // stores already hold are then skipped by their offsets
+            boolean replayAll = customers == null || (linkedAccounts != null && linkedAccounts.isEnabled());
+            for (TopicPartition partition : partitions) {
+                long offset = replayAll ? 0 : Math.min(customers.position(partition.partition()),
+                        addresses.position(partition.partition()));
+                if (offset == 0) {
+                    consumer.seekToBeginning(List.of(partition));
+                } else {
+                    consumer.seek(partition, offset);
+                }
+            }
+
+            Map<TopicPartition, Long> restoreEnd = consumer.endOffsets(partitions);
+            long applied = 0;
+            long lastCheckpoint = System.nanoTime();
+            while (running) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(200))) {
+                    if (apply(record) && restored.getCount() > 0) {
+                        applied++;
+                    }
+                    if (customers != null) {
+                        customers.advance(record.partition(), record.offset() + 1);
+                        addresses.advance(record.partition(), record.offset() + 1);
+                    }
+                }
+
+                if (restored.getCount() > 0 && caughtUp(consumer, restoreEnd)) {
+                    restoreTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    restored.countDown();
+                    log.info("Restored {} fraud feature entries from {} in {} ms", applied, changelogTopic,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+                if (System.nanoTime() - lastCheckpoint >= checkpointInterval.toNanos()) {
+                    checkpoint();
+                    lastCheckpoint = System.nanoTime();
+                }
+            }
+            checkpoint();
+
+        } catch (Exception e) {
+            log.error("Fraud feature changelog tailer stopped; velocity state is local only", e);
+        } finally {
+            restored.countDown();
+        }
+    }
+
+    private boolean apply(ConsumerRecord<String, byte[]> record) {
+        String key = record.key();
+        if (key == null || record.value() == null) {
+            return false;
+        }
+        if (key.startsWith(CUSTOMER) && customers != null) {
+            return customers.apply(key.substring(CUSTOMER.length()), record.value(), record.partition(), record.offset());
+        }
+        if (key.startsWith(ADDRESS) && addresses != null) {
+            return addresses.apply(key.substring(ADDRESS.length()), record.value(), record.partition(), record.offset());
+        }
+        if (key.startsWith(LINKED) && linkedAccounts != null) {
+            return linkedAccounts.apply(record.value());
+        }
+        return false;
+    }
+
+    private static boolean caughtUp(KafkaConsumer<String, byte[]> consumer, Map<TopicPartition, Long> end) {
+        for (Map.Entry<TopicPartition, Long> partition : end.entrySet()) {
+            if (consumer.position(partition.getKey()) < partition.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // A topic left compacted by an earlier version would drop all but the last delta per key
+    private void createChangelogTopic() throws InterruptedException, ExecutionException {
+        Properties config = new Properties();
+        config.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        Map<String, String> topicConfig = Map.of(
+                TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_DELETE,
+                TopicConfig.RETENTION_MS_CONFIG, String.valueOf(changelogRetention.toMillis()));
+        try (Admin admin = Admin.create(config)) {
+            try {
+                NewTopic topic = new NewTopic(changelogTopic, changelogPartitions, replicationFactor)
+                        .configs(topicConfig);
+                admin.createTopics(List.of(topic)).all().get();
+                log.info("Created changelog topic {}", changelogTopic);
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof TopicExistsException)) {
+                    throw e;
+                }
+                ConfigResource resource = new ConfigResource(ConfigResource.Type.TOPIC, changelogTopic);
+                List<AlterConfigOp> operations = topicConfig.entrySet().stream()
+                        .map(entry -> new AlterConfigOp(new ConfigEntry(entry.getKey(), entry.getValue()),
+                                AlterConfigOp.OpType.SET))
+                        .toList();
+                admin.incrementalAlterConfigs(Map.of(resource, operations)).all().get();
+            }
+        }
+    }
+
+    private Properties consumerConfig() {
+        Properties config = new Properties();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // An offset that retention has already deleted restores what is left rather than nothing
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+        return config;
+    }
+
+    // The offsets live in the stores, so forcing the stores to disk checkpoints both in one step
+    private void checkpoint() {
+        if (customers == null) {
+            return;
+        }
+        customers.flush();
+        addresses.flush();
+    }
+}
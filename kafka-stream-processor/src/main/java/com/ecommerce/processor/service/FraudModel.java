@@ -0,0 +1,252 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.Order;
+import com.ecommerce.models.OrderItem;
+import com.ecommerce.models.PaymentMethod;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+// A gradient-boosted tree ensemble read from an XGBoost JSON dump (Booster.dump_model with
+// dump_format="json") wrapped with the feature names and base margin used in training. Trees are
+// flattened into parallel arrays and evaluated tree by tree over a whole batch of feature rows.
+public final class FraudModel {
+
+    // Features in row order; a model may use any subset by name
+    public enum Feature {
+        GRAND_TOTAL,
+        ITEM_QUANTITY,
+        DISTINCT_ITEMS,
+        MAX_ITEM_QUANTITY,
+        MAX_UNIT_PRICE,
+        ELECTRONICS_ITEMS,
+        SHIPPING_COST,
+        VOUCHER_DISCOUNT,
+        CUSTOMER_TOTAL_ORDERS,
+        CUSTOMER_VERIFIED,
+        PAYMENT_COD,
+        PAYMENT_PAID,
+        HOUR_OF_DAY
+    }
+
+    public static final int FEATURES = Feature.values().length;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String version;
+    private final boolean logistic;
+    private final double baseMargin;
+    private final int[] roots;
+    // Per node: feature index or -1 for a leaf, split value, child node indexes and leaf value
+    private final int[] feature;
+    private final float[] threshold;
+    private final int[] yes;
+    private final int[] no;
+    private final int[] missing;
+    private final float[] leaf;
+
+    private FraudModel(String version, boolean logistic, double baseMargin, List<Integer> roots, Nodes nodes) {
+        this.version = version;
+        this.logistic = logistic;
+        this.baseMargin = baseMargin;
+        this.roots = roots.stream().mapToInt(Integer::intValue).toArray();
+        this.feature = Arrays.copyOf(nodes.feature, nodes.size);
+        this.threshold = Arrays.copyOf(nodes.threshold, nodes.size);
+        this.yes = Arrays.copyOf(nodes.yes, nodes.size);
+        this.no = Arrays.copyOf(nodes.no, nodes.size);
+        this.missing = Arrays.copyOf(nodes.missing, nodes.size);
+        this.leaf = Arrays.copyOf(nodes.leaf, nodes.size);
+    }
+
+    public static FraudModel load(Path file) {
+        try {
+            return parse(MAPPER.readTree(Files.readAllBytes(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read fraud model from " + file, e);
+        }
+    }
+
+    // {"version": ..., "objective": "binary:logistic", "base_margin": ..., "features": [...], "trees": [...]}
+    public static FraudModel parse(JsonNode model) {
+        List<String> names = new ArrayList<>();
+        model.path("features").forEach(name -> names.add(name.asText()));
+        String objective = model.path("objective").asText("binary:logistic");
+        if (!objective.equals("binary:logistic") && !objective.startsWith("reg:")) {
+            throw new IllegalArgumentException("Unsupported model objective " + objective);
+        }
+        if (!model.path("trees").isArray() || model.path("trees").isEmpty()) {
+            throw new IllegalArgumentException("Fraud model has no trees");
+        }
+
+        Nodes nodes = new Nodes();
+        List<Integer> roots = new ArrayList<>();
+        for (JsonNode tree : model.path("trees")) {
+            Map<Integer, Integer> slots = new HashMap<>();
+            List<JsonNode> pending = new ArrayList<>();
+            collect(tree, pending);
+            for (JsonNode node : pending) {
+                slots.put(node.path("nodeid").asInt(), nodes.add());
+            }
+            for (JsonNode node : pending) {
+                int slot = slots.get(node.path("nodeid").asInt());
+                if (node.has("leaf")) {
+                    nodes.feature[slot] = -1;
+                    nodes.leaf[slot] = (float) node.path("leaf").asDouble();
+                    continue;
+                }
+                nodes.feature[slot] = featureIndex(node.path("split").asText(), names);
+                nodes.threshold[slot] = (float) node.path("split_condition").asDouble();
+                nodes.yes[slot] = child(slots, node, "yes");
+                nodes.no[slot] = child(slots, node, "no");
+                nodes.missing[slot] = node.has("missing") ? child(slots, node, "missing") : nodes.yes[slot];
+            }
+            roots.add(slots.get(tree.path("nodeid").asInt()));
+        }
+        return new FraudModel(model.path("version").asText("unversioned"), objective.equals("binary:logistic"),
+                model.path("base_margin").asDouble(0.0), roots, nodes);
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public int trees() {
+        return roots.length;
+    }
+
+    // Fills one row of the feature matrix straight from the order; unknown values are NaN
+    public static void extract(Order order, float[] rows, int row) {
+        int base = row * FEATURES;
+        Arrays.fill(rows, base, base + FEATURES, Float.NaN);
+
+        float quantity = 0;
+        float maxQuantity = 0;
+        float maxUnitPrice = 0;
+        float electronics = 0;
+        List<OrderItem> items = order.getItems();
+        for (OrderItem item : items) {
+            if (item.getQuantity() != null) {
+                quantity += item.getQuantity();
+                maxQuantity = Math.max(maxQuantity, item.getQuantity());
+            }
+            if (item.getUnitPrice() != null) {
+                maxUnitPrice = Math.max(maxUnitPrice, item.getUnitPrice().floatValue());
+            }
+            if (item.getCategory() != null && item.getCategory().equalsIgnoreCase("ELECTRONICS")) {
+                electronics++;
+            }
+        }
+        rows[base + Feature.GRAND_TOTAL.ordinal()] = order.getGrandTotal().floatValue();
+        rows[base + Feature.ITEM_QUANTITY.ordinal()] = quantity;
+        rows[base + Feature.DISTINCT_ITEMS.ordinal()] = items.size();
+        rows[base + Feature.MAX_ITEM_QUANTITY.ordinal()] = maxQuantity;
+        rows[base + Feature.MAX_UNIT_PRICE.ordinal()] = maxUnitPrice;
+        rows[base + Feature.ELECTRONICS_ITEMS.ordinal()] = electronics;
+        rows[base + Feature.SHIPPING_COST.ordinal()] = floatOf(order.getShippingCost());
+        rows[base + Feature.VOUCHER_DISCOUNT.ordinal()] = floatOf(order.getVoucherDiscount());
+
+        if (order.getCustomer() != null) {
+            if (order.getCustomer().getTotalOrders() != null) {
+                rows[base + Feature.CUSTOMER_TOTAL_ORDERS.ordinal()] = order.getCustomer().getTotalOrders();
+            }
+            if (order.getCustomer().getIsVerified() != null) {
+                rows[base + Feature.CUSTOMER_VERIFIED.ordinal()] = order.getCustomer().getIsVerified() ? 1 : 0;
+            }
+        }
+        if (order.getPayment() != null) {
+            rows[base + Feature.PAYMENT_COD.ordinal()] = order.getPayment().getMethod() == PaymentMethod.COD ? 1 : 0;
+            if (order.getPayment().getIsPaid() != null) {
+                rows[base + Feature.PAYMENT_PAID.ordinal()] = order.getPayment().getIsPaid() ? 1 : 0;
+            }
+        }
+        if (order.getCreatedAt() != null) {
+            rows[base + Feature.HOUR_OF_DAY.ordinal()] = order.getCreatedAt().getHour();
+        }
+    }
+
+    // Scores the first count rows; out receives a probability for logistic models, the raw margin otherwise
+    public void predict(float[] rows, int count, double[] out) {
+        Arrays.fill(out, 0, count, baseMargin);
+        for (int root : roots) {
+            for (int row = 0; row < count; row++) {
+                int base = row * FEATURES;
+                int node = root;
+                while (feature[node] >= 0) {
+                    float value = rows[base + feature[node]];
+                    node = Float.isNaN(value) ? missing[node] : value < threshold[node] ? yes[node] : no[node];
+                }
+                out[row] += leaf[node];
+            }
+        }
+        if (logistic) {
+            for (int row = 0; row < count; row++) {
+                out[row] = 1.0 / (1.0 + Math.exp(-out[row]));
+            }
+        }
+    }
+
+    private static void collect(JsonNode node, List<JsonNode> into) {
+        into.add(node);
+        node.path("children").forEach(child -> collect(child, into));
+    }
+
+    private static int child(Map<Integer, Integer> slots, JsonNode node, String branch) {
+        Integer slot = slots.get(node.path(branch).asInt());
+        if (slot == null) {
+            throw new IllegalArgumentException("Node " + node.path("nodeid") + " points to missing node " + node.path(branch));
+        }
+        return slot;
+    }
+
+    // XGBoost names splits after the training feature names, or f0, f1... when none were given
+    private static int featureIndex(String split, List<String> names) {
+        String name = split;
+        if (split.matches("f\\d+") && !names.isEmpty()) {
+            name = names.get(Integer.parseInt(split.substring(1)));
+        }
+        try {
+            return Feature.valueOf(name.toUpperCase()).ordinal();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Fraud model uses unknown feature " + name, e);
+        }
+    }
+
+    private static float floatOf(BigDecimal value) {
+        return value == null ? Float.NaN : value.floatValue();
+    }
+
+    private static final class Nodes {
+
+        int size;
+        int[] feature = new int[64];
+        float[] threshold = new float[64];
+        int[] yes = new int[64];
+        int[] no = new int[64];
+        int[] missing = new int[64];
+        float[] leaf = new float[64];
+
+        int add() {
+            if (size == feature.length) {
+                int grown = size * 2;
+                feature = Arrays.copyOf(feature, grown);
+                threshold = Arrays.copyOf(threshold, grown);
+                yes = Arrays.copyOf(yes, grown);
+                no = Arrays.copyOf(no, grown);
+                missing = Arrays.copyOf(missing, grown);
+                leaf = Arrays.copyOf(leaf, grown);
+            }
+            return size++;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.Order;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+
+@Slf4j
+@ApplicationScoped
+public class FraudModelScorer {
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "app.fraud-detection.model.file")
+    Optional<Path> modelFile;
+
+    // Points added to the rule score for a probability of 1.0
+    @ConfigProperty(name = "app.fraud-detection.model.weight", defaultValue = "30.0")
+    double weight;
+
+    @ConfigProperty(name = "app.fraud-detection.model.flag-threshold", defaultValue = "0.8")
+    double flagThreshold;
+
+    private FraudModel model;
+    private Timer batchTimer;
+    private DistributionSummary batchSizes;
+
+    public FraudModelScorer() {
+    }
+
+    FraudModelScorer(FraudModel model, MeterRegistry registry, double weight, double flagThreshold) {
+        this.model = model;
+        this.registry = registry;
+        this.weight = weight;
+        this.flagThreshold = flagThreshold;
+        registerMetrics();
+    }
+
+    @PostConstruct
+    void init() {
+        if (modelFile.isEmpty()) {
+            return;
+        }
+        model = FraudModel.load(modelFile.get());
+        registerMetrics();
+        log.info("Loaded fraud model {} with {} trees from {}", model.version(), model.trees(), modelFile.get());
+    }
+
+    private void registerMetrics() {
+        batchTimer = Timer.builder("fraud.model.batch")
+                .description("Time to extract features and score one batch of orders with the fraud model")
+                .tag("model", model.version())
+                .register(registry);
+        batchSizes = DistributionSummary.builder("fraud.model.batch.size")
+                .description("Orders scored per fraud model batch")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return model != null;
+    }
+
+    public double weight() {
+        return weight;
+    }
+
+    public double flagThreshold() {
+        return flagThreshold;
+    }
+
+    // One feature matrix and one model pass for the whole poll
+    public double[] score(List<Order> orders) {
+        long start = System.nanoTime();
+        int count = orders.size();
+        float[] rows = new float[count * FraudModel.FEATURES];
+        for (int row = 0; row < count; row++) {
+            FraudModel.extract(orders.get(row), rows, row);
+        }
+        double[] probabilities = new double[count];
+        model.predict(rows, count, probabilities);
+
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(count);
+        return probabilities;
+    }
+}
@@ -0,0 +1,110 @@
+package com.ecommerce.processor.service;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+// Holds the active fraud rule set. Scoring threads read one volatile reference per order, so a
+// reload swaps rules between two orders without pausing the consumer.
+@Slf4j
+@ApplicationScoped
+public class FraudRuleEngine {
+
+    @ConfigProperty(name = "app.fraud-detection.rules.file")
+    Optional<Path> rulesFile;
+
+    @ConfigProperty(name = "app.fraud-detection.rules.reload-interval", defaultValue = "30s")
+    Duration reloadInterval;
+
+    private volatile FraudRuleSet active;
+    private FileTime loadedModified;
+    private ScheduledExecutorService scheduler;
+
+    public FraudRuleEngine() {
+    }
+
+    FraudRuleEngine(Path rulesFile) {
+        this.rulesFile = Optional.ofNullable(rulesFile);
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        // A broken rule file fails startup; later reloads keep the previous rules instead
+        active = rulesFile.isPresent() ? readFile(rulesFile.get()) : FraudRuleSet.defaults();
+        log.info("Loaded fraud rule set {} with {} rules", active.version(), active.size());
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (rulesFile.isEmpty()) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fraud-rules-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reloadIfChanged,
+                reloadInterval.toMillis(), reloadInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public FraudRuleSet active() {
+        return active;
+    }
+
+    public void swap(FraudRuleSet ruleSet) {
+        FraudRuleSet previous = active;
+        active = ruleSet;
+        log.info("Fraud rule set {} replaced by {} ({} rules)", previous.version(), ruleSet.version(), ruleSet.size());
+    }
+
+    // Re-reads the configured file, or the bundled defaults when none is configured
+    public synchronized FraudRuleSet reload() {
+        FraudRuleSet ruleSet = rulesFile.isPresent() ? readFile(rulesFile.get()) : FraudRuleSet.defaults();
+        swap(ruleSet);
+        return ruleSet;
+    }
+
+    synchronized void reloadIfChanged() {
+        try {
+            if (!Files.getLastModifiedTime(rulesFile.get()).equals(loadedModified)) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.error("Could not reload fraud rules from {}; keeping {}", rulesFile.get(), active.version(), e);
+        }
+    }
+
+    private FraudRuleSet readFile(Path file) {
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            FraudRuleSet ruleSet = FraudRuleSet.load(file);
+            loadedModified = modified;
+            return ruleSet;
+        } catch (IOException e) {
+            throw new IllegalStateException("Fraud rule file " + file + " is not readable", e);
+        }
+    }
+}
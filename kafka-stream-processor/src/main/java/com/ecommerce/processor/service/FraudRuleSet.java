@@ -0,0 +1,275 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.Order;
+import com.ecommerce.models.OrderItem;
+import com.ecommerce.models.PaymentMethod;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+
+
+// A fraud rule definition compiled into flat arrays. Every attribute a rule can test is extracted
+// from the order once into a reused per-thread long[], and thresholds are converted to the same
+// encoding when the rule set is compiled, so evaluating an order compares longs and allocates
+// nothing besides the flags it adds.
+public final class FraudRuleSet {
+
+    public static final String DEFAULT_RESOURCE = "fraud-rules.json";
+
+    private static final double MAX_SCORE = 100.0;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true);
+
+    private static final ThreadLocal<long[]> ATTRIBUTES =
+            ThreadLocal.withInitial(() -> new long[Attribute.values().length]);
+
+    private static volatile FraudRuleSet defaults;
+
+    public record Definition(String version,
+                             @JsonProperty("suspicious_threshold") Double suspiciousThreshold,
+                             @JsonProperty("high_risk_threshold") Double highRiskThreshold,
+                             List<Rule> rules) {
+
+        public Definition(String version, List<Rule> rules) {
+            this(version, null, null, rules);
+        }
+    }
+
+    public record Rule(String flag, double score, List<Condition> when) {
+    }
+
+    public record Condition(String attribute, String operator, String value) {
+    }
+
+    enum Attribute {
+        // Money is kept as twice the minor units, plus one when a fraction of a minor unit is left,
+        // so comparing against a whole minor-unit threshold stays exact
+        GRAND_TOTAL {
+            @Override
+            long compile(String value) {
+                return new BigDecimal(value).movePointRight(2).longValueExact() * 2;
+            }
+        },
+        CUSTOMER_TOTAL_ORDERS,
+        // 1 or 0, and -1 when the payload does not say
+        CUSTOMER_VERIFIED {
+            @Override
+            long compile(String value) {
+                return Boolean.parseBoolean(value) ? 1 : 0;
+            }
+        },
+        MAX_ITEM_QUANTITY,
+        ELECTRONICS_ITEMS,
+        ORDER_TIME {
+            @Override
+            long compile(String value) {
+                return LocalTime.parse(value).toNanoOfDay();
+            }
+        },
+        PAYMENT_METHOD {
+            @Override
+            long compile(String value) {
+                return PaymentMethod.valueOf(value.toUpperCase(Locale.ROOT)).ordinal();
+            }
+        };
+
+        long compile(String value) {
+            return Long.parseLong(value);
+        }
+    }
+
+    enum Operator {
+        GT, GTE, LT, LTE, EQ, NE
+    }
+
+    private final String version;
+    // NaN when the definition leaves the threshold to app.fraud-detection config
+    private final double suspiciousThreshold;
+    private final double highRiskThreshold;
+    private final String[] flags;
+    private final double[] scores;
+    // Conditions of rule i are ruleStart[i] until ruleStart[i + 1]
+    private final int[] ruleStart;
+    private final int[] attributes;
+    private final Operator[] operators;
+    private final long[] thresholds;
+    private final boolean[] used = new boolean[Attribute.values().length];
+
+    private FraudRuleSet(Definition definition) {
+        if (definition.rules() == null || definition.rules().isEmpty()) {
+            throw new IllegalArgumentException("Rule set " + definition.version() + " has no rules");
+        }
+        this.version = definition.version() == null ? "unversioned" : definition.version();
+        this.suspiciousThreshold = definition.suspiciousThreshold() == null ? Double.NaN : definition.suspiciousThreshold();
+        this.highRiskThreshold = definition.highRiskThreshold() == null ? Double.NaN : definition.highRiskThreshold();
+
+        int ruleCount = definition.rules().size();
+        int conditionCount = definition.rules().stream()
+                .mapToInt(rule -> rule.when() == null ? 0 : rule.when().size())
+                .sum();
+        flags = new String[ruleCount];
+        scores = new double[ruleCount];
+        ruleStart = new int[ruleCount + 1];
+        attributes = new int[conditionCount];
+        operators = new Operator[conditionCount];
+        thresholds = new long[conditionCount];
+
+        int condition = 0;
+        for (int i = 0; i < ruleCount; i++) {
+            Rule rule = definition.rules().get(i);
+            if (rule.flag() == null || rule.flag().isBlank() || rule.when() == null || rule.when().isEmpty()) {
+                throw new IllegalArgumentException("Rule " + i + " needs a flag and at least one condition");
+            }
+            flags[i] = rule.flag();
+            scores[i] = rule.score();
+            ruleStart[i] = condition;
+            for (Condition when : rule.when()) {
+                try {
+                    Attribute attribute = Attribute.valueOf(when.attribute().toUpperCase(Locale.ROOT));
+                    attributes[condition] = attribute.ordinal();
+                    operators[condition] = Operator.valueOf(when.operator().toUpperCase(Locale.ROOT));
+                    thresholds[condition] = attribute.compile(when.value());
+                    used[attribute.ordinal()] = true;
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Invalid condition " + when + " in rule " + rule.flag(), e);
+                }
+                condition++;
+            }
+        }
+        ruleStart[ruleCount] = condition;
+    }
+
+    public static FraudRuleSet compile(Definition definition) {
+        return new FraudRuleSet(definition);
+    }
+
+    public static FraudRuleSet load(Path file) {
+        try {
+            return compile(MAPPER.readValue(Files.readAllBytes(file), Definition.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read fraud rules from " + file, e);
+        }
+    }
+
+    // The rules shipped with the service, used when no rule file is configured
+    public static FraudRuleSet defaults() {
+        if (defaults == null) {
+            try (InputStream in = FraudRuleSet.class.getClassLoader().getResourceAsStream(DEFAULT_RESOURCE)) {
+                if (in == null) {
+                    throw new IllegalStateException(DEFAULT_RESOURCE + " is missing from the classpath");
+                }
+                defaults = compile(MAPPER.readValue(in, Definition.class));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + DEFAULT_RESOURCE, e);
+            }
+        }
+        return defaults;
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public int size() {
+        return flags.length;
+    }
+
+    public List<String> flags() {
+        return List.of(flags);
+    }
+
+    public double suspiciousThreshold(double fallback) {
+        return Double.isNaN(suspiciousThreshold) ? fallback : suspiciousThreshold;
+    }
+
+    public double highRiskThreshold(double fallback) {
+        return Double.isNaN(highRiskThreshold) ? fallback : highRiskThreshold;
+    }
+
+    // Adds the flag of every matching rule and returns their summed score, stopping at 100
+    public double evaluate(Order order, List<String> matched) {
+        long[] values = ATTRIBUTES.get();
+        extract(order, values);
+
+        double score = 0.0;
+        for (int rule = 0; rule < flags.length && score < MAX_SCORE; rule++) {
+            if (matches(rule, values)) {
+                score += scores[rule];
+                matched.add(flags[rule]);
+            }
+        }
+        return Math.min(score, MAX_SCORE);
+    }
+
+    private boolean matches(int rule, long[] values) {
+        for (int c = ruleStart[rule]; c < ruleStart[rule + 1]; c++) {
+            long value = values[attributes[c]];
+            long threshold = thresholds[c];
+            boolean holds = switch (operators[c]) {
+                case GT -> value > threshold;
+                case GTE -> value >= threshold;
+                case LT -> value < threshold;
+                case LTE -> value <= threshold;
+                case EQ -> value == threshold;
+                case NE -> value != threshold;
+            };
+            if (!holds) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void extract(Order order, long[] values) {
+        if (used[Attribute.GRAND_TOTAL.ordinal()]) {
+            values[Attribute.GRAND_TOTAL.ordinal()] = money(order.getGrandTotal());
+        }
+        if (used[Attribute.CUSTOMER_TOTAL_ORDERS.ordinal()]) {
+            Integer totalOrders = order.getCustomer().getTotalOrders();
+            values[Attribute.CUSTOMER_TOTAL_ORDERS.ordinal()] = totalOrders == null ? 0 : totalOrders;
+        }
+        if (used[Attribute.CUSTOMER_VERIFIED.ordinal()]) {
+            Boolean verified = order.getCustomer().getIsVerified();
+            values[Attribute.CUSTOMER_VERIFIED.ordinal()] = verified == null ? -1 : verified ? 1 : 0;
+        }
+        if (used[Attribute.MAX_ITEM_QUANTITY.ordinal()] || used[Attribute.ELECTRONICS_ITEMS.ordinal()]) {
+            long maxQuantity = 0;
+            long electronics = 0;
+            for (OrderItem item : order.getItems()) {
+                if (item.getQuantity() != null) {
+                    maxQuantity = Math.max(maxQuantity, item.getQuantity());
+                }
+                if (item.getCategory() != null && item.getCategory().equalsIgnoreCase("ELECTRONICS")) {
+                    electronics++;
+                }
+            }
+            values[Attribute.MAX_ITEM_QUANTITY.ordinal()] = maxQuantity;
+            values[Attribute.ELECTRONICS_ITEMS.ordinal()] = electronics;
+        }
+        if (used[Attribute.ORDER_TIME.ordinal()]) {
+            values[Attribute.ORDER_TIME.ordinal()] = order.getCreatedAt().toLocalTime().toNanoOfDay();
+        }
+        if (used[Attribute.PAYMENT_METHOD.ordinal()]) {
+            PaymentMethod method = order.getPayment() == null ? null : order.getPayment().getMethod();
+            values[Attribute.PAYMENT_METHOD.ordinal()] = method == null ? -1 : method.ordinal();
+        }
+    }
+
+    private static long money(BigDecimal amount) {
+        BigDecimal minor = amount.movePointRight(2);
+        long whole = minor.setScale(0, RoundingMode.FLOOR).longValueExact();
+        return whole * 2 + (minor.compareTo(BigDecimal.valueOf(whole)) != 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,185 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.Order;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+// Scores every order again with candidate rule sets and records how they would have differed from
+// the active rules. Work runs on its own small pool behind a bounded queue; when the queue is full
+// the order is skipped and counted, so shadow scoring never holds up the consumer.
+@Slf4j
+@ApplicationScoped
+public class FraudShadowEvaluator {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "app.fraud-detection.shadow.rule-files")
+    Optional<List<Path>> ruleFiles;
+
+    @ConfigProperty(name = "app.fraud-detection.shadow.threads", defaultValue = "1")
+    int threads;
+
+    @ConfigProperty(name = "app.fraud-detection.shadow.queue-capacity", defaultValue = "1000")
+    int queueCapacity;
+
+    private final List<Candidate> candidates = new ArrayList<>();
+    private ThreadPoolExecutor executor;
+    private Counter dropped;
+    private DistributionSummary activeScores;
+
+    public FraudShadowEvaluator() {
+    }
+
+    FraudShadowEvaluator(MeterRegistry registry, List<FraudRuleSet> candidates, int threads, int queueCapacity) {
+        this.registry = registry;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        start(candidates);
+    }
+
+    @PostConstruct
+    void init() {
+        List<FraudRuleSet> loaded = new ArrayList<>();
+        for (Path file : ruleFiles.orElse(List.of())) {
+            try {
+                loaded.add(FraudRuleSet.load(file));
+            } catch (RuntimeException e) {
+                log.error("Skipping shadow rule set {}", file, e);
+            }
+        }
+        start(loaded);
+    }
+
+    private void start(List<FraudRuleSet> ruleSets) {
+        if (ruleSets.isEmpty()) {
+            return;
+        }
+
+        for (FraudRuleSet ruleSet : ruleSets) {
+            candidates.add(new Candidate(ruleSet,
+                    Timer.builder("fraud.shadow.cpu")
+                            .description("CPU time spent scoring one order with a shadow rule set")
+                            .tag("candidate", ruleSet.version())
+                            .register(registry),
+                    DistributionSummary.builder("fraud.shadow.score")
+                            .description("Fraud scores given by a shadow rule set")
+                            .tag("candidate", ruleSet.version())
+                            .serviceLevelObjectives(25, 50, 70, 100)
+                            .register(registry)));
+        }
+        activeScores = DistributionSummary.builder("fraud.shadow.score")
+                .description("Fraud scores given by a shadow rule set")
+                .tag("candidate", "active")
+                .serviceLevelObjectives(25, 50, 70, 100)
+                .register(registry);
+        dropped = Counter.builder("fraud.shadow.dropped")
+                .description("Orders not shadow-scored because the shadow queue was full")
+                .register(registry);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "fraud-shadow-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                (task, pool) -> dropped.increment());
+        log.info("Shadow scoring {} candidate rule sets on {} threads",
+                candidates.stream().map(candidate -> candidate.ruleSet.version()).toList(), threads);
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    public List<String> candidateVersions() {
+        return candidates.stream().map(candidate -> candidate.ruleSet.version()).toList();
+    }
+
+    // ruleFlags are the flags the active rules raised; blocklist and velocity scores are shared as is
+    public void submit(Order order, List<String> ruleFlags, double sharedScore,
+                       double activeScore, boolean activeSuspicious, double suspiciousThreshold) {
+        if (executor == null) {
+            return;
+        }
+        executor.execute(() -> compare(order, ruleFlags, sharedScore, activeScore,
+                activeSuspicious, suspiciousThreshold));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void compare(Order order, List<String> activeFlags, double sharedScore,
+                         double activeScore, boolean activeSuspicious, double suspiciousThreshold) {
+        activeScores.record(activeScore);
+        List<String> flags = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            flags.clear();
+            long cpuStart = THREADS.getCurrentThreadCpuTime();
+            double score;
+            try {
+                score = Math.min(candidate.ruleSet.evaluate(order, flags) + sharedScore, 100.0);
+            } catch (RuntimeException e) {
+                log.debug("Shadow rule set {} failed on order {}", candidate.ruleSet.version(), order.getOrderId(), e);
+                continue;
+            }
+            long cpuNanos = THREADS.getCurrentThreadCpuTime() - cpuStart;
+
+            boolean suspicious = score >= candidate.ruleSet.suspiciousThreshold(suspiciousThreshold);
+            if (suspicious != activeSuspicious) {
+                registry.counter("fraud.shadow.decision.disagreements",
+                        "candidate", candidate.ruleSet.version(),
+                        "shadow", suspicious ? "suspicious" : "clean").increment();
+            }
+            for (String flag : flags) {
+                if (!activeFlags.contains(flag)) {
+                    disagree(candidate, flag, "shadow_only");
+                }
+            }
+            for (String flag : activeFlags) {
+                if (!flags.contains(flag)) {
+                    disagree(candidate, flag, "active_only");
+                }
+            }
+            candidate.scores.record(score);
+            candidate.cpu.record(cpuNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void disagree(Candidate candidate, String flag, String side) {
+        registry.counter("fraud.shadow.rule.disagreements",
+                "candidate", candidate.ruleSet.version(), "rule", flag, "side", side).increment();
+    }
+
+    private record Candidate(FraudRuleSet ruleSet, Timer cpu, DistributionSummary scores) {
+    }
+}
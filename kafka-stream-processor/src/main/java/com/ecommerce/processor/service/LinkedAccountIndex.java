@@ -0,0 +1,349 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.Order;
+import com.ecommerce.models.Payment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+
+// Links customers that share a phone, shipping address or card through a union-find over recent
+// orders. Customers and attributes are both nodes; an order joins its customer with each of its
+// attributes, and each root keeps the number of distinct customers in its component.
+//
+// The window is covered by two generations that start half a window apart and take every order.
+// A generation is cleared once it is a window old, so the older one always holds between half a
+// window and a full window of links. Generations rotate on processing time, since createdAt comes
+// from the client. Each generation has a fixed node capacity; once full, orders that would add
+// nodes are only linked through nodes it already has.
+//
+// Worker lanes and the changelog tailer link concurrently. Nodes are claimed with CAS, finds run
+// without locks, and a union locks only the stripes of the two roots it joins, so orders touching
+// unrelated components do not wait for each other. A rotation swaps in a fresh generation rather
+// than clearing one in place.
+//
+// raw-orders is keyed by customer, so customers sharing an attribute are usually scored on
+// different instances. Every link is published on the fraud feature changelog and applied by all
+// instances, this one included; a union is idempotent and unions commute, so each instance ends up
+// with the same components. The changelog is therefore required while the index is enabled, even
+// with velocity scoring off. The index still starts empty after a restart.
+@Slf4j
+@ApplicationScoped
+public class LinkedAccountIndex {
+
+    private static final long SEED = 0x2545f4914f6cdd1dL;
+
+    private static final int LINK_BYTES = Long.BYTES * 4;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    FraudFeatureStore features;
+
+    @ConfigProperty(name = "app.fraud-detection.linked-accounts.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.fraud-detection.linked-accounts.window", defaultValue = "24h")
+    Duration window;
+
+    @ConfigProperty(name = "app.fraud-detection.linked-accounts.capacity", defaultValue = "262144")
+    int capacity;
+
+    @ConfigProperty(name = "app.fraud-detection.linked-accounts.min-customers", defaultValue = "3")
+    int minCustomers;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    private volatile Generation[] generations;
+    private Counter full;
+
+    public LinkedAccountIndex() {
+    }
+
+    LinkedAccountIndex(Duration window, int capacity, int minCustomers, MeterRegistry registry) {
+        this.enabled = true;
+        this.window = window;
+        this.capacity = capacity;
+        this.minCustomers = minCustomers;
+        this.registry = registry;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        full = Counter.builder("fraud.linked.full")
+                .description("Order attributes not linked because the linked-account index was full")
+                .register(registry);
+        Gauge.builder("fraud.linked.nodes", this, LinkedAccountIndex::nodes)
+                .description("Customers and attributes in the oldest linked-account generation")
+                .register(registry);
+        log.info("Linked-account index: {} nodes per generation, {} window", capacity, window);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int minCustomers() {
+        return minCustomers;
+    }
+
+    // Links the order's customer to its attributes and returns the number of distinct customers
+    // in the resulting component, the customer included
+    public int link(Order order) {
+        if (order.getCustomer() == null || order.getCustomer().getCustomerId() == null) {
+            return 0;
+        }
+        long customer = key("customer", order.getCustomer().getCustomerId());
+        long phone = order.getCustomer().getPhone() == null ? 0
+                : key("phone", BlocklistService.normalizePhone(order.getCustomer().getPhone()));
+        long address = order.getShippingAddress() == null ? 0
+                : key("address", BlocklistService.normalizeAddress(
+                        order.getShippingAddress().getPostalCode() + "|" + order.getShippingAddress().getStreet()));
+        long card = cardKey(order.getPayment());
+
+        int customers = link(customer, phone, address, card);
+        if (features != null) {
+            features.publishLink(order.getCustomer().getCustomerId(), ByteBuffer.allocate(LINK_BYTES)
+                    .putLong(customer).putLong(phone).putLong(address).putLong(card).array());
+        }
+        return customers;
+    }
+
+    // Applies a link published by any instance
+    public boolean apply(byte[] link) {
+        if (!enabled || link == null || link.length != LINK_BYTES) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(link);
+        link(buffer.getLong(0), buffer.getLong(8), buffer.getLong(16), buffer.getLong(24));
+        return true;
+    }
+
+    private int link(long customer, long phone, long address, long card) {
+        int customers = 0;
+        for (Generation generation : rotate(clock.getAsLong())) {
+            int node = generation.node(customer, true);
+            if (node < 0) {
+                full.increment();
+                continue;
+            }
+            node = union(generation, node, phone);
+            node = union(generation, node, address);
+            node = union(generation, node, card);
+            customers = Math.max(customers, generation.customers(node));
+        }
+        return customers;
+    }
+
+    private int union(Generation generation, int node, long attribute) {
+        if (attribute == 0) {
+            return node;
+        }
+        int other = generation.node(attribute, false);
+        if (other < 0) {
+            full.increment();
+            return node;
+        }
+        return generation.union(node, other);
+    }
+
+    // Only takes the lock when a generation is due to be replaced
+    private Generation[] rotate(long timestamp) {
+        Generation[] current = generations;
+        long windowMillis = window.toMillis();
+        if (current != null && timestamp - current[0].start < windowMillis && timestamp - current[1].start < windowMillis) {
+            return current;
+        }
+        synchronized (this) {
+            current = generations;
+            if (current == null) {
+                generations = new Generation[] {
+                        new Generation(capacity, timestamp - windowMillis / 2), new Generation(capacity, timestamp)};
+                return generations;
+            }
+            Generation[] next = current.clone();
+            for (int i = 0; i < next.length; i++) {
+                long age = timestamp - next[i].start;
+                if (age >= windowMillis) {
+                    next[i] = new Generation(capacity, next[i].start + age / windowMillis * windowMillis);
+                }
+            }
+            generations = next;
+            return next;
+        }
+    }
+
+    private double nodes() {
+        Generation[] current = generations;
+        if (current == null) {
+            return 0;
+        }
+        return (current[0].start <= current[1].start ? current[0] : current[1]).size();
+    }
+
+    // Card gateway and last four digits; cash-on-delivery and transfers carry no card
+    private static long cardKey(Payment payment) {
+        if (payment == null || payment.getCardLastFour() == null || payment.getCardLastFour().isBlank()) {
+            return 0;
+        }
+        String gateway = payment.getPaymentGateway() == null ? "" : payment.getPaymentGateway();
+        return key("card", gateway.toLowerCase(Locale.ROOT) + "|" + payment.getCardLastFour().trim());
+    }
+
+    private static long key(String kind, String value) {
+        long hash = Blocklist.hash(kind + ":" + value, SEED);
+        return hash == 0 ? 1 : hash;
+    }
+
+    // One union-find over a fixed number of nodes, with an open-addressing table from key hash to
+    // node. Parent links are only ever moved up the tree, so finds halve paths with CAS and no lock.
+    // Root weights and customer counts are only touched under the stripe lock of that root, and a
+    // union rechecks that both roots are still roots once it holds their locks.
+    static final class Generation {
+
+        private static final int STRIPES = 64;
+        // Table slot claimed, node not yet written
+        private static final int PENDING = 0;
+        // Table slot claimed after the generation filled up
+        private static final int FULL = -1;
+
+        final long start;
+
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicLongArray keys;
+        // Node + 1 per table slot, or PENDING / FULL
+        private final AtomicIntegerArray nodes;
+        private final AtomicIntegerArray parent;
+        private final int[] weight;
+        private final int[] customers;
+        private final Object[] locks = new Object[STRIPES];
+
+        Generation(int capacity, long start) {
+            this.start = start;
+            int tableSize = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1) << 1;
+            this.keys = new AtomicLongArray(tableSize);
+            this.nodes = new AtomicIntegerArray(tableSize);
+            this.parent = new AtomicIntegerArray(capacity);
+            this.weight = new int[capacity];
+            this.customers = new int[capacity];
+            for (int i = 0; i < STRIPES; i++) {
+                locks[i] = new Object();
+            }
+        }
+
+        int size() {
+            return Math.min(size.get(), parent.length());
+        }
+
+        // Returns the node for a key, adding it when absent, or -1 when the generation is full
+        int node(long key, boolean customer) {
+            int mask = keys.length() - 1;
+            int slot = (int) key & mask;
+            while (true) {
+                long existing = keys.get(slot);
+                if (existing == key) {
+                    return awaitNode(slot);
+                }
+                if (existing != 0) {
+                    slot = (slot + 1) & mask;
+                    continue;
+                }
+                if (size.get() >= parent.length()) {
+                    return -1;
+                }
+                if (keys.compareAndSet(slot, 0, key)) {
+                    int node = size.getAndIncrement();
+                    if (node >= parent.length()) {
+                        nodes.set(slot, FULL);
+                        return -1;
+                    }
+                    parent.set(node, node);
+                    weight[node] = 1;
+                    customers[node] = customer ? 1 : 0;
+                    nodes.set(slot, node + 1);
+                    return node;
+                }
+            }
+        }
+
+        // The claiming thread writes the node right after its CAS
+        private int awaitNode(int slot) {
+            int node;
+            while ((node = nodes.get(slot)) == PENDING) {
+                Thread.onSpinWait();
+            }
+            return node == FULL ? -1 : node - 1;
+        }
+
+        // Path halving
+        int find(int node) {
+            int up;
+            while ((up = parent.get(node)) != node) {
+                int grandparent = parent.get(up);
+                parent.compareAndSet(node, up, grandparent);
+                node = grandparent;
+            }
+            return node;
+        }
+
+        // Union by size; returns the root of the merged component
+        int union(int a, int b) {
+            while (true) {
+                int rootA = find(a);
+                int rootB = find(b);
+                if (rootA == rootB) {
+                    return rootA;
+                }
+                // Stripes are always locked in index order
+                Object first = locks[Math.min(rootA % STRIPES, rootB % STRIPES)];
+                Object second = locks[Math.max(rootA % STRIPES, rootB % STRIPES)];
+                synchronized (first) {
+                    synchronized (second) {
+                        if (parent.get(rootA) != rootA || parent.get(rootB) != rootB) {
+                            continue;
+                        }
+                        if (weight[rootA] < weight[rootB]) {
+                            int swap = rootA;
+                            rootA = rootB;
+                            rootB = swap;
+                        }
+                        weight[rootA] += weight[rootB];
+                        customers[rootA] += customers[rootB];
+                        parent.set(rootB, rootA);
+                        return rootA;
+                    }
+                }
+            }
+        }
+
+        // Distinct customers in the node's component
+        int customers(int node) {
+            while (true) {
+                int root = find(node);
+                synchronized (locks[root % STRIPES]) {
+                    if (parent.get(root) == root) {
+                        return customers[root];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -3,15 +3,23 @@ package com.ecommerce.processor.service;
 import com.ecommerce.models.Order;
 import com.ecommerce.models.OrderStatus;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
+import java.util.Optional;
 
 
 @Slf4j
 @ApplicationScoped
 public class OrderEnrichmentService {
 
+    @Inject
+    CustomerProfileCache profiles;
+
+    @Inject
+    CustomerHistoryService history;
+
     public Order enrichOrder(Order order) {
         log.debug("Enriching order: {}", order.getOrderId());
         order.setUpdatedAt(LocalDateTime.now());
@@ -32,6 +40,8 @@ public class OrderEnrichmentService {
             order.getPayment().setAmount(order.getGrandTotal());
         }
 
+        applyCustomerProfile(order);
+
         log.info("Order {} enriched successfully. Status: {}, Total Items: {}, Grand Total: {}",
                 order.getOrderId(),
                 order.getStatus(),
@@ -41,6 +51,31 @@ public class OrderEnrichmentService {
         return order;
     }
 
+    // Fraud scoring reads verification and order count, so the payload's values are never trusted
+    // while profiles are enabled. A customer without a profile, or whose lookup failed or timed out,
+    // is unverified, with the orders this processor has already persisted or none.
+    private void applyCustomerProfile(Order order) {
+        if (order.getCustomer() == null || order.getCustomer().getCustomerId() == null) {
+            return;
+        }
+        String customerId = order.getCustomer().getCustomerId();
+
+        if (profiles != null && profiles.isEnabled()) {
+            Optional<CustomerProfileCache.Profile> profile = profiles.get(customerId);
+            if (profile.isPresent()) {
+                order.getCustomer().setIsVerified(profile.get().verified());
+                order.getCustomer().setTotalOrders(profile.get().totalOrders());
+                return;
+            }
+            order.getCustomer().setIsVerified(false);
+            order.getCustomer().setTotalOrders(0);
+        }
+        if (history != null && history.isEnabled()) {
+            history.get(customerId).ifPresent(orders ->
+                    order.getCustomer().setTotalOrders((int) Math.min(orders.orderCount(), Integer.MAX_VALUE)));
+        }
+    }
+
     public boolean isValid(Order order) {
         if (order == null) {
             log.error("Order is null");
@@ -5,29 +5,285 @@ import com.ecommerce.models.Order;
 import com.ecommerce.processor.entity.FraudAlert;
 import com.ecommerce.processor.entity.OrderAuditLog;
 import com.ecommerce.processor.exception.OrderPersistenceException;
+import com.ecommerce.processor.model.ProcessedOrder;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.quarkus.hibernate.orm.panache.Panache;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 @Slf4j
 @ApplicationScoped
 public class OrderPersistenceService {
 
-    private final ObjectMapper objectMapper;
+    static final String AUDIT_LOG_COLUMNS = """
+            order_id, customer_id, customer_name, customer_email, order_status,
+                total_items, subtotal, shipping_cost, voucher_discount, grand_total, payment_method,
+                payment_transaction_id, is_payment_paid, shipping_city, shipping_province, shipping_country,
+                fraud_score, is_suspicious, source, order_data, processed_at, created_at, updated_at""";
+
+    // order_audit_log is partitioned by processed_at, so order_id alone cannot be unique there.
+    // order_audit_keys pins each order to the processed_at of its first write, and every later
+    // write for that order lands on the same (order_id, processed_at) row and partition.
+    //
+    // customer_order_stats is maintained in the same statement from what the key upsert reports,
+    // not from the statement's snapshot: concurrent writes of one order all see no earlier row, but
+    // only one of them inserts the key. xmax is 0 only on a row this statement inserted, so only
+    // that write adds to the count, spend and order times. The key row also carries the order's
+    // suspicious flag; ON CONFLICT evaluates SET against the latest committed row, so was_suspicious
+    // is the flag the previous write left and a re-scored order moves the suspicious count by the
+    // difference.
+    static final String MERGE_INCOMING_AUDIT_LOGS = """
+            audit_key AS (
+                INSERT INTO order_audit_keys AS known (order_id, processed_at, is_suspicious, was_suspicious)
+                SELECT order_id, processed_at, coalesce(is_suspicious, FALSE), FALSE FROM incoming
+                ON CONFLICT (order_id) DO UPDATE SET
+                    was_suspicious = known.is_suspicious,
+                    is_suspicious = EXCLUDED.is_suspicious
+                RETURNING order_id, processed_at, is_suspicious, was_suspicious, (xmax = 0) AS inserted
+            ),
+            customer_stats AS (
+                INSERT INTO customer_order_stats AS stats (customer_id, order_count, lifetime_spend,
+                    suspicious_count, first_order_at, last_order_at, updated_at)
+                SELECT incoming.customer_id,
+                    count(*) FILTER (WHERE audit_key.inserted),
+                    coalesce(sum(incoming.grand_total) FILTER (WHERE audit_key.inserted), 0),
+                    sum((CASE WHEN audit_key.is_suspicious THEN 1 ELSE 0 END)
+                        - (CASE WHEN audit_key.was_suspicious THEN 1 ELSE 0 END)),
+                    min(incoming.created_at) FILTER (WHERE audit_key.inserted),
+                    max(incoming.created_at) FILTER (WHERE audit_key.inserted),
+                    now()
+                FROM incoming JOIN audit_key USING (order_id)
+                GROUP BY incoming.customer_id
+                ON CONFLICT (customer_id) DO UPDATE SET
+                    order_count = stats.order_count + EXCLUDED.order_count,
+                    lifetime_spend = stats.lifetime_spend + EXCLUDED.lifetime_spend,
+                    suspicious_count = stats.suspicious_count + EXCLUDED.suspicious_count,
+                    first_order_at = LEAST(stats.first_order_at, EXCLUDED.first_order_at),
+                    last_order_at = GREATEST(stats.last_order_at, EXCLUDED.last_order_at),
+                    updated_at = EXCLUDED.updated_at
+            )
+            INSERT INTO order_audit_log (%s)
+            SELECT %s
+            FROM incoming JOIN audit_key USING (order_id)
+            ON CONFLICT (order_id, processed_at) DO UPDATE SET
+                order_status = EXCLUDED.order_status,
+                fraud_score = EXCLUDED.fraud_score,
+                is_suspicious = EXCLUDED.is_suspicious,
+                order_data = EXCLUDED.order_data,
+                updated_at = EXCLUDED.updated_at
+            """.formatted(AUDIT_LOG_COLUMNS, AUDIT_LOG_COLUMNS
+                    .replace("order_id,", "incoming.order_id,")
+                    .replace("processed_at", "audit_key.processed_at"));
+
+    private static final String UPSERT_AUDIT_LOG = "WITH incoming (" + AUDIT_LOG_COLUMNS + ") AS (\n"
+            + "    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?::timestamp, ?, ?)\n"
+            + "),\n"
+            + MERGE_INCOMING_AUDIT_LOGS;
+
+    // Review state is left alone so a redelivery never reopens an alert someone already handled
+    private static final String UPSERT_FRAUD_ALERT = """
+            INSERT INTO fraud_alerts (order_id, fraud_score, risk_level, flags, recommendation, reviewed, created_at)
+            VALUES (?, ?, ?, ?, ?, FALSE, ?)
+            ON CONFLICT (order_id) DO UPDATE SET
+                fraud_score = EXCLUDED.fraud_score,
+                risk_level = EXCLUDED.risk_level,
+                flags = EXCLUDED.flags,
+                recommendation = EXCLUDED.recommendation
+            """;
 
-    public OrderPersistenceService() {
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
+    public enum AuditSink {
+        JDBC_BATCH,
+        COPY
     }
 
+    @Inject
+    AuditLogCopyWriter copyWriter;
+
+    @Inject
+    CustomerHistoryService customerHistory;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @ConfigProperty(name = "app.processing.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "app.processing.audit-sink", defaultValue = "jdbc-batch")
+    AuditSink auditSink;
+
+    // Alerts go through FraudAlertDispatcher instead, except with exactly-once processing
+    @ConfigProperty(name = "app.processing.fraud-alerts.enabled", defaultValue = "false")
+    boolean fraudAlertsAsync;
+
+    @ConfigProperty(name = "app.processing.exactly-once", defaultValue = "false")
+    boolean exactlyOnce;
+
     @Transactional
     public void saveOrderAuditLog(Order order) {
+        writeAuditLogs(List.of(buildAuditLog(new ProcessedOrder(order, null))));
+        log.info("Order {} saved to audit log", order.getOrderId());
+    }
+
+    @Transactional
+    public void saveFraudAlerts(List<FraudCheckResult> fraudResults) {
+        List<FraudAlert> alerts = new ArrayList<>(fraudResults.size());
+        for (FraudCheckResult fraudResult : fraudResults) {
+            alerts.add(buildFraudAlert(fraudResult));
+        }
+        upsertFraudAlerts(alerts);
+
+        log.warn("Saved batch of {} fraud alerts", alerts.size());
+    }
+
+    @Transactional
+    public void saveProcessedOrders(List<ProcessedOrder> processedOrders) {
+        // One row per order id; a repeated id inside the batch would make ON CONFLICT touch a row twice
+        Map<String, ProcessedOrder> latest = new LinkedHashMap<>();
+        for (ProcessedOrder processed : processedOrders) {
+            latest.put(processed.getOrder().getOrderId(), processed);
+        }
+
+        List<OrderAuditLog> auditLogs = new ArrayList<>(latest.size());
+        List<FraudAlert> alerts = new ArrayList<>();
+        for (ProcessedOrder processed : latest.values()) {
+            auditLogs.add(buildAuditLog(processed));
+            if (processed.isSuspicious() && !asyncFraudAlerts()) {
+                alerts.add(buildFraudAlert(processed.getFraudResult()));
+            }
+        }
+
+        // Audit rows first, then alerts, so each table's inserts stay contiguous for JDBC batching
+        writeAuditLogs(auditLogs);
+        upsertFraudAlerts(alerts);
+        invalidateHistoryOnCommit(auditLogs);
+
+        log.info("Saved batch of {} audit log entries and {} fraud alerts", auditLogs.size(), alerts.size());
+    }
+
+    // The audit upsert changed these customers' rows in customer_order_stats
+    private void invalidateHistoryOnCommit(List<OrderAuditLog> auditLogs) {
+        if (customerHistory == null || !customerHistory.isEnabled() || auditLogs.isEmpty()) {
+            return;
+        }
+        Set<String> customerIds = new HashSet<>();
+        auditLogs.forEach(auditLog -> customerIds.add(auditLog.getCustomerId()));
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    customerHistory.invalidate(customerIds);
+                }
+            }
+        });
+    }
+
+    private boolean asyncFraudAlerts() {
+        return fraudAlertsAsync && !exactlyOnce;
+    }
+
+    private void writeAuditLogs(List<OrderAuditLog> auditLogs) {
+        if (auditSink == AuditSink.COPY) {
+            copyWriter.upsert(auditLogs);
+        } else {
+            upsertAuditLogs(auditLogs);
+        }
+    }
+
+    private void upsertAuditLogs(List<OrderAuditLog> auditLogs) {
+        executeInBatches(UPSERT_AUDIT_LOG, auditLogs, (statement, auditLog) -> {
+            int i = 0;
+            statement.setString(++i, auditLog.getOrderId());
+            statement.setString(++i, auditLog.getCustomerId());
+            statement.setString(++i, auditLog.getCustomerName());
+            statement.setString(++i, auditLog.getCustomerEmail());
+            statement.setString(++i, auditLog.getOrderStatus());
+            statement.setInt(++i, auditLog.getTotalItems());
+            statement.setBigDecimal(++i, auditLog.getSubtotal());
+            statement.setBigDecimal(++i, auditLog.getShippingCost());
+            statement.setBigDecimal(++i, auditLog.getVoucherDiscount());
+            statement.setBigDecimal(++i, auditLog.getGrandTotal());
+            statement.setString(++i, auditLog.getPaymentMethod());
+            statement.setString(++i, auditLog.getPaymentTransactionId());
+            statement.setBoolean(++i, Boolean.TRUE.equals(auditLog.getIsPaymentPaid()));
+            statement.setString(++i, auditLog.getShippingCity());
+            statement.setString(++i, auditLog.getShippingProvince());
+            statement.setString(++i, auditLog.getShippingCountry());
+            statement.setObject(++i, auditLog.getFraudScore(), Types.DOUBLE);
+            statement.setObject(++i, auditLog.getIsSuspicious(), Types.BOOLEAN);
+            statement.setString(++i, auditLog.getSource());
+            statement.setString(++i, auditLog.getOrderData());
+            statement.setObject(++i, auditLog.getProcessedAt() != null ? auditLog.getProcessedAt() : LocalDateTime.now());
+            statement.setObject(++i, auditLog.getCreatedAt());
+            statement.setObject(++i, auditLog.getUpdatedAt());
+        });
+    }
+
+    private void upsertFraudAlerts(List<FraudAlert> alerts) {
+        executeInBatches(UPSERT_FRAUD_ALERT, alerts, (statement, alert) -> {
+            int i = 0;
+            statement.setString(++i, alert.getOrderId());
+            statement.setDouble(++i, alert.getFraudScore());
+            statement.setString(++i, alert.getRiskLevel());
+            statement.setArray(++i, statement.getConnection().createArrayOf("text", alert.getFlags()));
+            statement.setString(++i, alert.getRecommendation());
+            statement.setObject(++i, alert.getCreatedAt());
+        });
+    }
+
+    private <T> void executeInBatches(String sql, List<T> rows, RowBinder<T> binder) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        Panache.getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < rows.size(); i++) {
+                    binder.bind(statement, rows.get(i));
+                    statement.addBatch();
+                    if ((i + 1) % batchSize == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                if (rows.size() % batchSize != 0) {
+                    statement.executeBatch();
+                }
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        void bind(PreparedStatement statement, T row) throws SQLException;
+    }
+
+    // order_data reuses the JSON the validated-orders event is written with
+    private OrderAuditLog buildAuditLog(ProcessedOrder processed) {
+        Order order = processed.getOrder();
         try {
-            OrderAuditLog auditLog = OrderAuditLog.builder()
+            return OrderAuditLog.builder()
                     .orderId(order.getOrderId())
                     .customerId(order.getCustomer().getCustomerId())
                     .customerName(order.getCustomer().getName())
@@ -47,24 +303,20 @@ public class OrderPersistenceService {
                     .fraudScore(order.getFraudScore())
                     .isSuspicious(order.isSuspicious())
                     .source(order.getSource())
-                    .orderData(objectMapper.writeValueAsString(order))
+                    .orderData(processed.orderJson())
                     .processedAt(order.getUpdatedAt())
                     .createdAt(order.getCreatedAt())
                     .updatedAt(order.getUpdatedAt())
                     .build();
 
-            auditLog.persist();
-            log.info("Order {} saved to audit log with ID: {}", order.getOrderId(), auditLog.id);
-
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize order {} to JSON", order.getOrderId(), e);
             throw new OrderPersistenceException("Failed to save order audit log", e);
         }
     }
 
-    @Transactional
-    public void saveFraudAlert(FraudCheckResult fraudResult) {
-        FraudAlert alert = FraudAlert.builder()
+    private FraudAlert buildFraudAlert(FraudCheckResult fraudResult) {
+        return FraudAlert.builder()
                 .orderId(fraudResult.getOrderId())
                 .fraudScore(fraudResult.getFraudScore())
                 .riskLevel(fraudResult.getRiskLevel().name())
@@ -72,12 +324,5 @@ public class OrderPersistenceService {
                 .recommendation(fraudResult.getRecommendation())
                 .reviewed(false)
                 .build();
-
-        alert.persist();
-
-        log.warn("Fraud alert created for order {} with score: {} (Risk: {})",
-                fraudResult.getOrderId(),
-                fraudResult.getFraudScore(),
-                fraudResult.getRiskLevel());
     }
 }
@@ -0,0 +1,45 @@
+package com.ecommerce.processor.service;
+
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.PessimisticLockException;
+import jakarta.persistence.QueryTimeoutException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.hibernate.exception.JDBCConnectionException;
+import org.hibernate.exception.LockAcquisitionException;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+
+
+// Tells failures that go away on their own (a database or broker that is briefly unavailable)
+// from ones that will fail the same way every time they are retried.
+public final class TransientFailures {
+
+    private TransientFailures() {
+    }
+
+    public static boolean isTransient(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientException
+                    || t instanceof SQLRecoverableException
+                    || t instanceof JDBCConnectionException
+                    || t instanceof LockAcquisitionException
+                    || t instanceof LockTimeoutException
+                    || t instanceof PessimisticLockException
+                    || t instanceof QueryTimeoutException
+                    || t instanceof RetriableException) {
+                return true;
+            }
+            if (t instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                String sqlState = sqlException.getSQLState();
+                // Connection errors, serialization failures/deadlocks, resource exhaustion, operator intervention
+                if (sqlState.startsWith("08") || sqlState.startsWith("40")
+                        || sqlState.startsWith("53") || sqlState.startsWith("57P")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,358 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.Money;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+// Bounded sliding-window counters per key, kept in one fixed-layout buffer so the footprint is
+// fixed at construction. The buffer is either on the heap or a memory-mapped file, in which case
+// the state survives restarts. Keys map to a 4-way set by hash; a new key takes the way that was
+// seen least recently, so idle keys are evicted first. Each window is a ring of time buckets,
+// which makes the windows slide in bucket-sized steps. Each key also remembers the hashes of its
+// last few orders, so an order that is scored again is only counted once.
+//
+// Replicas are kept in step with deltas, one per recorded order, rather than slot images: bucket
+// counts only ever add up, so deltas from several writers of one key can be applied in any order
+// and an order that arrives twice is dropped by the recent hashes. Each delta names the store that
+// wrote it, which skips its own deltas since it counted them when they were recorded. A header in
+// front of the slots holds that id and, per changelog partition, the offset after the last delta
+// applied; it is written with the slots it describes, so a reopened store resumes exactly where its
+// state ends and no delta is counted twice, however many orders its key has had since.
+public class VelocityStore {
+
+    public enum Window {
+        ONE_MINUTE(10_000L, 6),
+        ONE_HOUR(600_000L, 6),
+        ONE_DAY(7_200_000L, 12);
+
+        final long bucketMillis;
+        final int buckets;
+
+        Window(long bucketMillis, int buckets) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+    }
+
+    public record Snapshot(int[] orders, long[] spendMinor) {
+
+        public int orders(Window window) {
+            return orders[window.ordinal()];
+        }
+
+        public BigDecimal spend(Window window) {
+            return BigDecimal.valueOf(spendMinor[window.ordinal()], Money.SCALE);
+        }
+
+        public Money spendMoney(Window window) {
+            return Money.ofMinor(spendMinor[window.ordinal()]);
+        }
+    }
+
+    private static final Window[] WINDOWS = Window.values();
+    private static final int WAYS = 4;
+    private static final int[] WINDOW_OFFSET = new int[WINDOWS.length];
+
+    // Slot layout: key hash, last seen, orders recorded, the recent order hashes, then per bucket a
+    // stamp, an order count and spend. The recorded count picks the next recent entry to overwrite.
+    private static final int HASH = 0;
+    private static final int LAST_SEEN = 8;
+    private static final int RECORDED = 16;
+    private static final int RECENT = 24;
+    private static final int RECENT_ORDERS = 8;
+    private static final int BUCKETS = RECENT + RECENT_ORDERS * Long.BYTES;
+    private static final int BUCKET_BYTES = Integer.BYTES * 2 + Long.BYTES;
+    // Delta layout: writer id, order hash, timestamp, spend in minor units. Deltas from before the
+    // writer id was added have no writer and are always applied.
+    private static final int DELTA_BYTES = Long.BYTES * 4;
+    private static final int LEGACY_DELTA_BYTES = Long.BYTES * 3;
+    // Header layout: writer id, then the next changelog offset for each partition
+    private static final int OWNER = 0;
+    private static final int POSITIONS = 8;
+    private static final int HEADER_BYTES = 4096;
+    public static final int MAX_PARTITIONS = (HEADER_BYTES - POSITIONS) / Long.BYTES;
+    private static final int SLOT_BYTES;
+
+    static {
+        int offset = 0;
+        for (Window window : WINDOWS) {
+            WINDOW_OFFSET[window.ordinal()] = offset;
+            offset += window.buckets;
+        }
+        SLOT_BYTES = BUCKETS + offset * BUCKET_BYTES;
+    }
+
+    private final int setMask;
+    private final ReentrantLock[] locks;
+    private final ByteBuffer buffer;
+    private final ByteBuffer header;
+    private final ByteBuffer slots;
+    private final long owner;
+
+    public VelocityStore(int capacity, int stripes) {
+        this(ByteBuffer.allocate((int) sizeFor(capacity)), capacity, stripes);
+    }
+
+    private VelocityStore(ByteBuffer buffer, int capacity, int stripes) {
+        int sets = slotCount(capacity) / WAYS;
+        this.setMask = sets - 1;
+        this.buffer = buffer;
+        this.header = buffer.slice(0, HEADER_BYTES);
+        this.slots = buffer.slice(HEADER_BYTES, buffer.capacity() - HEADER_BYTES);
+        if (header.getLong(OWNER) == 0) {
+            header.putLong(OWNER, ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE));
+        }
+        this.owner = header.getLong(OWNER);
+        this.locks = new ReentrantLock[Integer.highestOneBit(Math.max(Math.min(stripes, sets), 1))];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // Reuses the file when its size matches the capacity; otherwise it starts empty
+    public static VelocityStore open(Path file, int capacity, int stripes) throws IOException {
+        long size = sizeFor(capacity);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        if (Files.exists(file) && Files.size(file) != size) {
+            Files.delete(file);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new VelocityStore(mapped, capacity, stripes);
+        }
+    }
+
+    public static long sizeFor(int capacity) {
+        return HEADER_BYTES + (long) slotCount(capacity) * SLOT_BYTES;
+    }
+
+    private static int slotCount(int capacity) {
+        return Integer.highestOneBit(Math.max(capacity / WAYS, 1)) * WAYS;
+    }
+
+    public static int bytesPerKey() {
+        return SLOT_BYTES;
+    }
+
+    public int capacity() {
+        return slots.capacity() / SLOT_BYTES;
+    }
+
+    public long sizeBytes() {
+        return buffer.capacity();
+    }
+
+    public int size() {
+        int occupied = 0;
+        for (int slot = 0; slot < capacity(); slot++) {
+            if (slots.getLong(slot * SLOT_BYTES + HASH) != 0) {
+                occupied++;
+            }
+        }
+        return occupied;
+    }
+
+    public void flush() {
+        if (buffer instanceof MappedByteBuffer mapped) {
+            mapped.force();
+        }
+    }
+
+    public Snapshot record(String key, long timestampMillis, BigDecimal amount) {
+        return record(key, null, timestampMillis, amount == null ? 0 : Money.of(amount).minor());
+    }
+
+    // Adds one order at the given time and returns the window totals including it. An order id among
+    // the key's recent orders is not added again; without an id every call counts.
+    public Snapshot record(String key, String orderId, long timestampMillis, long spendMinor) {
+        long hash = hash(key);
+        int set = (int) hash & setMask;
+
+        ReentrantLock lock = lockFor(set);
+        lock.lock();
+        try {
+            int slot = findOrClaim(set, hash) * SLOT_BYTES;
+            add(slot, orderId == null ? 0 : hash(orderId), timestampMillis, spendMinor);
+            return snapshot(slot, timestampMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Changelog value for one recorded order, applied on other instances with apply
+    public byte[] delta(String orderId, long timestampMillis, long spendMinor) {
+        return ByteBuffer.allocate(DELTA_BYTES)
+                .putLong(owner)
+                .putLong(orderId == null ? 0 : hash(orderId))
+                .putLong(timestampMillis)
+                .putLong(spendMinor)
+                .array();
+    }
+
+    // Records the order a delta describes unless this store wrote it or the key has already counted it
+    public boolean apply(String key, byte[] delta) {
+        if (delta == null || (delta.length != DELTA_BYTES && delta.length != LEGACY_DELTA_BYTES)) {
+            return false;
+        }
+        ByteBuffer incoming = ByteBuffer.wrap(delta);
+        int body = delta.length - LEGACY_DELTA_BYTES;
+        if (body > 0 && incoming.getLong(0) == owner) {
+            return false;
+        }
+        long hash = hash(key);
+        int set = (int) hash & setMask;
+
+        ReentrantLock lock = lockFor(set);
+        lock.lock();
+        try {
+            int slot = findOrClaim(set, hash) * SLOT_BYTES;
+            return add(slot, incoming.getLong(body), incoming.getLong(body + 8), incoming.getLong(body + 16));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Applies a changelog record once: a record before the partition's position is already in the slots
+    public boolean apply(String key, byte[] delta, int partition, long offset) {
+        if (offset < position(partition)) {
+            return false;
+        }
+        boolean applied = apply(key, delta);
+        advance(partition, offset + 1);
+        return applied;
+    }
+
+    // Next changelog offset whose effect is not yet in this store, 0 when nothing has been applied
+    public long position(int partition) {
+        return header.getLong(positionOffset(partition));
+    }
+
+    // Moves past changelog records that do not touch this store; only the changelog tailer calls it
+    public void advance(int partition, long nextOffset) {
+        int at = positionOffset(partition);
+        if (nextOffset > header.getLong(at)) {
+            header.putLong(at, nextOffset);
+        }
+    }
+
+    private static int positionOffset(int partition) {
+        if (partition < 0 || partition >= MAX_PARTITIONS) {
+            throw new IllegalArgumentException("Changelog partition " + partition + " is beyond the "
+                    + MAX_PARTITIONS + " a velocity store tracks");
+        }
+        return POSITIONS + partition * Long.BYTES;
+    }
+
+    // Caller holds the set's lock
+    private boolean add(int slot, long orderHash, long timestampMillis, long spendMinor) {
+        if (orderHash != 0 && seen(slot, orderHash)) {
+            return false;
+        }
+
+        long recorded = slots.getLong(slot + RECORDED);
+        slots.putLong(slot + LAST_SEEN, Math.max(slots.getLong(slot + LAST_SEEN), timestampMillis));
+        slots.putLong(slot + RECORDED, recorded + 1);
+        if (orderHash != 0) {
+            slots.putLong(slot + RECENT + (int) (recorded % RECENT_ORDERS) * Long.BYTES, orderHash);
+        }
+
+        for (Window window : WINDOWS) {
+            int base = slot + BUCKETS + WINDOW_OFFSET[window.ordinal()] * BUCKET_BYTES;
+            int stamp = (int) (timestampMillis / window.bucketMillis);
+            int bucket = base + Math.floorMod(stamp, window.buckets) * BUCKET_BYTES;
+
+            if (slots.getInt(bucket) < stamp) {
+                slots.putInt(bucket, stamp);
+                slots.putInt(bucket + 4, 0);
+                slots.putLong(bucket + 8, 0);
+            }
+            // A late order whose bucket has already been reused is too old for this window
+            if (slots.getInt(bucket) == stamp) {
+                slots.putInt(bucket + 4, slots.getInt(bucket + 4) + 1);
+                slots.putLong(bucket + 8, slots.getLong(bucket + 8) + spendMinor);
+            }
+        }
+        return true;
+    }
+
+    private boolean seen(int slot, long orderHash) {
+        for (int i = 0; i < RECENT_ORDERS; i++) {
+            if (slots.getLong(slot + RECENT + i * Long.BYTES) == orderHash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Snapshot snapshot(int slot, long timestampMillis) {
+        int[] orders = new int[WINDOWS.length];
+        long[] spend = new long[WINDOWS.length];
+        for (Window window : WINDOWS) {
+            int base = slot + BUCKETS + WINDOW_OFFSET[window.ordinal()] * BUCKET_BYTES;
+            int stamp = (int) (timestampMillis / window.bucketMillis);
+            for (int i = 0; i < window.buckets; i++) {
+                int b = base + i * BUCKET_BYTES;
+                int bucketStamp = slots.getInt(b);
+                if (bucketStamp > stamp - window.buckets && bucketStamp <= stamp) {
+                    orders[window.ordinal()] += slots.getInt(b + 4);
+                    spend[window.ordinal()] += slots.getLong(b + 8);
+                }
+            }
+        }
+        return new Snapshot(orders, spend);
+    }
+
+    private ReentrantLock lockFor(int set) {
+        return locks[set & (locks.length - 1)];
+    }
+
+    private int find(int set, long hash) {
+        for (int slot = set * WAYS; slot < (set + 1) * WAYS; slot++) {
+            if (slots.getLong(slot * SLOT_BYTES + HASH) == hash) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int findOrClaim(int set, long hash) {
+        int found = find(set, hash);
+        if (found >= 0) {
+            return found;
+        }
+
+        int victim = set * WAYS;
+        for (int slot = victim + 1; slot < (set + 1) * WAYS; slot++) {
+            if (slots.getLong(slot * SLOT_BYTES + LAST_SEEN) < slots.getLong(victim * SLOT_BYTES + LAST_SEEN)) {
+                victim = slot;
+            }
+        }
+
+        int base = victim * SLOT_BYTES;
+        slots.put(base, new byte[SLOT_BYTES]);
+        slots.putLong(base + HASH, hash);
+        return victim;
+    }
+
+    // 64-bit FNV-1a; 0 marks an empty slot, so it is remapped
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 29;
+        return hash == 0 ? 1 : hash;
+    }
+}
@@ -0,0 +1,255 @@
+package com.ecommerce.processor.messaging;
+
+import com.ecommerce.models.Order;
+import com.ecommerce.models.WireFormat;
+import com.ecommerce.processor.model.ProcessedOrder;
+import com.ecommerce.processor.service.AuditWriteBehind;
+import com.ecommerce.processor.service.FraudDetectionService;
+import com.ecommerce.processor.service.OrderEnrichmentService;
+import com.ecommerce.processor.service.OrderPersistenceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.reactive.messaging.kafka.KafkaRecord;
+import io.smallrye.reactive.messaging.kafka.KafkaRecordBatch;
+import io.smallrye.reactive.messaging.kafka.transactions.KafkaTransactions;
+import io.smallrye.reactive.messaging.kafka.transactions.TransactionalEmitter;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Throughput of the at-least-once and exactly-once delivery paths over a run of batches.
+ * The database and the broker are stubbed with fixed latencies, so the numbers show the
+ * structural cost of exactly-once (batches committed one at a time, plus a transaction
+ * commit per batch) rather than real Kafka or PostgreSQL timings. One operation is one run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeliveryModeBenchmark {
+
+    @Param({"false", "true"})
+    boolean exactlyOnce;
+
+    @Param({"1", "5"})
+    long databaseLatencyMs;
+
+    @Param({"5"})
+    long commitLatencyMs;
+
+    @Param({"100"})
+    int batchSize;
+
+    @Param({"8"})
+    int batchesPerRun;
+
+    private OrderStreamProcessor processor;
+    private ExecutorService blockingThreads;
+    private List<KafkaRecordBatch<String, byte[]>> batches;
+    private volatile CountDownLatch acked;
+
+    @Setup
+    public void setUp() throws Exception {
+        FraudDetectionService fraudDetectionService = new FraudDetectionService();
+        setField(fraudDetectionService, "fraudDetectionEnabled", true);
+        setField(fraudDetectionService, "highRiskThreshold", 70.0);
+        setField(fraudDetectionService, "suspiciousThreshold", 50.0);
+
+        blockingThreads = Executors.newCachedThreadPool();
+
+        processor = new OrderStreamProcessor();
+        processor.enrichmentService = new OrderEnrichmentService();
+        processor.fraudDetectionService = fraudDetectionService;
+        processor.persistenceService = new SlowPersistenceService(databaseLatencyMs);
+        processor.workerPool = new KeyedWorkerPool(Runtime.getRuntime().availableProcessors());
+        processor.blockingStage = new BlockingStageExecutor(blockingThreads, 16);
+        // Every run replays the same batches, which the dedup filter would otherwise skip
+        processor.recentOrders = new RecentOrderFilter(
+                new SimpleMeterRegistry(), Duration.ofMinutes(10), 100_000, System::nanoTime);
+        processor.recentOrders.enabled = false;
+        processor.writeBehind = new AuditWriteBehind();
+        processor.validatedOrdersEmitter = new AckingEmitter();
+        processor.fraudAlertsEmitter = new AckingEmitter();
+        processor.deadLetterEmitter = new AckingEmitter();
+        processor.transactions = new CommittingTransactions(commitLatencyMs);
+        processor.exactlyOnce = exactlyOnce;
+        processor.wireFormat = WireFormat.JSON;
+
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        batches = new ArrayList<>(batchesPerRun);
+        for (int b = 0; b < batchesPerRun; b++) {
+            batches.add(createBatch(objectMapper, b));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        processor.workerPool.shutdown();
+        blockingThreads.shutdown();
+    }
+
+    @Benchmark
+    public void run() throws InterruptedException {
+        acked = new CountDownLatch(batchesPerRun);
+        // Like the connector: the next batch is only delivered once the previous stage completes
+        for (KafkaRecordBatch<String, byte[]> batch : batches) {
+            processor.processOrders(batch).toCompletableFuture().join();
+        }
+        acked.await();
+    }
+
+    @SuppressWarnings("unchecked")
+    private KafkaRecordBatch<String, byte[]> createBatch(ObjectMapper objectMapper, int batchIndex) throws Exception {
+        List<KafkaRecord<String, byte[]>> records = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            Order order = OrderProcessingBenchmark.createOrder(batchIndex * batchSize + i);
+            KafkaRecord<String, byte[]> record = mock(KafkaRecord.class);
+            when(record.getKey()).thenReturn(order.getCustomer().getCustomerId());
+            when(record.getPayload()).thenReturn(objectMapper.writeValueAsBytes(order));
+            when(record.getHeaders()).thenReturn(new RecordHeaders());
+            records.add(record);
+        }
+
+        KafkaRecordBatch<String, byte[]> batch = mock(KafkaRecordBatch.class);
+        when(batch.getRecords()).thenReturn(records);
+        when(batch.ack()).thenAnswer(invocation -> {
+            acked.countDown();
+            return CompletableFuture.completedFuture(null);
+        });
+        return batch;
+    }
+
+    private static void setField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class SlowPersistenceService extends OrderPersistenceService {
+
+        private final long latencyMs;
+
+        SlowPersistenceService(long latencyMs) {
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        public void saveProcessedOrders(List<ProcessedOrder> processedOrders) {
+            sleep(latencyMs);
+        }
+    }
+
+    static class AckingEmitter implements Emitter<byte[]> {
+
+        @Override
+        public CompletionStage<Void> send(byte[] payload) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public <M extends Message<? extends byte[]>> void send(M message) {
+            message.ack();
+        }
+
+        @Override
+        public void complete() {
+        }
+
+        @Override
+        public void error(Exception e) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean hasRequests() {
+            return true;
+        }
+    }
+
+    static class CommittingTransactions implements KafkaTransactions<byte[]> {
+
+        private final long commitLatencyMs;
+
+        CommittingTransactions(long commitLatencyMs) {
+            this.commitLatencyMs = commitLatencyMs;
+        }
+
+        @Override
+        public <R> Uni<R> withTransaction(Function<TransactionalEmitter<byte[]>, Uni<R>> work) {
+            return work.apply(new BufferingEmitter()).invoke(() -> sleep(commitLatencyMs));
+        }
+
+        @Override
+        public <R> Uni<R> withTransaction(Message<?> message, Function<TransactionalEmitter<byte[]>, Uni<R>> work) {
+            return withTransaction(work);
+        }
+
+        @Override
+        public Uni<Void> withTransactionAndAck(Message<?> message,
+                                               Function<TransactionalEmitter<byte[]>, Uni<Void>> work) {
+            return withTransaction(work).call(() -> Uni.createFrom().completionStage(message.ack()));
+        }
+
+        @Override
+        public boolean isTransactionInProgress() {
+            return false;
+        }
+    }
+
+    static class BufferingEmitter implements TransactionalEmitter<byte[]> {
+
+        private final List<Object> sent = new ArrayList<>();
+
+        @Override
+        public <M extends Message<? extends byte[]>> void send(M message) {
+            sent.add(message);
+        }
+
+        @Override
+        public void send(byte[] payload) {
+            sent.add(payload);
+        }
+
+        @Override
+        public void markForAbort() {
+        }
+
+        @Override
+        public boolean isMarkedForAbort() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.ecommerce.processor.messaging;
+
+import com.ecommerce.models.Order;
+import com.ecommerce.processor.service.FraudModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-order overhead of the in-process fraud model, scoring a poll one order at a time versus as
+ * one micro-batch. Times are per order; the p0.99 line of the sample-time output is the p99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FraudModelBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"100", "300"})
+    int trees;
+
+    @Param({"6"})
+    int depth;
+
+    private FraudModel model;
+    private List<Order> orders;
+
+    @Setup
+    public void setUp() {
+        model = FraudModel.parse(randomModel(trees, depth, new Random(42)));
+        orders = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            orders.add(OrderProcessingBenchmark.createOrder(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void perOrder(Blackhole blackhole) {
+        float[] row = new float[FraudModel.FEATURES];
+        double[] probability = new double[1];
+        for (Order order : orders) {
+            FraudModel.extract(order, row, 0);
+            model.predict(row, 1, probability);
+            blackhole.consume(probability[0]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public double[] microBatch() {
+        float[] rows = new float[BATCH_SIZE * FraudModel.FEATURES];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            FraudModel.extract(orders.get(i), rows, i);
+        }
+        double[] probabilities = new double[BATCH_SIZE];
+        model.predict(rows, BATCH_SIZE, probabilities);
+        return probabilities;
+    }
+
+    // Full binary trees over random features, in the XGBoost JSON dump layout
+    private static ObjectNode randomModel(int trees, int depth, Random random) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode model = mapper.createObjectNode()
+                .put("version", "benchmark")
+                .put("objective", "binary:logistic")
+                .put("base_margin", -2.0);
+        ArrayNode dump = model.putArray("trees");
+        for (int t = 0; t < trees; t++) {
+            dump.add(randomNode(mapper, 0, 0, depth, random));
+        }
+        return model;
+    }
+
+    private static ObjectNode randomNode(ObjectMapper mapper, int id, int level, int depth, Random random) {
+        ObjectNode node = mapper.createObjectNode().put("nodeid", id);
+        if (level == depth) {
+            return node.put("leaf", random.nextGaussian() * 0.1);
+        }
+        FraudModel.Feature feature = FraudModel.Feature.values()[random.nextInt(FraudModel.FEATURES)];
+        float split = switch (feature) {
+            case GRAND_TOTAL, MAX_UNIT_PRICE -> 100_000 + random.nextInt(2_000_000);
+            case SHIPPING_COST, VOUCHER_DISCOUNT -> random.nextInt(50_000);
+            case HOUR_OF_DAY -> random.nextInt(24);
+            default -> random.nextInt(6) + 0.5f;
+        };
+        int yes = 2 * id + 1;
+        int no = 2 * id + 2;
+        node.put("split", feature.name().toLowerCase())
+                .put("split_condition", split)
+                .put("yes", yes)
+                .put("no", no)
+                .put("missing", yes);
+        node.putArray("children")
+                .add(randomNode(mapper, yes, level + 1, depth, random))
+                .add(randomNode(mapper, no, level + 1, depth, random));
+        return node;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ecommerce.processor.messaging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@DisplayName("Keyed Worker Pool Tests")
+class KeyedWorkerPoolTest {
+
+    private KeyedWorkerPool workerPool;
+
+    @BeforeEach
+    void setUp() {
+        workerPool = new KeyedWorkerPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workerPool.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should run tasks for the same key in submission order")
+    void testPerKeyOrdering() {
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            String key = "CUST-" + (i % 7);
+            int sequence = i;
+            futures.add(workerPool.submit(key, () -> {
+                seen.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(sequence);
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        assertThat(seen).hasSize(7);
+        seen.values().forEach(sequences -> assertThat(sequences).isSorted());
+    }
+
+    @Test
+    @DisplayName("Should route the same key to the same lane")
+    void testStableLaneAssignment() {
+        assertThat(workerPool.laneFor("CUST-001")).isEqualTo(workerPool.laneFor("CUST-001"));
+        assertThat(workerPool.laneFor(3)).isBetween(0, workerPool.size() - 1);
+        assertThat(workerPool.laneFor(-3)).isBetween(0, workerPool.size() - 1);
+    }
+
+    @Test
+    @DisplayName("Should run tasks for keys on different lanes in parallel")
+    void testParallelAcrossLanes() throws Exception {
+        Object firstKey = 0;
+        Object secondKey = 1;
+        assertThat(workerPool.laneFor(firstKey)).isNotEqualTo(workerPool.laneFor(secondKey));
+
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CompletableFuture<Boolean> first = workerPool.submit(firstKey, () -> awaitQuietly(bothRunning));
+        CompletableFuture<Boolean> second = workerPool.submit(secondKey, () -> awaitQuietly(bothRunning));
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private boolean awaitQuietly(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.ecommerce.processor.messaging;
+
+import com.ecommerce.models.*;
+import com.ecommerce.processor.model.ProcessedOrder;
+import com.ecommerce.processor.service.FraudDetectionService;
+import com.ecommerce.processor.service.OrderEnrichmentService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares today's one-record-at-a-time scoring path with the keyed worker pool
+ * over the same poll-sized batch. One operation is one batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderProcessingBenchmark {
+
+    @Param({"500"})
+    int batchSize;
+
+    @Param({"2", "4", "8"})
+    int workers;
+
+    private OrderStreamProcessor processor;
+    private KeyedWorkerPool workerPool;
+    private List<byte[]> payloads;
+    private List<String> keys;
+
+    @Setup
+    public void setUp() throws Exception {
+        FraudDetectionService fraudDetectionService = new FraudDetectionService();
+        setField(fraudDetectionService, "fraudDetectionEnabled", true);
+        setField(fraudDetectionService, "highRiskThreshold", 70.0);
+        setField(fraudDetectionService, "suspiciousThreshold", 50.0);
+
+        processor = new OrderStreamProcessor();
+        processor.enrichmentService = new OrderEnrichmentService();
+        processor.fraudDetectionService = fraudDetectionService;
+
+        workerPool = new KeyedWorkerPool(workers);
+
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        payloads = new ArrayList<>(batchSize);
+        keys = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            Order order = createOrder(i);
+            payloads.add(objectMapper.writeValueAsBytes(order));
+            keys.add(order.getCustomer().getCustomerId());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        workerPool.shutdown();
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        for (byte[] payload : payloads) {
+            blackhole.consume(processor.processOrder(payload, WireFormat.JSON));
+        }
+    }
+
+    @Benchmark
+    public void keyedWorkerPool(Blackhole blackhole) {
+        List<CompletableFuture<ProcessedOrder>> pending = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            byte[] payload = payloads.get(i);
+            pending.add(workerPool.submit(keys.get(i), () -> processor.processOrder(payload, WireFormat.JSON)));
+        }
+        for (CompletableFuture<ProcessedOrder> future : pending) {
+            blackhole.consume(future.join());
+        }
+    }
+
+    private static void setField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    static Order createOrder(int index) {
+        Customer customer = Customer.builder()
+                .customerId("CUST-" + (index % 200))
+                .name("Benchmark Customer")
+                .email("bench@example.com")
+                .phone("+6281234567890")
+                .isVerified(index % 3 != 0)
+                .totalOrders(index % 5)
+                .build();
+
+        Address address = Address.builder()
+                .street("Jl. Sudirman No. 123")
+                .city("Jakarta Selatan")
+                .province("DKI Jakarta")
+                .postalCode("12190")
+                .country("Indonesia")
+                .build();
+
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            items.add(OrderItem.builder()
+                    .productId("P00" + i)
+                    .productName("Product " + i)
+                    .quantity(1 + (index + i) % 4)
+                    .unitPrice(new BigDecimal(150000 + 50000 * i))
+                    .discountPercent(BigDecimal.TEN)
+                    .taxPercent(new BigDecimal("11"))
+                    .category(i == 0 ? "ELECTRONICS" : "GENERAL")
+                    .build());
+        }
+
+        Payment payment = Payment.builder()
+                .method(index % 4 == 0 ? PaymentMethod.COD : PaymentMethod.CREDIT_CARD)
+                .amount(new BigDecimal("1000000"))
+                .currency("IDR")
+                .isPaid(true)
+                .build();
+
+        return Order.builder()
+                .orderId("ORD-BENCH-" + index)
+                .customer(customer)
+                .items(items)
+                .shippingAddress(address)
+                .payment(payment)
+                .status(OrderStatus.PENDING)
+                .createdAt(LocalDateTime.of(2024, 1, 15, 14, 30))
+                .updatedAt(LocalDateTime.of(2024, 1, 15, 14, 30))
+                .build();
+    }
+}
@@ -0,0 +1,571 @@
+package com.ecommerce.processor.messaging;
+
+import com.ecommerce.models.*;
+import com.ecommerce.processor.exception.InvalidOrderException;
+import com.ecommerce.processor.model.ProcessedOrder;
+import com.ecommerce.processor.service.AuditWriteBehind;
+import com.ecommerce.processor.service.FraudAlertDispatcher;
+import com.ecommerce.processor.service.FraudDetectionService;
+import com.ecommerce.processor.service.OrderEnrichmentService;
+import com.ecommerce.processor.service.OrderPersistenceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.reactive.messaging.kafka.KafkaRecord;
+import io.smallrye.reactive.messaging.kafka.KafkaRecordBatch;
+import io.smallrye.reactive.messaging.kafka.OutgoingKafkaRecord;
+import io.smallrye.reactive.messaging.kafka.api.IncomingKafkaRecordMetadata;
+import io.smallrye.reactive.messaging.kafka.fault.KafkaDeadLetterQueue;
+import io.smallrye.reactive.messaging.kafka.transactions.KafkaTransactions;
+import io.smallrye.reactive.messaging.kafka.transactions.TransactionalEmitter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Order Stream Processor Tests")
+class OrderStreamProcessorTest {
+
+    @Spy
+    private OrderEnrichmentService enrichmentService;
+
+    @Spy
+    private FraudDetectionService fraudDetectionService;
+
+    @Mock
+    private OrderPersistenceService persistenceService;
+
+    @Mock
+    private Emitter<byte[]> validatedOrdersEmitter;
+
+    @Mock
+    private Emitter<byte[]> fraudAlertsEmitter;
+
+    @Mock
+    private Emitter<byte[]> deadLetterEmitter;
+
+    @Mock
+    private KafkaTransactions<byte[]> transactions;
+
+    @Mock
+    private AuditWriteBehind writeBehind;
+
+    @Mock
+    private FraudAlertDispatcher fraudAlerts;
+
+    @Mock
+    private KafkaRecordBatch<String, byte[]> batch;
+
+    @Captor
+    private ArgumentCaptor<List<ProcessedOrder>> processedCaptor;
+
+    @Captor
+    private ArgumentCaptor<OutgoingKafkaRecord<String, byte[]>> outputCaptor;
+
+    @InjectMocks
+    private OrderStreamProcessor processor;
+
+    private static final long TIMEOUT_MS = 5000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private ExecutorService blockingThreads;
+
+    @BeforeEach
+    void setUp() {
+        blockingThreads = Executors.newCachedThreadPool();
+        processor.workerPool = new KeyedWorkerPool(2);
+        processor.blockingStage = new BlockingStageExecutor(blockingThreads, 2);
+        processor.recentOrders = new RecentOrderFilter(
+                new SimpleMeterRegistry(), Duration.ofMinutes(10), 1000, System::nanoTime);
+        processor.retryAttempts = 2;
+        processor.retryBackoffMs = 1;
+        processor.wireFormat = WireFormat.JSON;
+        lenient().when(batch.ack()).thenReturn(CompletableFuture.completedFuture(null));
+        lenient().when(batch.nack(any())).thenReturn(CompletableFuture.completedFuture(null));
+        for (Emitter<byte[]> emitter : List.of(validatedOrdersEmitter, fraudAlertsEmitter, deadLetterEmitter)) {
+            lenient().doAnswer(invocation -> invocation.getArgument(0, Message.class).ack())
+                    .when(emitter).send(any(Message.class));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.workerPool.shutdown();
+        blockingThreads.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should persist the whole batch in one call before acknowledging")
+    void testBatchPersistedOnceThenAcked() throws Exception {
+        stubBatch(toJson(createOrder("ORD-001")), toJson(createOrder("ORD-002")));
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+        InOrder inOrder = inOrder(persistenceService, batch);
+        inOrder.verify(persistenceService).saveProcessedOrders(processedCaptor.capture());
+        inOrder.verify(batch).ack();
+
+        assertThat(processedCaptor.getValue())
+                .extracting(processed -> processed.getOrder().getOrderId())
+                .containsExactly("ORD-001", "ORD-002");
+        verify(validatedOrdersEmitter, times(2)).send(any(Message.class));
+    }
+
+    @Test
+    @DisplayName("Should dead-letter unparseable and invalid records but keep the rest of the batch")
+    void testInvalidRecordsDeadLettered() throws Exception {
+        Order noItems = createOrder("ORD-003");
+        noItems.setItems(List.of());
+
+        stubBatch("{not-json", toJson(noItems), toJson(createOrder("ORD-004")));
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+        verify(persistenceService).saveProcessedOrders(processedCaptor.capture());
+        assertThat(processedCaptor.getValue())
+                .extracting(processed -> processed.getOrder().getOrderId())
+                .containsExactly("ORD-004");
+
+        verify(deadLetterEmitter, times(2)).send(outputCaptor.capture());
+        OutgoingKafkaRecord<String, byte[]> unparseable = outputCaptor.getAllValues().get(0);
+        assertThat(unparseable.getPayload()).isEqualTo("{not-json".getBytes(StandardCharsets.UTF_8));
+        assertThat(unparseable.getKey()).isEqualTo("CUST-001");
+        assertThat(header(unparseable, KafkaDeadLetterQueue.DEAD_LETTER_EXCEPTION_CLASS_NAME))
+                .isEqualTo(InvalidOrderException.class.getName());
+        assertThat(header(unparseable, KafkaDeadLetterQueue.DEAD_LETTER_REASON))
+                .isEqualTo("Unparseable order payload");
+        assertThat(header(unparseable, KafkaDeadLetterQueue.DEAD_LETTER_TOPIC)).isEqualTo("raw-orders");
+        assertThat(header(unparseable, KafkaDeadLetterQueue.DEAD_LETTER_OFFSET)).isEqualTo("0");
+        assertThat(header(outputCaptor.getAllValues().get(1), KafkaDeadLetterQueue.DEAD_LETTER_REASON))
+                .isEqualTo("Invalid order: ORD-003");
+    }
+
+    @Test
+    @DisplayName("Should not persist anything when no record in the batch is valid")
+    void testEmptyBatchStillAcked() {
+        stubBatch("{not-json");
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+        verify(deadLetterEmitter).send(any(Message.class));
+        verify(persistenceService, never()).saveProcessedOrders(any());
+        verify(validatedOrdersEmitter, never()).send(any(Message.class));
+    }
+
+    @Test
+    @DisplayName("Should skip an order redelivered after it was stored without parsing it again")
+    void testRedeliveredOrderSkipped() throws Exception {
+        stubBatch(toJson(createOrder("ORD-013")));
+
+        processor.processOrders(batch).toCompletableFuture().join();
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+
+        processor.processOrders(batch).toCompletableFuture().join();
+        verify(batch, timeout(TIMEOUT_MS).times(2)).ack();
+
+        verify(enrichmentService, times(1)).enrichOrder(any());
+        verify(persistenceService, times(1)).saveProcessedOrders(any());
+        verify(validatedOrdersEmitter, times(1)).send(any(Message.class));
+    }
+
+    @Test
+    @DisplayName("Should retry transient database errors and then acknowledge")
+    void testTransientFailureRetried() throws Exception {
+        stubBatch(toJson(createOrder("ORD-005")));
+        doThrow(transientFailure())
+                .doThrow(transientFailure())
+                .doNothing()
+                .when(persistenceService).saveProcessedOrders(any());
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+        verify(persistenceService, times(3)).saveProcessedOrders(any());
+        verify(validatedOrdersEmitter).send(any(Message.class));
+        verify(deadLetterEmitter, never()).send(any(Message.class));
+    }
+
+    @Test
+    @DisplayName("Should dead-letter the batch instead of nacking it once transient retries are exhausted")
+    void testTransientFailureExhaustedDeadLettered() throws Exception {
+        stubBatch(toJson(createOrder("ORD-006")), toJson(createOrder("ORD-007")));
+        RuntimeException failure = transientFailure();
+        doThrow(failure).when(persistenceService).saveProcessedOrders(any());
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+        verify(persistenceService, times(3)).saveProcessedOrders(any());
+        verify(batch, never()).nack(any());
+        verify(validatedOrdersEmitter, never()).send(any(Message.class));
+        verify(deadLetterEmitter, times(2)).send(outputCaptor.capture());
+        assertThat(outputCaptor.getAllValues())
+                .extracting(output -> header(output, KafkaDeadLetterQueue.DEAD_LETTER_OFFSET))
+                .containsExactly("0", "1");
+    }
+
+    @Test
+    @DisplayName("Should dead-letter only the order the database rejects")
+    void testRejectedOrderIsolated() throws Exception {
+        stubBatch(toJson(createOrder("ORD-008")), toJson(createOrder("ORD-009")));
+        doAnswer(invocation -> {
+            List<ProcessedOrder> orders = invocation.getArgument(0);
+            if (orders.stream().anyMatch(processed -> processed.getOrder().getOrderId().equals("ORD-009"))) {
+                throw new RuntimeException("value too long for type character varying(50)");
+            }
+            return null;
+        }).when(persistenceService).saveProcessedOrders(any());
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+        verify(deadLetterEmitter).send(outputCaptor.capture());
+        assertThat(header(outputCaptor.getValue(), KafkaDeadLetterQueue.DEAD_LETTER_OFFSET)).isEqualTo("1");
+        assertThat(header(outputCaptor.getValue(), KafkaDeadLetterQueue.DEAD_LETTER_REASON))
+                .isEqualTo("value too long for type character varying(50)");
+        verify(validatedOrdersEmitter, times(1)).send(any(Message.class));
+    }
+
+    @Test
+    @DisplayName("Should not acknowledge the batch before its validated orders reach the broker")
+    void testAckWaitsForPublish() throws Exception {
+        stubBatch(toJson(createOrder("ORD-010")));
+        doNothing().when(validatedOrdersEmitter).send(any(Message.class));
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(validatedOrdersEmitter, timeout(TIMEOUT_MS)).send(outputCaptor.capture());
+        verify(batch, never()).ack();
+
+        outputCaptor.getValue().ack();
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+    }
+
+    @Test
+    @DisplayName("Should send outputs and offsets in one Kafka transaction in exactly-once mode")
+    void testExactlyOnceUsesTransaction() throws Exception {
+        processor.exactlyOnce = true;
+        stubBatch("{not-json", toJson(createOrder("ORD-011")));
+        TransactionalEmitter<byte[]> transactionalEmitter = stubTransaction();
+
+        processor.processOrders(batch).toCompletableFuture().get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        verify(transactions).withTransactionAndAck(eq(batch), any());
+        verify(transactionalEmitter, times(2)).send(outputCaptor.capture());
+        assertThat(outputCaptor.getAllValues())
+                .extracting(OutgoingKafkaRecord::getTopic)
+                .containsExactly("raw-orders-dlq", "validated-orders");
+        verify(validatedOrdersEmitter, never()).send(any(Message.class));
+        verify(deadLetterEmitter, never()).send(any(Message.class));
+        verify(batch, never()).ack();
+    }
+
+    @Test
+    @DisplayName("Should hold the next batch until the current transaction commits in exactly-once mode")
+    void testExactlyOnceCompletesAfterCommit() throws Exception {
+        processor.exactlyOnce = true;
+        stubBatch(toJson(createOrder("ORD-012")));
+        stubTransaction();
+        CountDownLatch releaseDatabase = new CountDownLatch(1);
+        doAnswer(invocation -> releaseDatabase.await(TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                .when(persistenceService).saveProcessedOrders(any());
+
+        CompletableFuture<Void> stage = processor.processOrders(batch).toCompletableFuture();
+
+        verify(persistenceService, timeout(TIMEOUT_MS)).saveProcessedOrders(any());
+        assertThat(stage).isNotDone();
+
+        releaseDatabase.countDown();
+        stage.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(transactions).withTransactionAndAck(eq(batch), any());
+    }
+
+    @Test
+    @DisplayName("Should accept the next batch while an earlier one is still persisting")
+    void testNextBatchAdmittedWhilePersisting() throws Exception {
+        stubBatch(toJson(createOrder("ORD-006")));
+        CountDownLatch releaseDatabase = new CountDownLatch(1);
+        doAnswer(invocation -> releaseDatabase.await(TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                .when(persistenceService).saveProcessedOrders(any());
+
+        processor.processOrders(batch).toCompletableFuture().get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        processor.processOrders(batch).toCompletableFuture().get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        verify(batch, never()).ack();
+        assertThat(processor.blockingStage.inFlight()).isEqualTo(2);
+
+        releaseDatabase.countDown();
+        verify(batch, timeout(TIMEOUT_MS).times(2)).ack();
+    }
+
+    @Test
+    @DisplayName("Should publish before the write-behind flush and acknowledge only after it")
+    void testWriteBehindAcksAfterFlush() throws Exception {
+        stubBatch(toJson(createOrder("ORD-014")), toJson(createOrder("ORD-015")));
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        when(writeBehind.isEnabled()).thenReturn(true);
+        when(writeBehind.enqueue(any())).thenReturn(flushed);
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(writeBehind, timeout(TIMEOUT_MS)).enqueue(processedCaptor.capture());
+        assertThat(processedCaptor.getValue())
+                .extracting(processed -> processed.getOrder().getOrderId())
+                .containsExactly("ORD-014", "ORD-015");
+        verify(validatedOrdersEmitter, times(2)).send(any(Message.class));
+        verify(batch, never()).ack();
+
+        flushed.complete(null);
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+        verify(persistenceService, never()).saveProcessedOrders(any());
+    }
+
+    @Test
+    @DisplayName("Should persist the batch directly when its write-behind flush fails")
+    void testWriteBehindFailureFallsBack() throws Exception {
+        stubBatch(toJson(createOrder("ORD-016")));
+        when(writeBehind.isEnabled()).thenReturn(true);
+        when(writeBehind.enqueue(any())).thenReturn(
+                CompletableFuture.failedFuture(new RuntimeException("flush failed")));
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+        verify(persistenceService).saveProcessedOrders(any());
+        verify(validatedOrdersEmitter, times(1)).send(any(Message.class));
+    }
+
+    @Test
+    @DisplayName("Should dead-letter an order the database rejects after its write-behind flush fails")
+    void testWriteBehindRejectedOrderDeadLettered() throws Exception {
+        stubBatch(toJson(createOrder("ORD-017")));
+        when(writeBehind.isEnabled()).thenReturn(true);
+        when(writeBehind.enqueue(any())).thenReturn(
+                CompletableFuture.failedFuture(new RuntimeException("flush failed")));
+        doThrow(new RuntimeException("value too long for type character varying(50)"))
+                .when(persistenceService).saveProcessedOrders(any());
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+        verify(deadLetterEmitter).send(any(Message.class));
+        // The weaker guarantee of write-behind: the event was already out before the row was refused
+        verify(validatedOrdersEmitter).send(any(Message.class));
+    }
+
+    @Test
+    @DisplayName("Should hand fraud alerts to the dispatcher and acknowledge once they are written")
+    void testFraudAlertsDispatched() throws Exception {
+        stubBatch(toJson(createOrder("ORD-017")));
+        when(fraudAlerts.isEnabled()).thenReturn(true);
+        CompletableFuture<Void> alertWritten = new CompletableFuture<>();
+        when(fraudAlerts.submit(any())).thenReturn(alertWritten);
+        doReturn(FraudCheckResult.builder()
+                .orderId("ORD-017")
+                .fraudScore(80.0)
+                .isSuspicious(true)
+                .riskLevel(FraudCheckResult.RiskLevel.HIGH)
+                .flags(new ArrayList<>(List.of("HIGH_VALUE_ORDER")))
+                .recommendation("REVIEW")
+                .build()).when(fraudDetectionService).analyzeOrder(any());
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(fraudAlerts, timeout(TIMEOUT_MS)).submit(argThat(alert -> alert.getOrderId().equals("ORD-017")));
+        verify(validatedOrdersEmitter, timeout(TIMEOUT_MS)).send(any(Message.class));
+        verify(fraudAlertsEmitter, never()).send(any(Message.class));
+        // The offsets wait for the alert, which is no longer part of the batch outputs
+        verify(batch, never()).ack();
+
+        alertWritten.complete(null);
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+    }
+
+    @Test
+    @DisplayName("Should publish the validated event around the order JSON kept for the audit row")
+    void testOrderJsonSharedWithEvent() throws Exception {
+        stubBatch(toJson(createOrder("ORD-018")));
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+        verify(persistenceService).saveProcessedOrders(processedCaptor.capture());
+        verify(validatedOrdersEmitter).send(outputCaptor.capture());
+        String orderJson = processedCaptor.getValue().get(0).orderJson();
+        String event = new String(outputCaptor.getValue().getPayload(), StandardCharsets.UTF_8);
+        assertThat(event).contains("\"order\":" + orderJson);
+        assertThat(objectMapper.readTree(event).get("order")).isEqualTo(objectMapper.readTree(toJson(
+                processedCaptor.getValue().get(0).getOrder())));
+    }
+
+    @Test
+    @DisplayName("Should read each record in the format its header names and publish in the configured one")
+    void testWireFormatNegotiation() throws Exception {
+        processor.wireFormat = WireFormat.BINARY;
+        stubBatch(
+                new Incoming(new RecordHeaders(), toJson(createOrder("ORD-019")).getBytes(StandardCharsets.UTF_8)),
+                new Incoming(contentType(WireFormat.BINARY.contentType()),
+                        BinaryCodec.shared().writeOrder(createOrder("ORD-020"))),
+                new Incoming(contentType("application/x-protobuf"), new byte[] {1, 2, 3}));
+
+        processor.processOrders(batch).toCompletableFuture().join();
+
+        verify(batch, timeout(TIMEOUT_MS)).ack();
+        verify(persistenceService).saveProcessedOrders(processedCaptor.capture());
+        assertThat(processedCaptor.getValue())
+                .extracting(processed -> processed.getOrder().getOrderId())
+                .containsExactly("ORD-019", "ORD-020");
+
+        verify(validatedOrdersEmitter, times(2)).send(outputCaptor.capture());
+        for (OutgoingKafkaRecord<String, byte[]> validated : outputCaptor.getAllValues()) {
+            assertThat(header(validated, WireFormat.HEADER)).isEqualTo(WireFormat.BINARY.contentType());
+            assertThat(BinaryCodec.shared().readOrderEvent(validated.getPayload()).getEventType())
+                    .isEqualTo("ORDER_VALIDATED");
+        }
+
+        verify(deadLetterEmitter).send(outputCaptor.capture());
+        OutgoingKafkaRecord<String, byte[]> unsupported = outputCaptor.getValue();
+        assertThat(header(unsupported, KafkaDeadLetterQueue.DEAD_LETTER_REASON)).isEqualTo("Unsupported order payload");
+        assertThat(header(unsupported, WireFormat.HEADER)).isEqualTo("application/x-protobuf");
+    }
+
+    private void stubBatch(String... payloads) {
+        stubBatch(Arrays.stream(payloads)
+                .map(payload -> new Incoming(new RecordHeaders(), payload.getBytes(StandardCharsets.UTF_8)))
+                .toArray(Incoming[]::new));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubBatch(Incoming... incoming) {
+        List<KafkaRecord<String, byte[]>> records = new ArrayList<>();
+        for (int i = 0; i < incoming.length; i++) {
+            KafkaRecord<String, byte[]> record = mock(KafkaRecord.class);
+            when(record.getKey()).thenReturn("CUST-001");
+            byte[] payload = incoming[i].payload();
+            when(record.getPayload()).thenReturn(payload);
+            when(record.getHeaders()).thenReturn(incoming[i].headers());
+            lenient().when(record.getMetadata(IncomingKafkaRecordMetadata.class)).thenReturn(Optional.of(
+                    new IncomingKafkaRecordMetadata<>(
+                            new ConsumerRecord<>("raw-orders", 0, i, "CUST-001", payload), "raw-orders")));
+            records.add(record);
+        }
+        when(batch.getRecords()).thenReturn(records);
+    }
+
+    private static Headers contentType(String contentType) {
+        return new RecordHeaders().add(WireFormat.HEADER, contentType.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record Incoming(Headers headers, byte[] payload) {
+    }
+
+    @SuppressWarnings("unchecked")
+    private TransactionalEmitter<byte[]> stubTransaction() {
+        TransactionalEmitter<byte[]> transactionalEmitter = mock(TransactionalEmitter.class);
+        when(transactions.withTransactionAndAck(eq(batch), any())).thenAnswer(invocation -> {
+            Function<TransactionalEmitter<byte[]>, Uni<Void>> work = invocation.getArgument(1);
+            return work.apply(transactionalEmitter);
+        });
+        return transactionalEmitter;
+    }
+
+    private static RuntimeException transientFailure() {
+        return new RuntimeException("could not execute statement",
+                new SQLTransientConnectionException("connection refused", "08001"));
+    }
+
+    private static String header(OutgoingKafkaRecord<String, byte[]> record, String name) {
+        Header header = record.getHeaders().lastHeader(name);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private String toJson(Order order) throws Exception {
+        return objectMapper.writeValueAsString(order);
+    }
+
+    private Order createOrder(String orderId) {
+        Customer customer = Customer.builder()
+                .customerId("CUST-001")
+                .name("Test Customer")
+                .email("test@example.com")
+                .phone("+6281234567890")
+                .isVerified(true)
+                .totalOrders(5)
+                .build();
+
+        Address address = Address.builder()
+                .street("Jl. Test No. 123")
+                .city("Jakarta")
+                .province("DKI Jakarta")
+                .postalCode("12345")
+                .country("Indonesia")
+                .build();
+
+        OrderItem item = OrderItem.builder()
+                .productId("P001")
+                .productName("Test Product")
+                .quantity(2)
+                .unitPrice(new BigDecimal("250000"))
+                .build();
+
+        Payment payment = Payment.builder()
+                .method(PaymentMethod.CREDIT_CARD)
+                .amount(new BigDecimal("500000"))
+                .currency("IDR")
+                .isPaid(true)
+                .build();
+
+        return Order.builder()
+                .orderId(orderId)
+                .customer(customer)
+                .items(List.of(item))
+                .shippingAddress(address)
+                .payment(payment)
+                .status(OrderStatus.PENDING)
+                .createdAt(LocalDateTime.of(2024, 1, 15, 14, 30))
+                .updatedAt(LocalDateTime.of(2024, 1, 15, 14, 30))
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.ecommerce.processor.messaging;
+
+import com.ecommerce.models.Order;
+import com.ecommerce.models.OrderItem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the order total reads made while one order passes through enrichment, fraud scoring,
+ * validation, persistence and logging, with the memoized getters versus the previous stream
+ * pipelines. Run with {@code -prof gc} for the allocation rate per order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderTotalsBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    @Param({"10"})
+    int readsPerOrder;
+
+    private List<Order> orders;
+
+    @Setup
+    public void setUp() {
+        orders = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            orders.add(OrderProcessingBenchmark.createOrder(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void recomputed(Blackhole blackhole) {
+        for (Order order : orders) {
+            for (int r = 0; r < readsPerOrder; r++) {
+                blackhole.consume(streamedGrandTotal(order));
+            }
+        }
+    }
+
+    // Each order starts with an empty cache, as one freshly deserialized from Kafka would
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void memoized(Blackhole blackhole) {
+        for (Order order : orders) {
+            for (OrderItem item : order.getItems()) {
+                item.setQuantity(item.getQuantity());
+            }
+            order.setItems(order.getItems());
+            for (int r = 0; r < readsPerOrder; r++) {
+                blackhole.consume(order.getGrandTotal());
+            }
+        }
+    }
+
+    // The getters as they were before the totals were cached
+    private static BigDecimal streamedGrandTotal(Order order) {
+        return order.getItems().stream()
+                .map(OrderTotalsBenchmark::streamedTotalPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .add(order.getShippingCost())
+                .subtract(order.getVoucherDiscount());
+    }
+
+    private static BigDecimal streamedTotalPrice(OrderItem item) {
+        return subtotal(item).subtract(discountAmount(item)).add(taxAmount(item));
+    }
+
+    private static BigDecimal discountAmount(OrderItem item) {
+        return subtotal(item).multiply(item.getDiscountPercent()).divide(HUNDRED);
+    }
+
+    private static BigDecimal taxAmount(OrderItem item) {
+        return subtotal(item).subtract(discountAmount(item)).multiply(item.getTaxPercent()).divide(HUNDRED);
+    }
+
+    private static BigDecimal subtotal(OrderItem item) {
+        return item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+    }
+}
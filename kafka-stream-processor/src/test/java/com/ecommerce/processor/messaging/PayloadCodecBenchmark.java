@@ -0,0 +1,114 @@
+package com.ecommerce.processor.messaging;
+
+import com.ecommerce.models.JsonCodec;
+import com.ecommerce.models.Order;
+import com.ecommerce.models.OrderEvent;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serde work for one raw-orders record: the dedup peek and full parse on the way in and the
+ * validated-orders event on the way out, with String payloads decoded and encoded by the Kafka
+ * String serializers versus byte[] payloads handed to Jackson directly. Run with {@code -prof gc}
+ * for the allocation rate per record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadCodecBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonCodec codec = JsonCodec.shared();
+
+    private ObjectReader stringOrderReader;
+    private ObjectWriter stringEventWriter;
+    private List<byte[]> payloads;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Configured as JsonCodec is, so only the payload type differs
+        ObjectMapper mapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .addModule(new BlackbirdModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        stringOrderReader = mapper.readerFor(Order.class);
+        stringEventWriter = mapper.writerFor(OrderEvent.class);
+
+        payloads = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            payloads.add(codec.writeOrderAsBytes(OrderProcessingBenchmark.createOrder(i)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void strings(Blackhole blackhole) throws Exception {
+        for (byte[] record : payloads) {
+            String json = new String(record, StandardCharsets.UTF_8);
+            blackhole.consume(peekOrderId(json));
+            Order order = stringOrderReader.readValue(json);
+            String event = stringEventWriter.writeValueAsString(event(order));
+            blackhole.consume(event.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void bytes(Blackhole blackhole) throws Exception {
+        for (byte[] record : payloads) {
+            blackhole.consume(RecentOrderFilter.peekOrderId(record));
+            Order order = codec.readOrder(record);
+            blackhole.consume(codec.writeOrderEvent(event(order)));
+        }
+    }
+
+    private static OrderEvent event(Order order) {
+        return OrderEvent.builder()
+                .eventId("EVT-" + order.getOrderId())
+                .eventType("ORDER_VALIDATED")
+                .timestamp(LocalDateTime.of(2024, 3, 1, 10, 0))
+                .sourceService("kafka-stream-processor")
+                .order(order)
+                .build();
+    }
+
+    // RecentOrderFilter.peekOrderId as it read String payloads
+    private static String peekOrderId(String json) throws Exception {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("order_id".equals(field)) {
+                    return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.ecommerce.processor.messaging;
+
+import com.ecommerce.models.BinaryCodec;
+import com.ecommerce.models.Order;
+import com.ecommerce.models.WireFormat;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@DisplayName("Recent Order Filter Tests")
+class RecentOrderFilterTest {
+
+    private MeterRegistry registry;
+    private AtomicLong now;
+    private RecentOrderFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        now = new AtomicLong();
+        filter = new RecentOrderFilter(registry, Duration.ofMinutes(10), 1000, now::get);
+    }
+
+    @Test
+    @DisplayName("Should flag an order id only after it has been marked processed")
+    void testDuplicateAfterProcessed() {
+        assertThat(filter.isDuplicate(payload("ORD-001"), WireFormat.JSON)).isFalse();
+
+        filter.markProcessed(List.of("ORD-001"));
+
+        assertThat(filter.isDuplicate(payload("ORD-001"), WireFormat.JSON)).isTrue();
+        assertThat(filter.isDuplicate(payload("ORD-002"), WireFormat.JSON)).isFalse();
+        assertThat(filter.isDuplicate(BinaryCodec.shared().writeOrder(Order.builder().orderId("ORD-001").build()),
+                WireFormat.BINARY)).isTrue();
+        assertThat(registry.counter("orders.dedup.hits").count()).isEqualTo(2.0);
+        assertThat(registry.counter("orders.dedup.misses").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Should remember order ids for one window and forget them after two")
+    void testTimeWindow() {
+        filter.markProcessed(List.of("ORD-001"));
+
+        now.addAndGet(Duration.ofMinutes(15).toNanos());
+        assertThat(filter.isDuplicate(payload("ORD-001"), WireFormat.JSON)).isTrue();
+
+        now.addAndGet(Duration.ofMinutes(10).toNanos());
+        assertThat(filter.isDuplicate(payload("ORD-001"), WireFormat.JSON)).isFalse();
+        assertThat(filter.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should stay within the configured number of order ids")
+    void testBounded() {
+        for (int i = 0; i < 5000; i++) {
+            filter.markProcessed(List.of("ORD-" + i));
+        }
+
+        assertThat(filter.size()).isLessThanOrEqualTo(1000);
+        assertThat(filter.isDuplicate(payload("ORD-4999"), WireFormat.JSON)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should find the order id without a full parse and ignore malformed payloads")
+    void testPeekOrderId() {
+        String nestedFirst = "{\"customer\":{\"order_id\":\"WRONG\"},\"items\":[{\"order_id\":\"WRONG\"}],\"order_id\":\"ORD-9\"}";
+
+        assertThat(RecentOrderFilter.peekOrderId(payload("ORD-1"))).isEqualTo("ORD-1");
+        assertThat(RecentOrderFilter.peekOrderId(bytes(nestedFirst))).isEqualTo("ORD-9");
+        assertThat(RecentOrderFilter.peekOrderId(bytes("{\"customer\":{}}"))).isNull();
+        assertThat(RecentOrderFilter.peekOrderId(bytes("{not-json"))).isNull();
+        assertThat(RecentOrderFilter.peekOrderId(bytes("[]"))).isNull();
+    }
+
+    private static byte[] payload(String orderId) {
+        return bytes("{\"order_id\":\"" + orderId + "\",\"status\":\"PENDING\"}");
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
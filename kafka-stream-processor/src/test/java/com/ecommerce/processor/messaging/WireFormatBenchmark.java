@@ -0,0 +1,131 @@
+package com.ecommerce.processor.messaging;
+
+import com.ecommerce.models.FraudCheckResult;
+import com.ecommerce.models.Order;
+import com.ecommerce.models.OrderEvent;
+import com.ecommerce.models.WireFormat;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode throughput of JSON versus the binary wire format for raw orders, validated
+ * order events and fraud alerts. One operation is one record. The average payload size of each
+ * type is printed once per fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"JSON", "BINARY"})
+    WireFormat format;
+
+    private List<Order> orders;
+    private List<OrderEvent> events;
+    private List<FraudCheckResult> alerts;
+    private List<byte[]> orderPayloads;
+    private List<byte[]> eventPayloads;
+    private List<byte[]> alertPayloads;
+
+    @Setup
+    public void setUp() throws Exception {
+        orders = new ArrayList<>(BATCH_SIZE);
+        events = new ArrayList<>(BATCH_SIZE);
+        alerts = new ArrayList<>(BATCH_SIZE);
+        orderPayloads = new ArrayList<>(BATCH_SIZE);
+        eventPayloads = new ArrayList<>(BATCH_SIZE);
+        alertPayloads = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Order order = OrderProcessingBenchmark.createOrder(i);
+            OrderEvent event = OrderEvent.builder()
+                    .eventId("EVT-" + i)
+                    .eventType("ORDER_VALIDATED")
+                    .timestamp(LocalDateTime.of(2024, 3, 1, 10, 0))
+                    .sourceService("kafka-stream-processor")
+                    .order(order)
+                    .build();
+            FraudCheckResult alert = FraudCheckResult.builder()
+                    .orderId(order.getOrderId())
+                    .fraudScore(72.5)
+                    .isSuspicious(true)
+                    .riskLevel(FraudCheckResult.RiskLevel.HIGH)
+                    .flags(List.of("HIGH_VALUE_ORDER", "NEW_CUSTOMER"))
+                    .recommendation("REVIEW")
+                    .build();
+            orders.add(order);
+            events.add(event);
+            alerts.add(alert);
+            orderPayloads.add(format.writeOrder(order));
+            eventPayloads.add(format.writeOrderEvent(event));
+            alertPayloads.add(format.writeFraudResult(alert));
+        }
+        System.out.printf("%n%s average payload: order %d B, event %d B, fraud alert %d B%n", format,
+                averageSize(orderPayloads), averageSize(eventPayloads), averageSize(alertPayloads));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void encodeOrder(Blackhole blackhole) throws Exception {
+        for (Order order : orders) {
+            blackhole.consume(format.writeOrder(order));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void decodeOrder(Blackhole blackhole) throws Exception {
+        for (byte[] payload : orderPayloads) {
+            blackhole.consume(format.readOrder(payload));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void encodeEvent(Blackhole blackhole) throws Exception {
+        for (OrderEvent event : events) {
+            blackhole.consume(format.writeOrderEvent(event));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void decodeEvent(Blackhole blackhole) throws Exception {
+        for (byte[] payload : eventPayloads) {
+            blackhole.consume(format.readOrderEvent(payload));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void encodeAlert(Blackhole blackhole) throws Exception {
+        for (FraudCheckResult alert : alerts) {
+            blackhole.consume(format.writeFraudResult(alert));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void decodeAlert(Blackhole blackhole) throws Exception {
+        for (byte[] payload : alertPayloads) {
+            blackhole.consume(format.readFraudResult(payload));
+        }
+    }
+
+    private static long averageSize(List<byte[]> payloads) {
+        long total = 0;
+        for (byte[] payload : payloads) {
+            total += payload.length;
+        }
+        return total / payloads.size();
+    }
+}
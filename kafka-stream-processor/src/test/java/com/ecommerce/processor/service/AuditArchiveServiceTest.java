@@ -0,0 +1,182 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.processor.entity.OrderAuditLog;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@DisplayName("Audit Archive Service Tests")
+class AuditArchiveServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 15);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should find an archived order with every column intact")
+    void testFindArchivedOrder() {
+        AuditArchiveService archive = new AuditArchiveService(directory);
+
+        Path file = archive.archive(DAY, List.of(auditLog("ORD-300"), auditLog("ORD-100"), auditLog("ORD-200")));
+
+        assertThat(file).isEqualTo(directory.resolve("2024/01/15/order_audit_log-ORD-100_ORD-300.oac"));
+        Optional<OrderAuditLog> found = archive.findArchived("ORD-200");
+        assertThat(found).isPresent();
+        OrderAuditLog order = found.get();
+        assertThat(order.id).isEqualTo(200L);
+        assertThat(order.getOrderId()).isEqualTo("ORD-200");
+        assertThat(order.getGrandTotal()).isEqualByComparingTo("512500.50");
+        assertThat(order.getPaymentTransactionId()).isNull();
+        assertThat(order.getIsSuspicious()).isTrue();
+        assertThat(order.getFraudScore()).isEqualTo(72.5);
+        assertThat(order.getOrderData()).isEqualTo("{\"order_id\":\"ORD-200\"}");
+        assertThat(order.getProcessedAt()).isEqualTo(DAY.atTime(10, 15, 30, 123_456_000));
+    }
+
+    @Test
+    @DisplayName("Should rule out files whose Bloom filter lacks the order, even inside their order_id range")
+    void testBloomFilterSkipsFiles() throws Exception {
+        List<OrderAuditLog> rows = IntStream.range(0, 1000).map(i -> 100 + 2 * i)
+                .mapToObj(number -> auditLog("ORD-" + number)).toList();
+        AuditArchiveFile.Footer footer = AuditArchiveFile.write(directory.resolve("even.oac"), rows);
+
+        assertThat(footer.mayContain("ORD-900")).isTrue();
+        long falsePositives = IntStream.range(0, 1000).map(i -> 101 + 2 * i)
+                .filter(number -> footer.mayContain("ORD-" + number)).count();
+        assertThat(falsePositives).isLessThan(50);
+        assertThat(footer.mayContain("ORD-99")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should find orders in any row group and miss orders between them")
+    void testFindAcrossRowGroups() throws Exception {
+        List<OrderAuditLog> rows = IntStream.range(100, 111).mapToObj(number -> auditLog("ORD-" + number)).toList();
+        AuditArchiveFile.Footer footer = AuditArchiveFile.write(directory.resolve("groups.oac"), rows, 4);
+
+        assertThat(footer.groups()).extracting(AuditArchiveFile.Group::firstOrderId)
+                .containsExactly("ORD-100", "ORD-104", "ORD-108");
+        for (OrderAuditLog row : rows) {
+            assertThat(AuditArchiveFile.find(footer, row.getOrderId()))
+                    .map(found -> found.id).contains(row.id);
+        }
+        assertThat(AuditArchiveFile.find(footer, "ORD-1035")).isEmpty();
+        assertThat(AuditArchiveFile.readAll(footer)).extracting(OrderAuditLog::getOrderId)
+                .containsExactlyElementsOf(rows.stream().map(OrderAuditLog::getOrderId).toList());
+    }
+
+    @Test
+    @DisplayName("Should pick up files another instance wrote to the shared directory")
+    void testIndexRefreshed() {
+        AuditArchiveService first = new AuditArchiveService(directory);
+        AuditArchiveService second = new AuditArchiveService(directory);
+
+        first.archive(DAY, List.of(auditLog("ORD-100")));
+        assertThat(second.findArchived("ORD-100")).isEmpty();
+
+        second.refreshIndex();
+        second.refreshIndex();
+        assertThat(second.archivedFiles()).isEqualTo(1);
+        assertThat(second.findArchived("ORD-100")).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should skip the archive run while another instance holds the lock")
+    void testArchiveRunLocked() throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        when(row.next()).thenReturn(true);
+        when(row.getBoolean(1)).thenReturn(false);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(row);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        AuditArchiveService archive = spy(new AuditArchiveService(directory));
+        archive.dataSource = mock(DataSource.class);
+        when(archive.dataSource.getConnection()).thenReturn(connection);
+
+        archive.archiveExclusively(DAY);
+
+        verify(archive, never()).archiveBefore(DAY);
+        verify(connection).prepareStatement("SELECT pg_try_advisory_lock(?)");
+        verify(connection).close();
+    }
+
+    @Test
+    @DisplayName("Should rewrite the same file when a slice is archived again after a failed purge")
+    void testRepeatedSliceOverwritten() {
+        AuditArchiveService archive = new AuditArchiveService(directory);
+        List<OrderAuditLog> slice = List.of(auditLog("ORD-100"), auditLog("ORD-200"));
+
+        Path first = archive.archive(DAY, slice);
+        Path second = archive.archive(DAY, slice);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(archive.archivedFiles()).isEqualTo(1);
+        assertThat(new AuditArchiveService(directory).archivedFiles()).isEqualTo(1);
+        assertThat(archive.findArchived("ORD-200")).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should rebuild the index from the files already on disk")
+    void testIndexReloaded() {
+        AuditArchiveService archive = new AuditArchiveService(directory);
+        archive.archive(DAY, List.of(auditLog("ORD-100")));
+        archive.archive(DAY, List.of(auditLog("ORD-400")));
+
+        AuditArchiveService reopened = new AuditArchiveService(directory);
+
+        assertThat(reopened.archivedFiles()).isEqualTo(2);
+        assertThat(reopened.findArchived("ORD-400")).isPresent();
+    }
+
+    private static OrderAuditLog auditLog(String orderId) {
+        long number = Long.parseLong(orderId.substring(4));
+        OrderAuditLog auditLog = OrderAuditLog.builder()
+                .orderId(orderId)
+                .customerId("CUST-001")
+                .customerName("Test Customer")
+                .customerEmail("test@example.com")
+                .orderStatus("VALIDATED")
+                .totalItems(2)
+                .subtotal(new BigDecimal("500000.00"))
+                .shippingCost(new BigDecimal("15000.00"))
+                .voucherDiscount(new BigDecimal("2499.50"))
+                .grandTotal(new BigDecimal("512500.50"))
+                .paymentMethod("CREDIT_CARD")
+                .isPaymentPaid(true)
+                .shippingCity("Jakarta")
+                .shippingProvince("DKI Jakarta")
+                .shippingCountry("Indonesia")
+                .fraudScore(72.5)
+                .isSuspicious(true)
+                .source("WEB")
+                .orderData("{\"order_id\":\"" + orderId + "\"}")
+                .processedAt(DAY.atTime(10, 15, 30, 123_456_000))
+                .createdAt(LocalDateTime.of(2024, 1, 15, 10, 0))
+                .updatedAt(LocalDateTime.of(2024, 1, 15, 10, 15))
+                .build();
+        auditLog.id = number;
+        return auditLog;
+    }
+}
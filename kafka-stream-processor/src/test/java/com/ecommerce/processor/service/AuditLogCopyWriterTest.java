@@ -0,0 +1,103 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.processor.entity.OrderAuditLog;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@DisplayName("Audit Log COPY Writer Tests")
+class AuditLogCopyWriterTest {
+
+    @Test
+    @DisplayName("Should encode numeric values as base-10000 digit groups")
+    void testEncodeNumeric() {
+        assertThat(numeric("12345.67")).containsExactly(3, 1, 0, 2, 1, 2345, 6700);
+        assertThat(numeric("15000000.00")).containsExactly(1, 1, 0, 2, 1500);
+        assertThat(numeric("0.05")).containsExactly(1, -1, 0, 2, 500);
+        assertThat(numeric("-250000")).containsExactly(1, 1, 0x4000, 0, 25);
+        assertThat(numeric("0.00")).containsExactly(0, 0, 0, 2);
+    }
+
+    @Test
+    @DisplayName("Should frame rows with the binary COPY header, field count and trailer")
+    void testBinaryFraming() throws Exception {
+        OrderAuditLog auditLog = OrderAuditLog.builder()
+                .orderId("ORD-001")
+                .customerId("CUST-001")
+                .customerName("Test Customer")
+                .customerEmail("test@example.com")
+                .orderStatus("VALIDATED")
+                .totalItems(2)
+                .subtotal(new BigDecimal("500000.00"))
+                .shippingCost(new BigDecimal("15000.00"))
+                .voucherDiscount(BigDecimal.ZERO)
+                .grandTotal(new BigDecimal("515000.00"))
+                .paymentMethod("CREDIT_CARD")
+                .isPaymentPaid(true)
+                .fraudScore(12.5)
+                .isSuspicious(false)
+                .source("WEB")
+                .orderData("{\"order_id\":\"ORD-001\"}")
+                .processedAt(LocalDateTime.of(2000, 1, 1, 0, 0, 1))
+                .createdAt(LocalDateTime.of(2000, 1, 1, 0, 0))
+                .updatedAt(LocalDateTime.of(2000, 1, 1, 0, 0))
+                .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AuditLogCopyWriter.write(out, List.of(auditLog));
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+
+        byte[] signature = new byte[11];
+        buffer.get(signature);
+        assertThat(new String(signature, 0, 6, StandardCharsets.US_ASCII)).isEqualTo("PGCOPY");
+        assertThat(buffer.getInt()).isZero();
+        assertThat(buffer.getInt()).isZero();
+
+        assertThat(buffer.getShort()).isEqualTo((short) 23);
+        assertThat(readText(buffer)).isEqualTo("ORD-001");
+        for (int i = 0; i < 10; i++) {
+            buffer.position(buffer.position() + 4 + Math.max(buffer.getInt(buffer.position()), 0));
+        }
+        assertThat(buffer.getInt()).as("null payment_transaction_id").isEqualTo(-1);
+        for (int i = 0; i < 7; i++) {
+            buffer.position(buffer.position() + 4 + Math.max(buffer.getInt(buffer.position()), 0));
+        }
+
+        int jsonbLength = buffer.getInt();
+        assertThat(buffer.get()).as("jsonb version").isEqualTo((byte) 1);
+        byte[] json = new byte[jsonbLength - 1];
+        buffer.get(json);
+        assertThat(new String(json, StandardCharsets.UTF_8)).isEqualTo("{\"order_id\":\"ORD-001\"}");
+
+        assertThat(buffer.getInt()).isEqualTo(8);
+        assertThat(buffer.getLong()).as("processed_at in microseconds since 2000-01-01").isEqualTo(1_000_000L);
+        buffer.position(buffer.position() + 24);
+
+        assertThat(buffer.getShort()).as("trailer").isEqualTo((short) -1);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    private static int[] numeric(String value) {
+        ByteBuffer buffer = ByteBuffer.wrap(AuditLogCopyWriter.encodeNumeric(new BigDecimal(value)));
+        int[] shorts = new int[buffer.remaining() / 2];
+        for (int i = 0; i < shorts.length; i++) {
+            shorts[i] = buffer.getShort();
+        }
+        return shorts;
+    }
+
+    private static String readText(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
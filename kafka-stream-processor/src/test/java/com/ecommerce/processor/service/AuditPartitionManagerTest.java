@@ -0,0 +1,91 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.processor.service.AuditPartitionManager.Granularity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@DisplayName("Audit Partition Manager Tests")
+class AuditPartitionManagerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 1, 30);
+
+    @Test
+    @DisplayName("Should create today's partition and the configured number ahead, skipping existing ones")
+    void testPartitionsToCreate() {
+        List<LocalDate> daily = AuditPartitionManager.partitionsToCreate(
+                Granularity.DAILY, TODAY, 3, List.of("order_audit_log_p20240131", "order_audit_log_default"));
+
+        assertThat(daily).containsExactly(
+                LocalDate.of(2024, 1, 30), LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 2));
+
+        List<LocalDate> monthly = AuditPartitionManager.partitionsToCreate(Granularity.MONTHLY, TODAY, 1, List.of());
+
+        assertThat(monthly).containsExactly(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 1));
+        assertThat(Granularity.MONTHLY.partitionName(monthly.get(0))).isEqualTo("order_audit_log_p202401");
+    }
+
+    @Test
+    @DisplayName("Should detach only partitions that end on or before the cutoff")
+    void testPartitionsToDetach() {
+        List<String> existing = List.of(
+                "order_audit_log_p20231102",
+                "order_audit_log_p20231031",
+                "order_audit_log_p20231101",
+                "order_audit_log_default",
+                "order_audit_log_pstaging");
+
+        assertThat(AuditPartitionManager.partitionsToDetach(Granularity.DAILY, LocalDate.of(2023, 11, 2), existing))
+                .containsExactly("order_audit_log_p20231031", "order_audit_log_p20231101");
+
+        assertThat(AuditPartitionManager.partitionsToDetach(Granularity.MONTHLY, LocalDate.of(2023, 11, 15),
+                List.of("order_audit_log_p202310", "order_audit_log_p202311")))
+                .containsExactly("order_audit_log_p202310");
+    }
+
+    @Test
+    @DisplayName("Should move rows the default partition already holds for the range into the new partition")
+    void testCreatePartitionWithRowsInDefault() {
+        EntityManager entityManager = mock(EntityManager.class);
+        Query query = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(0);
+        Query move = mock(Query.class);
+        when(entityManager.createNativeQuery(contains("WITH moved AS"))).thenReturn(move);
+        when(move.setParameter(anyString(), any())).thenReturn(move);
+        when(move.executeUpdate()).thenReturn(42);
+
+        AuditPartitionManager.createPartition(entityManager, Granularity.DAILY, TODAY, "order_audit_log_default");
+
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        verify(entityManager, atLeastOnce()).createNativeQuery(statements.capture());
+        assertThat(statements.getAllValues()).containsExactly(
+                "LOCK TABLE order_audit_log_default IN EXCLUSIVE MODE",
+                "CREATE TABLE IF NOT EXISTS order_audit_log_p20240130"
+                        + " (LIKE order_audit_log INCLUDING DEFAULTS INCLUDING CONSTRAINTS)",
+                "WITH moved AS (DELETE FROM order_audit_log_default"
+                        + " WHERE processed_at >= :start AND processed_at < :end RETURNING *)"
+                        + " INSERT INTO order_audit_log_p20240130 SELECT * FROM moved",
+                "ALTER TABLE order_audit_log ATTACH PARTITION order_audit_log_p20240130"
+                        + " FOR VALUES FROM ('2024-01-30') TO ('2024-01-31')");
+        verify(move).setParameter(eq("start"), eq(TODAY.atStartOfDay()));
+        verify(move).setParameter(eq("end"), eq(TODAY.plusDays(1).atStartOfDay()));
+    }
+}
@@ -0,0 +1,121 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.FraudCheckResult;
+import com.ecommerce.models.Order;
+import com.ecommerce.processor.model.ProcessedOrder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Audit Write-Behind Tests")
+class AuditWriteBehindTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    @Mock
+    private OrderPersistenceService persistenceService;
+
+    @Captor
+    private ArgumentCaptor<List<ProcessedOrder>> flushCaptor;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private AuditWriteBehind writeBehind;
+
+    @AfterEach
+    void tearDown() {
+        writeBehind.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should flush as soon as the size threshold is reached and record metrics")
+    void testFlushBySize() throws Exception {
+        writeBehind = new AuditWriteBehind(persistenceService, registry, 100, 3, Duration.ofSeconds(30));
+
+        CompletableFuture<Void> flushed = writeBehind.enqueue(orders("ORD-001", "ORD-002", "ORD-003"));
+
+        flushed.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(persistenceService).saveProcessedOrders(flushCaptor.capture());
+        assertThat(flushCaptor.getValue()).hasSize(3);
+        assertThat(registry.get("orders.write_behind.flush").timer().count()).isEqualTo(1);
+        assertThat(registry.get("orders.write_behind.flush.size").summary().totalAmount()).isEqualTo(3);
+        assertThat(registry.get("orders.write_behind.depth").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should flush a partial buffer once the interval elapses")
+    void testFlushByTime() throws Exception {
+        writeBehind = new AuditWriteBehind(persistenceService, registry, 100, 500, Duration.ofMillis(20));
+
+        CompletableFuture<Void> first = writeBehind.enqueue(orders("ORD-004"));
+        CompletableFuture<Void> second = writeBehind.enqueue(orders("ORD-005", "ORD-006"));
+
+        CompletableFuture.allOf(first, second).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(persistenceService, atLeastOnce()).saveProcessedOrders(any());
+    }
+
+    @Test
+    @DisplayName("Should fail every batch in a flush the database rejects")
+    void testFailedFlushCompletesExceptionally() {
+        doThrow(new RuntimeException("connection refused")).when(persistenceService).saveProcessedOrders(any());
+        writeBehind = new AuditWriteBehind(persistenceService, registry, 100, 2, Duration.ofSeconds(30));
+
+        CompletableFuture<Void> flushed = writeBehind.enqueue(orders("ORD-007", "ORD-008"));
+
+        assertThatThrownBy(() -> flushed.get(TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("connection refused");
+    }
+
+    @Test
+    @DisplayName("Should block the producer while the buffer is full")
+    void testBackpressureWhenFull() throws Exception {
+        CountDownLatch releaseDatabase = new CountDownLatch(1);
+        doAnswer(invocation -> releaseDatabase.await(TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                .when(persistenceService).saveProcessedOrders(any());
+        writeBehind = new AuditWriteBehind(persistenceService, registry, 2, 1, Duration.ofMillis(10));
+
+        writeBehind.enqueue(orders("ORD-009"));
+        verify(persistenceService, timeout(TIMEOUT_MS)).saveProcessedOrders(any());
+
+        CompletableFuture<CompletableFuture<Void>> producer =
+                CompletableFuture.supplyAsync(() -> writeBehind.enqueue(orders("ORD-010", "ORD-011", "ORD-012")));
+
+        Thread.sleep(100);
+        assertThat(producer).isNotDone();
+        assertThat(writeBehind.depth()).isEqualTo(2);
+
+        releaseDatabase.countDown();
+        producer.get(TIMEOUT_MS, TimeUnit.MILLISECONDS).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(persistenceService, times(4)).saveProcessedOrders(any());
+    }
+
+    private static List<ProcessedOrder> orders(String... orderIds) {
+        return java.util.Arrays.stream(orderIds)
+                .map(orderId -> new ProcessedOrder(
+                        Order.builder().orderId(orderId).build(),
+                        FraudCheckResult.builder().orderId(orderId).fraudScore(0.0).isSuspicious(false).build()))
+                .toList();
+    }
+}
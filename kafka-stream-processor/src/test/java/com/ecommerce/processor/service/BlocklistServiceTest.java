@@ -0,0 +1,88 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.Address;
+import com.ecommerce.models.Customer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@DisplayName("Blocklist Service Tests")
+class BlocklistServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should build lists from text files and match normalized values")
+    void testBuildAndMatch() throws Exception {
+        Files.writeString(directory.resolve("emails.txt"), "# fraud ring\nFraud@Example.com\n\n");
+        Files.writeString(directory.resolve("phones.txt"), "0812-3456-7890\n");
+        Files.writeString(directory.resolve("addresses.txt"), "12190|Jl. Sudirman  No. 1\n");
+
+        BlocklistService service = new BlocklistService(directory, new SimpleMeterRegistry());
+
+        assertThat(Files.exists(directory.resolve("emails.blf"))).isTrue();
+        assertThat(service.entries(BlocklistService.Kind.EMAIL)).isEqualTo(1);
+
+        Customer blocked = Customer.builder().email(" fraud@example.COM ").phone("+62 812 3456 7890").build();
+        Address address = Address.builder().postalCode("12190").street("jl. sudirman no. 1").build();
+        assertThat(service.isBlocked(blocked, address, BlocklistService.Kind.EMAIL)).isTrue();
+        assertThat(service.isBlocked(blocked, address, BlocklistService.Kind.PHONE)).isTrue();
+        assertThat(service.isBlocked(blocked, address, BlocklistService.Kind.ADDRESS)).isTrue();
+
+        Customer clean = Customer.builder().email("budi@example.com").phone("081299998888").build();
+        assertThat(service.isBlocked(clean, null, BlocklistService.Kind.EMAIL)).isFalse();
+        assertThat(service.isBlocked(clean, null, BlocklistService.Kind.PHONE)).isFalse();
+        assertThat(service.isBlocked(clean, null, BlocklistService.Kind.ADDRESS)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should never report a hit for values outside a large list")
+    void testNoFalseHits() throws Exception {
+        Files.writeString(directory.resolve("emails.txt"), IntStream.range(0, 50_000)
+                .mapToObj(i -> "blocked" + i + "@example.com")
+                .collect(Collectors.joining("\n")));
+        BlocklistService service = new BlocklistService(directory, new SimpleMeterRegistry());
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            Blocklist.Result result = service.check(BlocklistService.Kind.EMAIL, "customer" + i + "@example.com");
+            assertThat(result).isNotEqualTo(Blocklist.Result.HIT);
+            if (result == Blocklist.Result.FALSE_POSITIVE) {
+                falsePositives++;
+            }
+        }
+        // Sized for 1%; allow some slack
+        assertThat(falsePositives).isLessThan(300);
+        assertThat(service.check(BlocklistService.Kind.EMAIL, "blocked49999@example.com"))
+                .isEqualTo(Blocklist.Result.HIT);
+    }
+
+    @Test
+    @DisplayName("Should swap in a rebuilt list on reload")
+    void testReload() throws Exception {
+        Path source = directory.resolve("emails.txt");
+        Files.writeString(source, "old@example.com\n");
+        BlocklistService service = new BlocklistService(directory, new SimpleMeterRegistry());
+        assertThat(service.check(BlocklistService.Kind.EMAIL, "old@example.com")).isEqualTo(Blocklist.Result.HIT);
+
+        Files.writeString(source, "new@example.com\nother@example.com\n");
+        Files.setLastModifiedTime(source, FileTime.from(Instant.now().plusSeconds(60)));
+        service.reload();
+
+        assertThat(service.entries(BlocklistService.Kind.EMAIL)).isEqualTo(2);
+        assertThat(service.check(BlocklistService.Kind.EMAIL, "new@example.com")).isEqualTo(Blocklist.Result.HIT);
+        assertThat(service.check(BlocklistService.Kind.EMAIL, "old@example.com")).isNotEqualTo(Blocklist.Result.HIT);
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecommerce.processor.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@DisplayName("Customer History Service Tests")
+class CustomerHistoryServiceTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should serve repeat lookups from memory until the customer is invalidated")
+    void testCachedUntilInvalidated() {
+        AtomicLong orderCount = new AtomicLong(3);
+        AtomicLong loads = new AtomicLong();
+        CustomerHistoryService history = new CustomerHistoryService(customerId -> {
+            loads.incrementAndGet();
+            return Optional.of(new CustomerHistoryService.History(orderCount.get(), new BigDecimal("1500000.00"), 0,
+                    LocalDateTime.of(2024, 1, 1, 9, 0), LocalDateTime.of(2024, 1, 15, 14, 30)));
+        }, registry, 100, Duration.ofMinutes(10));
+
+        assertThat(history.get("CUST-001")).map(CustomerHistoryService.History::orderCount).contains(3L);
+        assertThat(history.get("CUST-001")).map(CustomerHistoryService.History::orderCount).contains(3L);
+        assertThat(loads).hasValue(1);
+
+        orderCount.set(4);
+        history.invalidate(List.of("CUST-001"));
+
+        assertThat(history.get("CUST-001")).map(CustomerHistoryService.History::orderCount).contains(4L);
+        assertThat(loads).hasValue(2);
+        assertThat(registry.get("cache.gets").tag("cache", "customer-history").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should report no history when the lookup fails")
+    void testFailedLookup() {
+        CustomerHistoryService history = new CustomerHistoryService(customerId -> {
+            throw new IllegalStateException("connection refused");
+        }, registry, 100, Duration.ofMinutes(10));
+
+        assertThat(history.get("CUST-002")).isEmpty();
+    }
+}
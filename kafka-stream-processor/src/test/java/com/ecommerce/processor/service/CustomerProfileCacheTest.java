@@ -0,0 +1,123 @@
+package com.ecommerce.processor.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@DisplayName("Customer Profile Cache Tests")
+class CustomerProfileCacheTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private CustomerProfileCache cache;
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should share one load between concurrent lookups for a customer")
+    void testSingleFlightLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        cache = new CustomerProfileCache(customerId -> {
+            loads.incrementAndGet();
+            release.await();
+            return Optional.of(new CustomerProfileCache.Profile(true, 12));
+        }, registry, 100, Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<CustomerProfileCache.Profile>>> lookups = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                lookups.add(callers.submit(() -> cache.get("CUST-001")));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<Optional<CustomerProfileCache.Profile>> lookup : lookups) {
+                assertThat(lookup.get(5, TimeUnit.SECONDS)).contains(new CustomerProfileCache.Profile(true, 12));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(registry.get("customer.profiles.load").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should cache a missing profile and report the hit ratio")
+    void testMissingProfileCached() {
+        AtomicInteger loads = new AtomicInteger();
+        cache = new CustomerProfileCache(customerId -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        }, registry, 100, Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+        assertThat(cache.get("CUST-404")).isEmpty();
+        assertThat(cache.get("CUST-404")).isEmpty();
+        assertThat(cache.get("CUST-404")).isEmpty();
+        assertThat(cache.get("CUST-404")).isEmpty();
+
+        assertThat(loads).hasValue(1);
+        assertThat(registry.get("customer.profiles.hit.ratio").gauge().value()).isEqualTo(0.75);
+    }
+
+    @Test
+    @DisplayName("Should serve the cached profile while refreshing it in the background")
+    void testRefreshAhead() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Void> refreshing = new CompletableFuture<>();
+        cache = new CustomerProfileCache(customerId -> {
+            if (loads.incrementAndGet() == 1) {
+                return Optional.of(new CustomerProfileCache.Profile(false, 1));
+            }
+            refreshing.get(5, TimeUnit.SECONDS);
+            return Optional.of(new CustomerProfileCache.Profile(true, 2));
+        }, registry, 100, Duration.ofMinutes(10), Duration.ofMillis(20), Duration.ofSeconds(5));
+
+        assertThat(cache.get("CUST-002")).contains(new CustomerProfileCache.Profile(false, 1));
+        Thread.sleep(40);
+        // Stale entry: returned at once while the reload runs
+        assertThat(cache.get("CUST-002")).contains(new CustomerProfileCache.Profile(false, 1));
+        refreshing.complete(null);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!cache.get("CUST-002").equals(Optional.of(new CustomerProfileCache.Profile(true, 2)))
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(cache.get("CUST-002")).contains(new CustomerProfileCache.Profile(true, 2));
+    }
+
+    @Test
+    @DisplayName("Should fall back to the payload when a load times out")
+    void testLoadTimeout() {
+        CountDownLatch release = new CountDownLatch(1);
+        cache = new CustomerProfileCache(customerId -> {
+            release.await();
+            return Optional.of(new CustomerProfileCache.Profile(true, 3));
+        }, registry, 100, Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofMillis(50));
+
+        assertThat(cache.get("CUST-003")).isEmpty();
+        release.countDown();
+    }
+}
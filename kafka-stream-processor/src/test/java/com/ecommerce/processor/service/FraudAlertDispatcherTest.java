@@ -0,0 +1,227 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.FraudCheckResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.reactive.messaging.kafka.api.OutgoingKafkaRecordMetadata;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.smallrye.reactive.messaging.kafka.fault.KafkaDeadLetterQueue.DEAD_LETTER_REASON;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Fraud Alert Dispatcher Tests")
+class FraudAlertDispatcherTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    @Mock
+    private OrderPersistenceService persistenceService;
+
+    @Mock
+    private Emitter<byte[]> alertsEmitter;
+
+    @Mock
+    private Emitter<byte[]> deadLetterEmitter;
+
+    @Captor
+    private ArgumentCaptor<List<FraudCheckResult>> alertsCaptor;
+
+    @Captor
+    private ArgumentCaptor<Message<byte[]>> messageCaptor;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private FraudAlertDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        for (Emitter<byte[]> emitter : List.of(alertsEmitter, deadLetterEmitter)) {
+            lenient().doAnswer(invocation -> invocation.getArgument(0, Message.class).ack())
+                    .when(emitter).send(any(Message.class));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should write and publish a full batch of alerts")
+    void testFlushBySize() throws Exception {
+        dispatcher = new FraudAlertDispatcher(persistenceService, alertsEmitter, deadLetterEmitter, registry,
+                100, 3, Duration.ofSeconds(30), FraudAlertDispatcher.Overflow.BLOCK);
+
+        CompletableFuture<Void> first = dispatcher.submit(alert("ORD-001", 60.0)).toCompletableFuture();
+        dispatcher.submit(alert("ORD-002", 60.0));
+        dispatcher.submit(alert("ORD-003", 60.0));
+
+        first.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        verify(persistenceService, timeout(TIMEOUT_MS)).saveFraudAlerts(alertsCaptor.capture());
+        assertThat(alertsCaptor.getValue())
+                .extracting(FraudCheckResult::getOrderId)
+                .containsExactly("ORD-001", "ORD-002", "ORD-003");
+        verify(alertsEmitter, timeout(TIMEOUT_MS).times(3)).send(any(Message.class));
+    }
+
+    @Test
+    @DisplayName("Should keep only the latest pending alert for an order")
+    void testCoalescesRepeatAlerts() throws Exception {
+        dispatcher = new FraudAlertDispatcher(persistenceService, alertsEmitter, deadLetterEmitter, registry,
+                100, 2, Duration.ofSeconds(30), FraudAlertDispatcher.Overflow.BLOCK);
+
+        dispatcher.submit(alert("ORD-004", 55.0));
+        dispatcher.submit(alert("ORD-004", 85.0));
+        dispatcher.submit(alert("ORD-005", 60.0));
+
+        verify(persistenceService, timeout(TIMEOUT_MS)).saveFraudAlerts(alertsCaptor.capture());
+        assertThat(alertsCaptor.getValue())
+                .extracting(FraudCheckResult::getOrderId, FraudCheckResult::getFraudScore)
+                .containsExactly(tuple("ORD-004", 85.0), tuple("ORD-005", 60.0));
+        assertThat(registry.get("fraud.alerts.coalesced").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should write new alerts on the caller's thread while the buffer is full under the inline policy")
+    void testInlineWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            List<FraudCheckResult> alerts = invocation.getArgument(0);
+            if (alerts.get(0).getOrderId().equals("ORD-006")) {
+                writing.countDown();
+                release.await();
+            }
+            return null;
+        }).when(persistenceService).saveFraudAlerts(any());
+        dispatcher = new FraudAlertDispatcher(persistenceService, alertsEmitter, deadLetterEmitter, registry,
+                2, 1, Duration.ofMillis(10), FraudAlertDispatcher.Overflow.INLINE);
+
+        dispatcher.submit(alert("ORD-006", 60.0));
+        assertThat(writing.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        CompletableFuture<Void> buffered = dispatcher.submit(alert("ORD-007", 60.0)).toCompletableFuture();
+        dispatcher.submit(alert("ORD-008", 60.0));
+        CompletableFuture<Void> inline = dispatcher.submit(alert("ORD-009", 60.0)).toCompletableFuture();
+
+        assertThat(inline).isDone();
+        assertThat(buffered).isNotDone();
+        assertThat(registry.get("fraud.alerts.inline").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        buffered.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(persistenceService, timeout(TIMEOUT_MS).times(4)).saveFraudAlerts(any());
+    }
+
+    @Test
+    @DisplayName("Should retry a batch the database rejects")
+    void testFailedBatchRetried() throws Exception {
+        List<List<String>> attempts = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<FraudCheckResult> alerts = invocation.getArgument(0);
+            attempts.add(alerts.stream().map(FraudCheckResult::getOrderId).toList());
+            if (attempts.size() == 1) {
+                throw new RuntimeException("connection refused");
+            }
+            return null;
+        }).when(persistenceService).saveFraudAlerts(any());
+        dispatcher = new FraudAlertDispatcher(persistenceService, alertsEmitter, deadLetterEmitter, registry,
+                100, 10, Duration.ofMillis(10), FraudAlertDispatcher.Overflow.BLOCK);
+
+        dispatcher.submit(alert("ORD-010", 60.0));
+
+        verify(alertsEmitter, timeout(TIMEOUT_MS)).send(any(Message.class));
+        assertThat(attempts).containsExactly(List.of("ORD-010"), List.of("ORD-010"));
+        assertThat(registry.get("fraud.alerts.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep retrying through a database outage without using up attempts")
+    void testOutageNotCountedAsAttempts() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() <= 6) {
+                throw new SQLTransientConnectionException("connection refused", "08001");
+            }
+            return null;
+        }).when(persistenceService).saveFraudAlerts(any());
+        dispatcher = new FraudAlertDispatcher(persistenceService, alertsEmitter, deadLetterEmitter, registry,
+                100, 10, Duration.ofMillis(10), FraudAlertDispatcher.Overflow.BLOCK);
+
+        CompletionStage<Void> written = dispatcher.submit(alert("ORD-014", 60.0));
+
+        written.toCompletableFuture().get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(calls).hasValue(7);
+        verify(alertsEmitter).send(any(Message.class));
+        verify(deadLetterEmitter, never()).send(any(Message.class));
+        assertThat(registry.get("fraud.alerts.dead.lettered").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should dead-letter an alert that keeps failing on its own and write the rest of its batch")
+    void testPoisonAlertDeadLettered() throws Exception {
+        doAnswer(invocation -> {
+            List<FraudCheckResult> alerts = invocation.getArgument(0);
+            if (alerts.stream().anyMatch(alert -> alert.getOrderId().equals("ORD-013"))) {
+                throw new RuntimeException("value too long for type character varying(50)");
+            }
+            return null;
+        }).when(persistenceService).saveFraudAlerts(any());
+        dispatcher = new FraudAlertDispatcher(persistenceService, alertsEmitter, deadLetterEmitter, registry,
+                100, 10, Duration.ofMillis(10), FraudAlertDispatcher.Overflow.BLOCK);
+
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        for (String orderId : List.of("ORD-011", "ORD-012", "ORD-013")) {
+            written.add(dispatcher.submit(alert(orderId, 60.0)).toCompletableFuture());
+        }
+
+        CompletableFuture.allOf(written.toArray(new CompletableFuture[0])).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(alertsEmitter, times(2)).send(any(Message.class));
+        verify(deadLetterEmitter).send(messageCaptor.capture());
+        Message<byte[]> deadLetter = messageCaptor.getValue();
+        OutgoingKafkaRecordMetadata<?> metadata = deadLetter.getMetadata(OutgoingKafkaRecordMetadata.class).orElseThrow();
+        assertThat(metadata.getKey()).isEqualTo("ORD-013");
+        assertThat(new String(metadata.getHeaders().lastHeader(DEAD_LETTER_REASON).value(), StandardCharsets.UTF_8))
+                .isEqualTo("value too long for type character varying(50)");
+        assertThat(registry.get("fraud.alerts.dead.lettered").counter().count()).isEqualTo(1);
+        assertThat(dispatcher.depth()).isZero();
+    }
+
+    private static FraudCheckResult alert(String orderId, double score) {
+        return FraudCheckResult.builder()
+                .orderId(orderId)
+                .fraudScore(score)
+                .isSuspicious(true)
+                .riskLevel(FraudCheckResult.calculateRiskLevel(score))
+                .flags(List.of("HIGH_VALUE_ORDER"))
+                .recommendation("APPROVE_WITH_MONITORING")
+                .build();
+    }
+}
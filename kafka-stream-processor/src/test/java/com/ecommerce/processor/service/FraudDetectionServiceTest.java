@@ -1,6 +1,8 @@
 package com.ecommerce.processor.service;
 
 import com.ecommerce.models.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,8 +12,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.LongSupplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -196,6 +203,124 @@ class FraudDetectionServiceTest {
         assertThat(result.getFraudScore()).isLessThanOrEqualTo(100.0);
     }
 
+    @Test
+    @DisplayName("Should flag a burst of orders from one customer within a minute")
+    void testCustomerOrderBurst() throws Exception {
+        setField(fraudDetectionService, "features", new FraudFeatureStore(1024, 16));
+        setField(fraudDetectionService, "customerOrdersPerMinute", 3);
+        setField(fraudDetectionService, "customerOrdersPerHour", 10);
+        setField(fraudDetectionService, "customerSpendPerDay", new BigDecimal("50000000"));
+        setField(fraudDetectionService, "addressOrdersPerHour", 5);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 15, 14, 30);
+        useClock(start.plusSeconds(20), Duration.ofMinutes(5));
+
+        FraudCheckResult result = null;
+        for (int i = 0; i < 4; i++) {
+            result = fraudDetectionService.analyzeOrder(createOrder(
+                    "ORD-10" + i, new BigDecimal("500000"), PaymentMethod.CREDIT_CARD, 5, true,
+                    start.plusSeconds(i * 5L)));
+        }
+
+        assertThat(result.getFlags()).containsExactly("CUSTOMER_ORDER_BURST");
+        assertThat(result.getFraudScore()).isEqualTo(20.0);
+    }
+
+    @Test
+    @DisplayName("Should count a redelivered order once and clamp client timestamps to processing time")
+    void testVelocityRedeliveryAndClientTime() throws Exception {
+        setField(fraudDetectionService, "features", new FraudFeatureStore(1024, 16));
+        setField(fraudDetectionService, "customerOrdersPerMinute", 3);
+        setField(fraudDetectionService, "customerOrdersPerHour", 10);
+        setField(fraudDetectionService, "customerSpendPerDay", new BigDecimal("50000000"));
+        setField(fraudDetectionService, "addressOrdersPerHour", 5);
+        LocalDateTime now = LocalDateTime.of(2024, 1, 15, 14, 30);
+        useClock(now, Duration.ofSeconds(30));
+
+        Order redelivered = createOrder("ORD-200", new BigDecimal("500000"), PaymentMethod.CREDIT_CARD, 5, true, now);
+        for (int i = 0; i < 4; i++) {
+            assertThat(fraudDetectionService.analyzeOrder(redelivered).getFlags()).isEmpty();
+        }
+
+        // Backdated and future-dated orders are held within the lag, so all land in the same minute
+        List<LocalDateTime> clientTimes = List.of(now.minusDays(3), now.minusHours(2), now.plusDays(30));
+        FraudCheckResult result = null;
+        for (int i = 0; i < clientTimes.size(); i++) {
+            result = fraudDetectionService.analyzeOrder(createOrder(
+                    "ORD-21" + i, new BigDecimal("500000"), PaymentMethod.CREDIT_CARD, 5, true, clientTimes.get(i)));
+        }
+
+        assertThat(result.getFlags()).containsExactly("CUSTOMER_ORDER_BURST");
+        assertThat(fraudDetectionService.velocityTime(createOrder("ORD-201", BigDecimal.ONE,
+                PaymentMethod.CREDIT_CARD, 5, true, now.minusSeconds(10))))
+                .isEqualTo(epochMillis(now.minusSeconds(10)));
+    }
+
+    @Test
+    @DisplayName("Should read client timestamps in the checkout service's zone")
+    void testVelocityTimeClientZone() throws Exception {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 15, 14, 30);
+        useClock(now, Duration.ofMinutes(5));
+        setField(fraudDetectionService, "clientZone", Optional.of(ZoneId.of("Asia/Jakarta")));
+
+        // 21:29:50 in Jakarta is ten seconds before 14:30 UTC
+        Order order = createOrder("ORD-202", BigDecimal.ONE, PaymentMethod.CREDIT_CARD, 5, true,
+                now.plusHours(7).minusSeconds(10));
+
+        assertThat(fraudDetectionService.velocityTime(order)).isEqualTo(epochMillis(now.minusSeconds(10)));
+    }
+
+    private void useClock(LocalDateTime now, Duration maxEventLag) throws Exception {
+        setField(fraudDetectionService, "clock", (LongSupplier) () -> epochMillis(now));
+        setField(fraudDetectionService, "maxEventLag", maxEventLag);
+        setField(fraudDetectionService, "clientZone", Optional.of(ZoneOffset.UTC));
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    @Test
+    @DisplayName("Should flag orders from accounts linked by a shared phone")
+    void testLinkedAccounts() throws Exception {
+        setField(fraudDetectionService, "linkedAccounts",
+                new LinkedAccountIndex(Duration.ofHours(24), 1024, 3, new SimpleMeterRegistry()));
+        setField(fraudDetectionService, "linkedAccountsScore", 40.0);
+
+        FraudCheckResult result = null;
+        for (String customerId : List.of("CUST-001", "CUST-002", "CUST-003")) {
+            Order order = createOrder("ORD-" + customerId, new BigDecimal("500000"), PaymentMethod.CREDIT_CARD, 5, true,
+                    LocalDateTime.of(2024, 1, 15, 14, 30));
+            order.getCustomer().setCustomerId(customerId);
+            result = fraudDetectionService.analyzeOrder(order);
+        }
+
+        assertThat(result.getFlags()).containsExactly("LINKED_ACCOUNTS");
+        assertThat(result.getFraudScore()).isEqualTo(40.0);
+    }
+
+    @Test
+    @DisplayName("Should add the model score and flag to batch results")
+    void testModelScoreApplied() throws Exception {
+        FraudModel model = FraudModel.parse(new ObjectMapper().readTree("""
+                {"version": "stump", "objective": "binary:logistic", "trees": [
+                  {"nodeid": 0, "split": "payment_cod", "split_condition": 0.5, "yes": 1, "no": 2,
+                   "children": [{"nodeid": 1, "leaf": -4.0}, {"nodeid": 2, "leaf": 4.0}]}
+                ]}"""));
+        setField(fraudDetectionService, "model", new FraudModelScorer(model, new SimpleMeterRegistry(), 30.0, 0.8));
+
+        FraudCheckResult normal = fraudDetectionService.analyzeOrder(normalOrder);
+        FraudCheckResult suspicious = fraudDetectionService.analyzeOrder(suspiciousOrder);
+        boolean applied = fraudDetectionService.applyModelScores(
+                List.of(normalOrder, suspiciousOrder), List.of(normal, suspicious));
+
+        assertThat(applied).isTrue();
+        assertThat(normal.getFlags()).doesNotContain("ML_HIGH_RISK");
+        assertThat(normal.getFraudScore()).isLessThan(1.0);
+        assertThat(suspicious.getFlags()).contains("ML_HIGH_RISK");
+        assertThat(suspicious.getFraudScore()).isEqualTo(100.0);
+        assertThat(suspicious.getRecommendation()).isEqualTo("REVIEW");
+    }
+
     private Order createOrder(String orderId, BigDecimal amount, PaymentMethod paymentMethod,
                              int totalOrders, boolean isVerified, LocalDateTime createdAt) {
         Customer customer = Customer.builder()
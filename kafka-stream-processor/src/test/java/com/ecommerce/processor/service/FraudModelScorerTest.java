@@ -0,0 +1,73 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+
+@DisplayName("Fraud Model Scorer Tests")
+class FraudModelScorerTest {
+
+    // Two stumps: one on grand_total by name, one on f0 which the feature list maps to payment_cod
+    private static final String MODEL = """
+            {"version": "gbt-1", "objective": "binary:logistic", "base_margin": -1.0,
+             "features": ["payment_cod"],
+             "trees": [
+               {"nodeid": 0, "split": "grand_total", "split_condition": 5000000, "yes": 1, "no": 2, "missing": 1,
+                "children": [{"nodeid": 1, "leaf": -0.5}, {"nodeid": 2, "leaf": 1.5}]},
+               {"nodeid": 0, "split": "f0", "split_condition": 0.5, "yes": 1, "no": 2, "missing": 2,
+                "children": [{"nodeid": 1, "leaf": 0.0}, {"nodeid": 2, "leaf": 1.0}]}
+             ]}
+            """;
+
+    @Test
+    @DisplayName("Should score a batch of orders with the tree ensemble")
+    void testScoresBatch() throws Exception {
+        FraudModel model = FraudModel.parse(new ObjectMapper().readTree(MODEL));
+        FraudModelScorer scorer = new FraudModelScorer(model, new SimpleMeterRegistry(), 30.0, 0.8);
+
+        double[] probabilities = scorer.score(List.of(
+                order(new BigDecimal("1000000"), PaymentMethod.CREDIT_CARD),
+                order(new BigDecimal("8000000"), PaymentMethod.COD),
+                order(new BigDecimal("8000000"), null)));
+
+        assertThat(probabilities[0]).isCloseTo(sigmoid(-1.0 - 0.5), within(1e-9));
+        assertThat(probabilities[1]).isCloseTo(sigmoid(-1.0 + 1.5 + 1.0), within(1e-9));
+        // No payment method follows the missing branch
+        assertThat(probabilities[2]).isCloseTo(sigmoid(-1.0 + 1.5 + 1.0), within(1e-9));
+    }
+
+    @Test
+    @DisplayName("Should reject a model that splits on an unknown feature")
+    void testUnknownFeatureRejected() {
+        String model = MODEL.replace("\"grand_total\"", "\"shoe_size\"");
+
+        assertThatThrownBy(() -> FraudModel.parse(new ObjectMapper().readTree(model)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("shoe_size");
+    }
+
+    private static double sigmoid(double margin) {
+        return 1.0 / (1.0 + Math.exp(-margin));
+    }
+
+    private static Order order(BigDecimal amount, PaymentMethod method) {
+        return Order.builder()
+                .orderId("ORD-001")
+                .customer(Customer.builder().customerId("CUST-001").isVerified(true).totalOrders(2).build())
+                .items(List.of(OrderItem.builder().productId("P001").quantity(1).unitPrice(amount).build()))
+                .payment(method == null ? null : Payment.builder().method(method).amount(amount).isPaid(false).build())
+                .createdAt(LocalDateTime.of(2024, 1, 15, 14, 30))
+                .build();
+    }
+}
@@ -0,0 +1,106 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+@DisplayName("Fraud Rule Engine Tests")
+class FraudRuleEngineTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should compare money thresholds exactly, including fractions of a cent")
+    void testMoneyThresholdIsExact() {
+        FraudRuleSet ruleSet = FraudRuleSet.compile(new FraudRuleSet.Definition("test", List.of(
+                rule("HIGH_VALUE_ORDER", 15, "grand_total", "gt", "10000000"))));
+
+        assertThat(evaluate(ruleSet, order(new BigDecimal("10000000.00")))).isEmpty();
+        assertThat(evaluate(ruleSet, order(new BigDecimal("10000000.004")))).containsExactly("HIGH_VALUE_ORDER");
+    }
+
+    @Test
+    @DisplayName("Should stop evaluating once the score reaches 100")
+    void testShortCircuitAt100() {
+        FraudRuleSet ruleSet = FraudRuleSet.compile(new FraudRuleSet.Definition("test", List.of(
+                rule("FIRST", 60, "customer_total_orders", "eq", "0"),
+                rule("SECOND", 60, "payment_method", "eq", "cod"),
+                rule("THIRD", 10, "customer_verified", "eq", "false"))));
+
+        List<String> flags = new ArrayList<>();
+        double score = ruleSet.evaluate(order(BigDecimal.TEN), flags);
+
+        assertThat(score).isEqualTo(100.0);
+        assertThat(flags).containsExactly("FIRST", "SECOND");
+    }
+
+    @Test
+    @DisplayName("Should reject a rule that tests an unknown attribute")
+    void testInvalidRuleRejected() {
+        assertThatThrownBy(() -> FraudRuleSet.compile(new FraudRuleSet.Definition("bad", List.of(
+                rule("UNKNOWN", 10, "shoe_size", "gt", "42")))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("UNKNOWN");
+    }
+
+    @Test
+    @DisplayName("Should swap in a changed rule file and keep the old rules when it is broken")
+    void testReloadFromFile() throws Exception {
+        Path file = directory.resolve("fraud-rules.json");
+        Files.writeString(file, """
+                {"version": "v1", "rules": [
+                  {"flag": "COD", "score": 25, "when": [{"attribute": "payment_method", "operator": "eq", "value": "COD"}]}
+                ]}""");
+        FraudRuleEngine engine = new FraudRuleEngine(file);
+        assertThat(engine.active().version()).isEqualTo("v1");
+
+        Files.writeString(file, """
+                {"version": "v2", "rules": [
+                  {"flag": "NEW", "score": 40, "when": [{"attribute": "customer_total_orders", "operator": "eq", "value": "0"}]}
+                ]}""");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(5)));
+        engine.reloadIfChanged();
+        assertThat(engine.active().version()).isEqualTo("v2");
+        assertThat(evaluate(engine.active(), order(BigDecimal.TEN))).containsExactly("NEW");
+
+        Files.writeString(file, "{\"version\": \"v3\", \"rules\": []}");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(10)));
+        engine.reloadIfChanged();
+        assertThat(engine.active().version()).isEqualTo("v2");
+    }
+
+    private static FraudRuleSet.Rule rule(String flag, double score, String attribute, String operator, String value) {
+        return new FraudRuleSet.Rule(flag, score, List.of(new FraudRuleSet.Condition(attribute, operator, value)));
+    }
+
+    private static List<String> evaluate(FraudRuleSet ruleSet, Order order) {
+        List<String> flags = new ArrayList<>();
+        ruleSet.evaluate(order, flags);
+        return flags;
+    }
+
+    private static Order order(BigDecimal amount) {
+        return Order.builder()
+                .orderId("ORD-001")
+                .customer(Customer.builder().customerId("CUST-001").isVerified(false).totalOrders(0).build())
+                .items(List.of(OrderItem.builder().productId("P001").quantity(1).unitPrice(amount).build()))
+                .payment(Payment.builder().method(PaymentMethod.COD).amount(amount).build())
+                .createdAt(LocalDateTime.of(2024, 1, 15, 14, 30))
+                .build();
+    }
+}
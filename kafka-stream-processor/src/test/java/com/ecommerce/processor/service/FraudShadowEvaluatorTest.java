@@ -0,0 +1,82 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@DisplayName("Fraud Shadow Evaluator Tests")
+class FraudShadowEvaluatorTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private FraudShadowEvaluator evaluator;
+
+    @AfterEach
+    void tearDown() {
+        evaluator.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should count rule and decision disagreements with the active rules")
+    void testRecordsDisagreements() throws Exception {
+        FraudRuleSet candidate = FraudRuleSet.compile(new FraudRuleSet.Definition("strict", 30.0, null, List.of(
+                new FraudRuleSet.Rule("HIGH_VALUE_COD", 40, List.of(
+                        new FraudRuleSet.Condition("payment_method", "eq", "COD"),
+                        new FraudRuleSet.Condition("grand_total", "gt", "1000000"))))));
+        evaluator = new FraudShadowEvaluator(registry, List.of(candidate), 1, 10);
+
+        evaluator.submit(order(), List.of("UNVERIFIED_CUSTOMER"), 0.0, 10.0, false, 50.0);
+        awaitScored();
+
+        assertThat(registry.get("fraud.shadow.rule.disagreements")
+                .tags("candidate", "strict", "rule", "HIGH_VALUE_COD", "side", "shadow_only").counter().count())
+                .isEqualTo(1.0);
+        assertThat(registry.get("fraud.shadow.rule.disagreements")
+                .tags("candidate", "strict", "rule", "UNVERIFIED_CUSTOMER", "side", "active_only").counter().count())
+                .isEqualTo(1.0);
+        assertThat(registry.get("fraud.shadow.decision.disagreements")
+                .tags("candidate", "strict", "shadow", "suspicious").counter().count())
+                .isEqualTo(1.0);
+        assertThat(registry.get("fraud.shadow.score").tags("candidate", "strict").summary().totalAmount())
+                .isEqualTo(40.0);
+        assertThat(registry.get("fraud.shadow.cpu").tags("candidate", "strict").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should drop shadow work instead of blocking when the queue is full")
+    void testDropsWhenQueueFull() {
+        evaluator = new FraudShadowEvaluator(registry, List.of(FraudRuleSet.defaults()), 1, 1);
+
+        for (int i = 0; i < 200; i++) {
+            evaluator.submit(order(), List.of(), 0.0, 0.0, false, 50.0);
+        }
+
+        assertThat(registry.get("fraud.shadow.dropped").counter().count()).isGreaterThan(0);
+    }
+
+    private void awaitScored() throws InterruptedException {
+        for (int i = 0; i < 100 && registry.find("fraud.shadow.cpu").timer().count() == 0; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    private static Order order() {
+        BigDecimal amount = new BigDecimal("2000000");
+        return Order.builder()
+                .orderId("ORD-001")
+                .customer(Customer.builder().customerId("CUST-001").isVerified(false).totalOrders(3).build())
+                .items(List.of(OrderItem.builder().productId("P001").quantity(1).unitPrice(amount).build()))
+                .payment(Payment.builder().method(PaymentMethod.COD).amount(amount).build())
+                .createdAt(LocalDateTime.of(2024, 1, 15, 14, 30))
+                .build();
+    }
+}
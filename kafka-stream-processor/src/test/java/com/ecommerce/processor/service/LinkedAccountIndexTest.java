@@ -0,0 +1,161 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.models.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+@DisplayName("Linked Account Index Tests")
+class LinkedAccountIndexTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 15, 14, 30);
+
+    @Test
+    @DisplayName("Should link customers through a chain of shared attributes")
+    void testLinksThroughSharedAttributes() {
+        LinkedAccountIndex index = new LinkedAccountIndex(Duration.ofHours(24), 1024, 3, new SimpleMeterRegistry());
+
+        // A and B share a phone, B and C share an address, D shares nothing
+        assertThat(index.link(order("CUST-A", "0811111111", "Jl. Satu 1", null, START))).isEqualTo(1);
+        assertThat(index.link(order("CUST-B", "+62 811 111 111", "Jl. Dua 2", null, START))).isEqualTo(2);
+        assertThat(index.link(order("CUST-D", "0899999999", "Jl. Empat 4", null, START))).isEqualTo(1);
+        assertThat(index.link(order("CUST-C", "0822222222", "jl.  dua 2", null, START))).isEqualTo(3);
+        // A repeat order from a linked customer does not count it twice
+        assertThat(index.link(order("CUST-A", "0811111111", "Jl. Satu 1", null, START))).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should link customers paying with the same card")
+    void testLinksThroughCard() {
+        LinkedAccountIndex index = new LinkedAccountIndex(Duration.ofHours(24), 1024, 3, new SimpleMeterRegistry());
+
+        index.link(order("CUST-A", "0811111111", "Jl. Satu 1", "4242", START));
+        assertThat(index.link(order("CUST-B", "0822222222", "Jl. Dua 2", "4242", START))).isEqualTo(2);
+        assertThat(index.link(order("CUST-C", "0833333333", "Jl. Tiga 3", "1881", START))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should forget links older than the window, by processing time rather than createdAt")
+    void testWindowExpiry() {
+        LinkedAccountIndex index = new LinkedAccountIndex(Duration.ofHours(24), 1024, 3, new SimpleMeterRegistry());
+        AtomicLong now = new AtomicLong(epochMillis(START));
+        index.clock = now::get;
+
+        index.link(order("CUST-A", "0811111111", "Jl. Satu 1", null, START));
+        // A far-future createdAt does not move the generations on
+        index.link(order("CUST-X", "0800000000", "Jl. Nol 0", null, START.plusYears(5)));
+        now.set(epochMillis(START.plusHours(20)));
+        assertThat(index.link(order("CUST-B", "0811111111", "Jl. Dua 2", null, START))).isEqualTo(2);
+        now.set(epochMillis(START.plusHours(49)));
+        assertThat(index.link(order("CUST-C", "0811111111", "Jl. Tiga 3", null, START))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should link customers scored on another instance through the published links")
+    void testLinksReplicated() {
+        FraudFeatureStore features = mock(FraudFeatureStore.class);
+        LinkedAccountIndex first = new LinkedAccountIndex(Duration.ofHours(24), 1024, 3, new SimpleMeterRegistry());
+        LinkedAccountIndex second = new LinkedAccountIndex(Duration.ofHours(24), 1024, 3, new SimpleMeterRegistry());
+        first.features = features;
+
+        first.link(order("CUST-A", "0811111111", "Jl. Satu 1", null, START));
+        first.link(order("CUST-B", "0811111111", "Jl. Dua 2", null, START));
+        ArgumentCaptor<byte[]> links = ArgumentCaptor.forClass(byte[].class);
+        verify(features, times(2)).publishLink(anyString(), links.capture());
+        for (byte[] link : links.getAllValues()) {
+            assertThat(second.apply(link)).isTrue();
+            assertThat(first.apply(link)).isTrue();
+        }
+
+        assertThat(second.link(order("CUST-C", "0822222222", "Jl. Dua 2", null, START))).isEqualTo(3);
+        assertThat(first.link(order("CUST-B", "0811111111", "Jl. Dua 2", null, START))).isEqualTo(2);
+        assertThat(second.apply(new byte[7])).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should count every customer when many threads link into one component")
+    void testConcurrentLinks() throws Exception {
+        LinkedAccountIndex index = new LinkedAccountIndex(Duration.ofHours(24), 16384, 3, new SimpleMeterRegistry());
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> lanes = new ArrayList<>();
+            for (int lane = 0; lane < 8; lane++) {
+                int first = lane * 500;
+                lanes.add(threads.submit(() -> {
+                    // Customer i shares a phone with i - 1 when i is even and an address with it when
+                    // odd, so all 4000 customers form one chain that crosses every lane
+                    for (int i = first; i < first + 500; i++) {
+                        index.link(order("CUST-" + i, "08" + (20000000 + (i + 1) / 2), "Jl. Rantai " + i / 2,
+                                null, START));
+                    }
+                }));
+            }
+            for (Future<?> lane : lanes) {
+                lane.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+
+        assertThat(index.link(order("CUST-LAST", "0820000001", "Jl. Akhir 1", null, START))).isEqualTo(4001);
+    }
+
+    @Test
+    @DisplayName("Should refuse to start linked accounts without the changelog that replicates them")
+    void testRequiresChangelog() {
+        FraudFeatureStore features = new FraudFeatureStore();
+        features.linkedAccounts = new LinkedAccountIndex(Duration.ofHours(24), 1024, 3, new SimpleMeterRegistry());
+        features.enabled = false;
+        features.changelogEnabled = false;
+
+        assertThatThrownBy(features::init).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Should stop adding nodes once a generation is full")
+    void testCapacityBound() {
+        LinkedAccountIndex index = new LinkedAccountIndex(Duration.ofHours(24), 4, 3, new SimpleMeterRegistry());
+
+        index.link(order("CUST-A", "0811111111", "Jl. Satu 1", null, START));
+        index.link(order("CUST-B", "0811111111", "Jl. Dua 2", null, START));
+        // Both generations are full; a new customer is not linked at all
+        assertThat(index.link(order("CUST-C", "0811111111", "Jl. Dua 2", null, START))).isZero();
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static Order order(String customerId, String phone, String street, String cardLastFour,
+                               LocalDateTime createdAt) {
+        return Order.builder()
+                .orderId("ORD-" + customerId)
+                .customer(Customer.builder().customerId(customerId).phone(phone).build())
+                .shippingAddress(Address.builder().street(street).postalCode("12345").build())
+                .items(List.of(OrderItem.builder().productId("P001").quantity(1).unitPrice(new BigDecimal("100000")).build()))
+                .payment(Payment.builder().method(PaymentMethod.CREDIT_CARD).amount(new BigDecimal("100000"))
+                        .paymentGateway("midtrans").cardLastFour(cardLastFour).build())
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -1,6 +1,7 @@
 package com.ecommerce.processor.service;
 
 import com.ecommerce.models.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -9,8 +10,10 @@ import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -68,6 +71,45 @@ class OrderEnrichmentServiceTest {
         assertThat(enriched.getPayment().getAmount()).isEqualTo(correctTotal);
     }
 
+    @Test
+    @DisplayName("Should replace payload customer data with the stored profile")
+    void testCustomerProfileApplied() {
+        enrichmentService.profiles = new CustomerProfileCache(
+                customerId -> Optional.of(new CustomerProfileCache.Profile(false, 0)),
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        Order enriched = enrichmentService.enrichOrder(testOrder);
+        assertThat(enriched.getCustomer().getIsVerified()).isFalse();
+        assertThat(enriched.getCustomer().getTotalOrders()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should take the order count from persisted history when there is no profile")
+    void testCustomerHistoryFallback() {
+        enrichmentService.profiles = new CustomerProfileCache(customerId -> Optional.empty(),
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofSeconds(1));
+        enrichmentService.history = new CustomerHistoryService(
+                customerId -> Optional.of(new CustomerHistoryService.History(42, new BigDecimal("9000000.00"), 1,
+                        LocalDateTime.of(2023, 6, 1, 10, 0), LocalDateTime.of(2024, 1, 10, 10, 0))),
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+
+        Order enriched = enrichmentService.enrichOrder(testOrder);
+        assertThat(enriched.getCustomer().getTotalOrders()).isEqualTo(42);
+        assertThat(enriched.getCustomer().getIsVerified()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should treat the customer as unverified with no orders when the profile lookup fails")
+    void testCustomerProfileUnavailable() {
+        enrichmentService.profiles = new CustomerProfileCache(customerId -> {
+            throw new IllegalStateException("database unavailable");
+        }, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        Order enriched = enrichmentService.enrichOrder(testOrder);
+        assertThat(enriched.getCustomer().getIsVerified()).isFalse();
+        assertThat(enriched.getCustomer().getTotalOrders()).isZero();
+    }
+
     @Test
     @DisplayName("Should validate order successfully")
     void testValidOrder() {
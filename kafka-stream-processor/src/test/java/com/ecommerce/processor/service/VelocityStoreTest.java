@@ -0,0 +1,200 @@
+package com.ecommerce.processor.service;
+
+import com.ecommerce.processor.service.VelocityStore.Window;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@DisplayName("Velocity Store Tests")
+class VelocityStoreTest {
+
+    private static final long START = 1_705_300_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    @DisplayName("Should count orders and spend per window and let old orders slide out")
+    void testSlidingWindows() {
+        VelocityStore store = new VelocityStore(1024, 16);
+
+        store.record("CUST-001", START, new BigDecimal("100000.00"));
+        store.record("CUST-001", START + 10_000, new BigDecimal("250000.50"));
+        VelocityStore.Snapshot burst = store.record("CUST-001", START + 20_000, new BigDecimal("50000"));
+
+        assertThat(burst.orders(Window.ONE_MINUTE)).isEqualTo(3);
+        assertThat(burst.spend(Window.ONE_MINUTE)).isEqualByComparingTo("400000.50");
+
+        VelocityStore.Snapshot later = store.record("CUST-001", START + 5 * MINUTE, BigDecimal.ONE);
+        assertThat(later.orders(Window.ONE_MINUTE)).isEqualTo(1);
+        assertThat(later.orders(Window.ONE_HOUR)).isEqualTo(4);
+
+        VelocityStore.Snapshot nextDay = store.record("CUST-001", START + 25 * 60 * MINUTE, BigDecimal.ONE);
+        assertThat(nextDay.orders(Window.ONE_HOUR)).isEqualTo(1);
+        assertThat(nextDay.orders(Window.ONE_DAY)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep keys apart and ignore orders too late for a window")
+    void testKeysIsolatedAndLateOrdersIgnored() {
+        VelocityStore store = new VelocityStore(1024, 16);
+
+        store.record("CUST-001", START + 10 * MINUTE, BigDecimal.TEN);
+        VelocityStore.Snapshot other = store.record("CUST-002", START + 10 * MINUTE, BigDecimal.TEN);
+        VelocityStore.Snapshot late = store.record("CUST-001", START, BigDecimal.TEN);
+
+        assertThat(other.orders(Window.ONE_HOUR)).isEqualTo(1);
+        assertThat(late.orders(Window.ONE_MINUTE)).isZero();
+        assertThat(late.orders(Window.ONE_HOUR)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should count an order id once among the key's recent orders")
+    void testRecordIdempotentPerOrder() {
+        VelocityStore store = new VelocityStore(1024, 16);
+
+        store.record("CUST-001", "ORD-001", START, 1000);
+        VelocityStore.Snapshot again = store.record("CUST-001", "ORD-001", START + 1000, 1000);
+        VelocityStore.Snapshot next = store.record("CUST-001", "ORD-002", START + 2000, 500);
+
+        assertThat(again.orders(Window.ONE_MINUTE)).isEqualTo(1);
+        assertThat(again.spend(Window.ONE_MINUTE)).isEqualByComparingTo("10.00");
+        assertThat(next.orders(Window.ONE_MINUTE)).isEqualTo(2);
+        assertThat(store.record("CUST-002", "ORD-001", START, 1000).orders(Window.ONE_MINUTE)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently seen key when a set is full")
+    void testIdleKeyEvicted() {
+        VelocityStore store = new VelocityStore(4, 1);
+        assertThat(store.capacity()).isEqualTo(4);
+
+        for (int i = 0; i < 4; i++) {
+            store.record("CUST-" + i, START + i, BigDecimal.ONE);
+        }
+        store.record("CUST-0", START + 10, BigDecimal.ONE);
+        store.record("CUST-9", START + 20, BigDecimal.ONE);
+
+        assertThat(store.record("CUST-0", START + 30, BigDecimal.ONE).orders(Window.ONE_MINUTE)).isEqualTo(3);
+        assertThat(store.record("CUST-1", START + 40, BigDecimal.ONE).orders(Window.ONE_MINUTE)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep state in a mapped file across reopens")
+    void testMappedStoreSurvivesReopen(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("customer-velocity.dat");
+        VelocityStore store = VelocityStore.open(file, 1024, 16);
+        store.record("CUST-001", START, BigDecimal.TEN);
+        store.record("CUST-001", START + 1000, BigDecimal.TEN);
+        store.flush();
+
+        VelocityStore reopened = VelocityStore.open(file, 1024, 16);
+
+        assertThat(reopened.size()).isEqualTo(1);
+        assertThat(reopened.sizeBytes()).isEqualTo(VelocityStore.sizeFor(1024));
+        assertThat(reopened.record("CUST-001", START + 2000, BigDecimal.TEN).orders(Window.ONE_MINUTE)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should add up deltas from several writers of one key and apply each order once")
+    void testApplyDeltas() {
+        VelocityStore first = new VelocityStore(1024, 16);
+        VelocityStore second = new VelocityStore(1024, 16);
+        first.record("ADDR-1", "ORD-001", START, 1000);
+        second.record("ADDR-1", "ORD-002", START + 1000, 2000);
+        byte[] fromFirst = first.delta("ORD-001", START, 1000);
+        byte[] fromSecond = second.delta("ORD-002", START + 1000, 2000);
+
+        assertThat(first.apply("ADDR-1", fromSecond)).isTrue();
+        assertThat(second.apply("ADDR-1", fromFirst)).isTrue();
+        assertThat(first.apply("ADDR-1", fromFirst)).isFalse();
+        assertThat(first.apply("ADDR-1", new byte[3])).isFalse();
+
+        VelocityStore.Snapshot onFirst = first.record("ADDR-1", "ORD-002", START + 2000, 2000);
+        VelocityStore.Snapshot onSecond = second.record("ADDR-1", "ORD-001", START + 2000, 1000);
+        assertThat(onFirst.orders(Window.ONE_MINUTE)).isEqualTo(2);
+        assertThat(onFirst.spend(Window.ONE_MINUTE)).isEqualByComparingTo("30.00");
+        assertThat(onSecond.orders(Window.ONE_MINUTE)).isEqualTo(2);
+        assertThat(onSecond.spend(Window.ONE_MINUTE)).isEqualByComparingTo("30.00");
+    }
+
+    @Test
+    @DisplayName("Should skip its own echoed deltas for a key with more orders than it remembers")
+    void testOwnDeltasSkipped() {
+        VelocityStore local = new VelocityStore(1024, 16);
+        VelocityStore replica = new VelocityStore(1024, 16);
+        List<byte[]> deltas = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            local.record("CUST-001", "ORD-" + i, START + i * 1000, 100);
+            deltas.add(local.delta("ORD-" + i, START + i * 1000, 100));
+        }
+
+        for (byte[] delta : deltas) {
+            assertThat(local.apply("CUST-001", delta)).isFalse();
+            assertThat(replica.apply("CUST-001", delta)).isTrue();
+        }
+
+        assertThat(local.record("CUST-001", "ORD-12", START + 12_000, 100).orders(Window.ONE_HOUR)).isEqualTo(13);
+        assertThat(replica.record("CUST-001", "ORD-12", START + 12_000, 100).orders(Window.ONE_HOUR)).isEqualTo(13);
+    }
+
+    @Test
+    @DisplayName("Should resume a replay after the last applied offset when the store is reopened")
+    void testReplayAppliesEachOffsetOnce(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("address-velocity.dat");
+        VelocityStore writer = new VelocityStore(1024, 16);
+        VelocityStore replica = VelocityStore.open(file, 1024, 16);
+        List<byte[]> deltas = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            deltas.add(writer.delta("ORD-" + i, START + i * 1000, 100));
+        }
+        for (int offset = 0; offset < 12; offset++) {
+            assertThat(replica.apply("ADDR-1", deltas.get(offset), 0, offset)).isTrue();
+        }
+        replica.advance(1, 40);
+        replica.flush();
+
+        VelocityStore reopened = VelocityStore.open(file, 1024, 16);
+        for (int offset = 0; offset < 12; offset++) {
+            assertThat(reopened.apply("ADDR-1", deltas.get(offset), 0, offset)).isFalse();
+        }
+
+        assertThat(reopened.position(0)).isEqualTo(12);
+        assertThat(reopened.position(1)).isEqualTo(40);
+        assertThat(reopened.position(2)).isZero();
+        assertThat(reopened.record("ADDR-1", "ORD-12", START + 12_000, 100).orders(Window.ONE_HOUR)).isEqualTo(13);
+    }
+
+    @Test
+    @DisplayName("Should not lose updates from concurrent writers")
+    void testConcurrentUpdates() throws Exception {
+        VelocityStore store = new VelocityStore(1024, 16);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        store.record("ADDR-" + (i % 8), START + i, BigDecimal.ONE);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(store.record("ADDR-0", START + 1000, BigDecimal.ONE).orders(Window.ONE_MINUTE)).isEqualTo(501);
+    }
+}
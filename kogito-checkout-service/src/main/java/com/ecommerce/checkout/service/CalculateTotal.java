@@ -1,5 +1,6 @@
 package com.ecommerce.checkout.service;
 
+import com.ecommerce.models.Money;
 import com.ecommerce.models.Order;
 import javax.enterprise.context.ApplicationScoped;
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +17,14 @@ import java.util.Map;
 @ApplicationScoped
 public class CalculateTotal implements KogitoWorkItemHandler {
 
+    private static final Money COST_PER_KG = Money.of(new BigDecimal("10000"));
+
+    private static final Map<String, BigDecimal> VOUCHER_RATES = Map.of(
+        "WELCOME10", new BigDecimal("0.10"),
+        "SAVE20", new BigDecimal("0.20"),
+        "NEWYEAR", new BigDecimal("0.15")
+    );
+
     @Override
     public void executeWorkItem(KogitoWorkItem workItem, KogitoWorkItemManager manager) {
         log.info("Executing CalculateTotal task");
@@ -67,22 +76,20 @@ public class CalculateTotal implements KogitoWorkItemHandler {
                     item.getWeightGrams() * item.getQuantity() : 500 * item.getQuantity())
                 .sum();
 
-        BigDecimal costPerKg = new BigDecimal("10000");
         BigDecimal weightInKg = new BigDecimal(totalWeight).divide(new BigDecimal("1000"), 2, RoundingMode.HALF_UP);
 
-        return costPerKg.multiply(weightInKg).setScale(0, RoundingMode.HALF_UP);
+        return COST_PER_KG.times(weightInKg, 0, RoundingMode.HALF_UP).toBigDecimal().setScale(0);
     }
 
     private BigDecimal applyVoucher(String voucherCode, BigDecimal subtotal) {
         log.info("Applying voucher: {}", voucherCode);
 
-        Map<String, BigDecimal> voucherRates = Map.of(
-            "WELCOME10", new BigDecimal("0.10"), 
-            "SAVE20", new BigDecimal("0.20"),    
-            "NEWYEAR", new BigDecimal("0.15")    
-        );
-
-        BigDecimal discountRate = voucherRates.getOrDefault(voucherCode, BigDecimal.ZERO);
-        return subtotal.multiply(discountRate).setScale(0, RoundingMode.HALF_UP);
+        BigDecimal discountRate = VOUCHER_RATES.getOrDefault(voucherCode, BigDecimal.ZERO);
+        try {
+            return Money.of(subtotal).times(discountRate, 0, RoundingMode.HALF_UP).toBigDecimal().setScale(0);
+        } catch (ArithmeticException e) {
+            // Subtotal with a fraction of a sen
+            return subtotal.multiply(discountRate).setScale(0, RoundingMode.HALF_UP);
+        }
     }
 }
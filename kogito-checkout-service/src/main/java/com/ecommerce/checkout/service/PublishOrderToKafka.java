@@ -1,11 +1,12 @@
 package com.ecommerce.checkout.service;
 
 import com.ecommerce.models.Order;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ecommerce.models.WireFormat;
+import io.smallrye.reactive.messaging.kafka.KafkaRecord;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Emitter;
 import org.kie.kogito.internal.process.runtime.KogitoWorkItem;
@@ -22,14 +23,11 @@ public class PublishOrderToKafka implements KogitoWorkItemHandler {
 
     @Inject
     @Channel("raw-orders-out")
-    Emitter<String> kafkaEmitter;
+    Emitter<byte[]> kafkaEmitter;
 
-    private final ObjectMapper objectMapper;
-
-    public PublishOrderToKafka() {
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-    }
+    // Switch to binary only once every raw-orders consumer reads the content-type header
+    @ConfigProperty(name = "app.messaging.wire-format", defaultValue = "json")
+    WireFormat wireFormat;
 
     @Override
     public void executeWorkItem(KogitoWorkItem workItem, KogitoWorkItemManager manager) {
@@ -37,9 +35,10 @@ public class PublishOrderToKafka implements KogitoWorkItemHandler {
         try {
             Order order = (Order) workItem.getParameter("order");
             log.info("Publishing order to Kafka: {}", order.getOrderId());
-            String orderJson = objectMapper.writeValueAsString(order);
+            byte[] payload = wireFormat.writeOrder(order);
 
-            kafkaEmitter.send(orderJson);
+            kafkaEmitter.send(KafkaRecord.of(order.getCustomer().getCustomerId(), payload)
+                    .withHeader(WireFormat.HEADER, wireFormat.contentType()));
 
             log.info("Order {} published to Kafka topic: raw-orders", order.getOrderId());
 
@@ -0,0 +1,680 @@
+package com.ecommerce.models;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+// A compact binary form of the Kafka models, the alternative to JsonCodec selected by WireFormat.
+// Fields are written positionally in declaration order with no names, integers as varints and
+// decimals as a scale plus unscaled value, so an order is about a fifth of its JSON size and
+// decodes without a tokenizer.
+//
+// Layout: magic byte 0, schema id (int), then the fields of the schema. Every id that has ever
+// been written stays in Schema, which stands in for a schema registry. Adding a field means a new
+// id with the next version, written by producers only once every consumer knows it, and readers
+// branching on the version for the fields it added.
+public final class BinaryCodec {
+
+    private static final BinaryCodec SHARED = new BinaryCodec();
+
+    private static final byte MAGIC = 0;
+    private static final int HEADER_BYTES = 1 + Integer.BYTES;
+    private static final int MAX_RETAINED_BUFFER = 1 << 16;
+
+    // Listed in code order, starting at 1. Append new constants; never reorder or remove one.
+    static final EnumCodes<OrderStatus> ORDER_STATUSES = new EnumCodes<>(OrderStatus.class,
+            OrderStatus.PENDING,
+            OrderStatus.PAYMENT_PROCESSING,
+            OrderStatus.PAYMENT_CONFIRMED,
+            OrderStatus.PAYMENT_FAILED,
+            OrderStatus.VALIDATED,
+            OrderStatus.PROCESSING,
+            OrderStatus.SHIPPED,
+            OrderStatus.DELIVERED,
+            OrderStatus.CANCELLED,
+            OrderStatus.REFUNDED,
+            OrderStatus.FRAUD_SUSPECTED);
+    static final EnumCodes<PaymentMethod> PAYMENT_METHODS = new EnumCodes<>(PaymentMethod.class,
+            PaymentMethod.CREDIT_CARD,
+            PaymentMethod.DEBIT_CARD,
+            PaymentMethod.BANK_TRANSFER,
+            PaymentMethod.E_WALLET,
+            PaymentMethod.COD);
+    static final EnumCodes<FraudCheckResult.RiskLevel> RISK_LEVELS = new EnumCodes<>(FraudCheckResult.RiskLevel.class,
+            FraudCheckResult.RiskLevel.LOW,
+            FraudCheckResult.RiskLevel.MEDIUM,
+            FraudCheckResult.RiskLevel.HIGH);
+
+    enum Schema {
+        ORDER_V1(1, Order.class, 1),
+        ORDER_EVENT_V1(2, OrderEvent.class, 1),
+        FRAUD_RESULT_V1(3, FraudCheckResult.class, 1);
+
+        private static final Schema[] BY_ID = new Schema[4];
+
+        static {
+            for (Schema schema : values()) {
+                BY_ID[schema.id] = schema;
+            }
+        }
+
+        final int id;
+        final Class<?> type;
+        final int version;
+
+        Schema(int id, Class<?> type, int version) {
+            this.id = id;
+            this.type = type;
+            this.version = version;
+        }
+
+        static Schema of(int id) {
+            return id > 0 && id < BY_ID.length ? BY_ID[id] : null;
+        }
+    }
+
+    // Wire codes of an enum's constants, fixed by the order they are listed in rather than by
+    // ordinal(), so reordering the enum cannot change what a stored payload means. 0 is null.
+    // A constant added to the enum but not listed here fails class initialisation.
+    static final class EnumCodes<E extends Enum<E>> {
+
+        private final Class<E> type;
+        private final List<E> byCode;
+        private final int[] codeByOrdinal;
+
+        @SafeVarargs
+        EnumCodes(Class<E> type, E... byCode) {
+            this.type = type;
+            this.byCode = List.of(byCode);
+            this.codeByOrdinal = new int[type.getEnumConstants().length];
+            for (int i = 0; i < byCode.length; i++) {
+                codeByOrdinal[byCode[i].ordinal()] = i + 1;
+            }
+            for (E constant : type.getEnumConstants()) {
+                if (codeByOrdinal[constant.ordinal()] == 0) {
+                    throw new IllegalStateException("No wire code for " + type.getSimpleName() + "." + constant);
+                }
+            }
+        }
+
+        int code(E value) {
+            return value == null ? 0 : codeByOrdinal[value.ordinal()];
+        }
+
+        E constant(long code) throws IOException {
+            if (code == 0) {
+                return null;
+            }
+            if (code < 0 || code > byCode.size()) {
+                throw new IOException("Unknown " + type.getSimpleName() + " code " + code);
+            }
+            return byCode.get((int) code - 1);
+        }
+    }
+
+    private final ThreadLocal<Output> buffers = ThreadLocal.withInitial(Output::new);
+
+    public static BinaryCodec shared() {
+        return SHARED;
+    }
+
+    private BinaryCodec() {
+    }
+
+    public Order readOrder(byte[] payload) throws IOException {
+        Input in = open(payload, Order.class);
+        return in.finish(readOrder(in));
+    }
+
+    public byte[] writeOrder(Order order) {
+        Output out = begin(Schema.ORDER_V1);
+        writeOrder(out, order);
+        return finish(out);
+    }
+
+    public OrderEvent readOrderEvent(byte[] payload) throws IOException {
+        Input in = open(payload, OrderEvent.class);
+        return in.finish(OrderEvent.builder()
+                .eventId(in.readString())
+                .eventType(in.readString())
+                .timestamp(in.readTimestamp())
+                .sourceService(in.readString())
+                .order(in.readPresent() ? readOrder(in) : null)
+                .metadata(in.readPresent() ? readMetadata(in) : null)
+                .build());
+    }
+
+    public byte[] writeOrderEvent(OrderEvent event) {
+        Output out = begin(Schema.ORDER_EVENT_V1);
+        out.writeString(event.getEventId());
+        out.writeString(event.getEventType());
+        out.writeTimestamp(event.getTimestamp());
+        out.writeString(event.getSourceService());
+        if (out.writePresent(event.getOrder())) {
+            writeOrder(out, event.getOrder());
+        }
+        OrderEvent.EventMetadata metadata = event.getMetadata();
+        if (out.writePresent(metadata)) {
+            out.writeString(metadata.getCorrelationId());
+            out.writeString(metadata.getUserAgent());
+            out.writeString(metadata.getIpAddress());
+            out.writeString(metadata.getVersion());
+        }
+        return finish(out);
+    }
+
+    public FraudCheckResult readFraudResult(byte[] payload) throws IOException {
+        Input in = open(payload, FraudCheckResult.class);
+        FraudCheckResult.FraudCheckResultBuilder result = FraudCheckResult.builder()
+                .orderId(in.readString())
+                .fraudScore(in.readDouble())
+                .isSuspicious(in.readBoolean())
+                .riskLevel(in.readEnum(RISK_LEVELS));
+        int flags = in.readCount();
+        if (flags < 0) {
+            result.flags(null);
+        } else {
+            List<String> list = new ArrayList<>(flags);
+            for (int i = 0; i < flags; i++) {
+                list.add(in.readString());
+            }
+            result.flags(list);
+        }
+        return in.finish(result.recommendation(in.readString()).build());
+    }
+
+    public byte[] writeFraudResult(FraudCheckResult result) {
+        Output out = begin(Schema.FRAUD_RESULT_V1);
+        out.writeString(result.getOrderId());
+        out.writeDouble(result.getFraudScore());
+        out.writeBoolean(result.getIsSuspicious());
+        out.writeEnum(RISK_LEVELS, result.getRiskLevel());
+        List<String> flags = result.getFlags();
+        out.writeCount(flags);
+        if (flags != null) {
+            for (String flag : flags) {
+                out.writeString(flag);
+            }
+        }
+        out.writeString(result.getRecommendation());
+        return finish(out);
+    }
+
+    // The order id is the first field of an order, so dedup can read it without decoding the rest
+    public String peekOrderId(byte[] payload) {
+        try {
+            return open(payload, Order.class).readString();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Order readOrder(Input in) throws IOException {
+        Order.OrderBuilder order = Order.builder()
+                .orderId(in.readString())
+                .customer(in.readPresent() ? readCustomer(in) : null);
+        int items = in.readCount();
+        if (items < 0) {
+            order.items(null);
+        } else {
+            List<OrderItem> list = new ArrayList<>(items);
+            for (int i = 0; i < items; i++) {
+                list.add(in.readPresent() ? readItem(in) : null);
+            }
+            order.items(list);
+        }
+        return order
+                .shippingAddress(in.readPresent() ? readAddress(in) : null)
+                .payment(in.readPresent() ? readPayment(in) : null)
+                .status(in.readEnum(ORDER_STATUSES))
+                .createdAt(in.readTimestamp())
+                .updatedAt(in.readTimestamp())
+                .shippingCost(in.readDecimal())
+                .voucherCode(in.readString())
+                .voucherDiscount(in.readDecimal())
+                .notes(in.readString())
+                .fraudScore(in.readDouble())
+                .source(in.readString())
+                .build();
+    }
+
+    private static void writeOrder(Output out, Order order) {
+        out.writeString(order.getOrderId());
+        Customer customer = order.getCustomer();
+        if (out.writePresent(customer)) {
+            out.writeString(customer.getCustomerId());
+            out.writeString(customer.getName());
+            out.writeString(customer.getEmail());
+            out.writeString(customer.getPhone());
+            out.writeBoolean(customer.getIsVerified());
+            out.writeInteger(customer.getTotalOrders());
+        }
+        List<OrderItem> items = order.getItems();
+        out.writeCount(items);
+        if (items != null) {
+            for (OrderItem item : items) {
+                if (out.writePresent(item)) {
+                    writeItem(out, item);
+                }
+            }
+        }
+        Address address = order.getShippingAddress();
+        if (out.writePresent(address)) {
+            out.writeString(address.getStreet());
+            out.writeString(address.getCity());
+            out.writeString(address.getProvince());
+            out.writeString(address.getPostalCode());
+            out.writeString(address.getCountry());
+            out.writeString(address.getAdditionalInfo());
+        }
+        Payment payment = order.getPayment();
+        if (out.writePresent(payment)) {
+            out.writeEnum(PAYMENT_METHODS, payment.getMethod());
+            out.writeDecimal(payment.getAmount());
+            out.writeString(payment.getCurrency());
+            out.writeString(payment.getTransactionId());
+            out.writeString(payment.getPaymentGateway());
+            out.writeString(payment.getCardLastFour());
+            out.writeBoolean(payment.getIsPaid());
+        }
+        out.writeEnum(ORDER_STATUSES, order.getStatus());
+        out.writeTimestamp(order.getCreatedAt());
+        out.writeTimestamp(order.getUpdatedAt());
+        out.writeDecimal(order.getShippingCost());
+        out.writeString(order.getVoucherCode());
+        out.writeDecimal(order.getVoucherDiscount());
+        out.writeString(order.getNotes());
+        out.writeDouble(order.getFraudScore());
+        out.writeString(order.getSource());
+    }
+
+    private static void writeItem(Output out, OrderItem item) {
+        out.writeString(item.getProductId());
+        out.writeString(item.getProductName());
+        out.writeString(item.getSku());
+        out.writeInteger(item.getQuantity());
+        out.writeDecimal(item.getUnitPrice());
+        out.writeDecimal(item.getDiscountPercent());
+        out.writeDecimal(item.getTaxPercent());
+        out.writeInteger(item.getWeightGrams());
+        out.writeString(item.getCategory());
+    }
+
+    private static OrderItem readItem(Input in) throws IOException {
+        return OrderItem.builder()
+                .productId(in.readString())
+                .productName(in.readString())
+                .sku(in.readString())
+                .quantity(in.readInteger())
+                .unitPrice(in.readDecimal())
+                .discountPercent(in.readDecimal())
+                .taxPercent(in.readDecimal())
+                .weightGrams(in.readInteger())
+                .category(in.readString())
+                .build();
+    }
+
+    private static Customer readCustomer(Input in) throws IOException {
+        return Customer.builder()
+                .customerId(in.readString())
+                .name(in.readString())
+                .email(in.readString())
+                .phone(in.readString())
+                .isVerified(in.readBoolean())
+                .totalOrders(in.readInteger())
+                .build();
+    }
+
+    private static Address readAddress(Input in) throws IOException {
+        return Address.builder()
+                .street(in.readString())
+                .city(in.readString())
+                .province(in.readString())
+                .postalCode(in.readString())
+                .country(in.readString())
+                .additionalInfo(in.readString())
+                .build();
+    }
+
+    private static Payment readPayment(Input in) throws IOException {
+        return Payment.builder()
+                .method(in.readEnum(PAYMENT_METHODS))
+                .amount(in.readDecimal())
+                .currency(in.readString())
+                .transactionId(in.readString())
+                .paymentGateway(in.readString())
+                .cardLastFour(in.readString())
+                .isPaid(in.readBoolean())
+                .build();
+    }
+
+    private static OrderEvent.EventMetadata readMetadata(Input in) throws IOException {
+        return OrderEvent.EventMetadata.builder()
+                .correlationId(in.readString())
+                .userAgent(in.readString())
+                .ipAddress(in.readString())
+                .version(in.readString())
+                .build();
+    }
+
+    private static Input open(byte[] payload, Class<?> expected) throws IOException {
+        if (payload.length < HEADER_BYTES || payload[0] != MAGIC) {
+            throw new IOException("Not a binary payload");
+        }
+        int id = (payload[1] & 0xFF) << 24 | (payload[2] & 0xFF) << 16 | (payload[3] & 0xFF) << 8 | payload[4] & 0xFF;
+        Schema schema = Schema.of(id);
+        if (schema == null) {
+            throw new IOException("Unknown schema id " + id);
+        }
+        if (schema.type != expected) {
+            throw new IOException("Schema " + id + " holds " + schema.type.getSimpleName()
+                    + ", expected " + expected.getSimpleName());
+        }
+        return new Input(payload, HEADER_BYTES);
+    }
+
+    private Output begin(Schema schema) {
+        Output out = buffers.get();
+        out.reset();
+        out.writeByte(MAGIC);
+        out.writeInt(schema.id);
+        return out;
+    }
+
+    private byte[] finish(Output out) {
+        byte[] bytes = out.toByteArray();
+        if (out.capacity() > MAX_RETAINED_BUFFER) {
+            buffers.remove();
+        }
+        return bytes;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Reused per thread; only the final copy of each record is allocated
+    private static final class Output {
+
+        private byte[] buffer = new byte[1024];
+        private int position;
+
+        void reset() {
+            position = 0;
+        }
+
+        int capacity() {
+            return buffer.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(Integer.BYTES);
+            buffer[position++] = (byte) (value >>> 24);
+            buffer[position++] = (byte) (value >>> 16);
+            buffer[position++] = (byte) (value >>> 8);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        boolean writePresent(Object value) {
+            writeByte(value == null ? 0 : 1);
+            return value != null;
+        }
+
+        // Size + 1, so 0 is a null list
+        void writeCount(List<?> list) {
+            writeVarLong(list == null ? 0 : list.size() + 1L);
+        }
+
+        // Length + 1 in UTF-8 bytes, so 0 is null; ASCII is copied without encoding to a temporary array
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) >= 0x80) {
+                    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(utf8.length + 1L);
+                    ensure(utf8.length);
+                    System.arraycopy(utf8, 0, buffer, position, utf8.length);
+                    position += utf8.length;
+                    return;
+                }
+            }
+            writeVarLong(length + 1L);
+            ensure(length);
+            for (int i = 0; i < length; i++) {
+                buffer[position++] = (byte) value.charAt(i);
+            }
+        }
+
+        void writeInteger(Integer value) {
+            writeVarLong(value == null ? 0 : zigzag(value) + 1);
+        }
+
+        void writeBoolean(Boolean value) {
+            writeByte(value == null ? 0 : value ? 2 : 1);
+        }
+
+        void writeDouble(Double value) {
+            if (writePresent(value)) {
+                long bits = Double.doubleToRawLongBits(value);
+                writeInt((int) (bits >>> 32));
+                writeInt((int) bits);
+            }
+        }
+
+        <E extends Enum<E>> void writeEnum(EnumCodes<E> codes, E value) {
+            writeVarLong(codes.code(value));
+        }
+
+        // Seconds and nanos of the local date-time, read as if it were UTC
+        void writeTimestamp(LocalDateTime value) {
+            if (writePresent(value)) {
+                writeVarLong(zigzag(value.toEpochSecond(ZoneOffset.UTC)));
+                writeVarLong(value.getNano());
+            }
+        }
+
+        // 0 for null, 1 for an unscaled value that fits a long, 2 for larger ones; then the scale
+        // and the unscaled value, so 100000 and 100000.00 keep their own scale as they do in JSON
+        void writeDecimal(BigDecimal value) {
+            if (value == null) {
+                writeByte(0);
+                return;
+            }
+            if (value.precision() <= 18) {
+                long unscaled = value.scale() == 0
+                        ? value.longValueExact()
+                        : value.scaleByPowerOfTen(value.scale()).longValueExact();
+                writeByte(1);
+                writeVarLong(zigzag(value.scale()));
+                writeVarLong(zigzag(unscaled));
+                return;
+            }
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            writeByte(2);
+            writeVarLong(zigzag(value.scale()));
+            writeVarLong(unscaled.length);
+            ensure(unscaled.length);
+            System.arraycopy(unscaled, 0, buffer, position, unscaled.length);
+            position += unscaled.length;
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        <T> T finish(T value) throws IOException {
+            if (position != buffer.length) {
+                throw new IOException((buffer.length - position) + " unread bytes after the last field");
+            }
+            return value;
+        }
+
+        int readByte() throws IOException {
+            require(1);
+            return buffer[position++];
+        }
+
+        int readInt() throws IOException {
+            require(Integer.BYTES);
+            return (buffer[position++] & 0xFF) << 24 | (buffer[position++] & 0xFF) << 16
+                    | (buffer[position++] & 0xFF) << 8 | buffer[position++] & 0xFF;
+        }
+
+        long readVarLong() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        int readLength() throws IOException {
+            long length = readVarLong();
+            if (length < 0 || length > buffer.length - position) {
+                throw new EOFException("Length " + length + " runs past the end of the payload");
+            }
+            return (int) length;
+        }
+
+        boolean readPresent() throws IOException {
+            return readByte() != 0;
+        }
+
+        // -1 for a null list
+        int readCount() throws IOException {
+            long count = readVarLong();
+            if (count < 0 || count - 1 > buffer.length - position) {
+                throw new EOFException("Count " + count + " runs past the end of the payload");
+            }
+            return (int) count - 1;
+        }
+
+        String readString() throws IOException {
+            long prefix = readVarLong();
+            if (prefix == 0) {
+                return null;
+            }
+            if (prefix < 0 || prefix - 1 > buffer.length - position) {
+                throw new EOFException("String of " + (prefix - 1) + " bytes runs past the end of the payload");
+            }
+            int length = (int) prefix - 1;
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        Integer readInteger() throws IOException {
+            long value = readVarLong();
+            return value == 0 ? null : Math.toIntExact(unzigzag(value - 1));
+        }
+
+        Boolean readBoolean() throws IOException {
+            return switch (readByte()) {
+                case 0 -> null;
+                case 1 -> Boolean.FALSE;
+                case 2 -> Boolean.TRUE;
+                default -> throw new IOException("Malformed boolean");
+            };
+        }
+
+        Double readDouble() throws IOException {
+            if (!readPresent()) {
+                return null;
+            }
+            long high = readInt();
+            long low = readInt() & 0xFFFFFFFFL;
+            return Double.longBitsToDouble(high << 32 | low);
+        }
+
+        <E extends Enum<E>> E readEnum(EnumCodes<E> codes) throws IOException {
+            return codes.constant(readVarLong());
+        }
+
+        LocalDateTime readTimestamp() throws IOException {
+            if (!readPresent()) {
+                return null;
+            }
+            long seconds = unzigzag(readVarLong());
+            long nanos = readVarLong();
+            if (nanos < 0 || nanos > 999_999_999) {
+                throw new IOException("Malformed timestamp");
+            }
+            return LocalDateTime.ofEpochSecond(seconds, (int) nanos, ZoneOffset.UTC);
+        }
+
+        BigDecimal readDecimal() throws IOException {
+            int kind = readByte();
+            if (kind == 0) {
+                return null;
+            }
+            int scale = Math.toIntExact(unzigzag(readVarLong()));
+            if (kind == 1) {
+                return BigDecimal.valueOf(unzigzag(readVarLong()), scale);
+            }
+            int length = kind == 2 ? readLength() : 0;
+            if (length == 0) {
+                throw new IOException("Malformed decimal");
+            }
+            BigInteger unscaled = new BigInteger(buffer, position, length);
+            position += length;
+            return new BigDecimal(unscaled, scale);
+        }
+
+        private void require(int bytes) throws EOFException {
+            if (position + bytes > buffer.length) {
+                throw new EOFException("Payload ends after " + position + " bytes");
+            }
+        }
+    }
+}
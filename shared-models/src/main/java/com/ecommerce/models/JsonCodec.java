@@ -0,0 +1,115 @@
+package com.ecommerce.models;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import java.io.IOException;
+
+
+// The JSON form of the models on Kafka and in the audit log, shared by every service so the
+// mapper is configured once. Kafka payloads are UTF-8 bytes, parsed and written without an
+// intermediate String. Blackbird replaces reflective getter and setter calls with generated
+// lambdas, and the readers and writers are resolved per type up front instead of on each call.
+// Unknown properties are ignored because an Order carries computed totals that have no setter.
+public final class JsonCodec {
+
+    private static final JsonCodec SHARED = new JsonCodec();
+
+    private final ObjectReader orderReader;
+    private final ObjectReader orderEventReader;
+    private final ObjectReader fraudResultReader;
+    private final ObjectWriter orderWriter;
+    private final ObjectWriter orderEventWriter;
+    private final ObjectWriter fraudResultWriter;
+
+    public static JsonCodec shared() {
+        return SHARED;
+    }
+
+    private JsonCodec() {
+        ObjectMapper mapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .addModule(new BlackbirdModule())
+                .addMixIn(OrderEvent.class, OrderEventMixIn.class)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+
+        orderReader = mapper.readerFor(Order.class);
+        orderEventReader = mapper.readerFor(OrderEvent.class);
+        fraudResultReader = mapper.readerFor(FraudCheckResult.class);
+        orderWriter = mapper.writerFor(Order.class);
+        orderEventWriter = mapper.writerFor(OrderEvent.class);
+        fraudResultWriter = mapper.writerFor(FraudCheckResult.class);
+    }
+
+    public Order readOrder(byte[] payload) throws IOException {
+        return orderReader.readValue(payload);
+    }
+
+    // Kept as a String for the audit log column and for splicing into the validated-orders event
+    public String writeOrder(Order order) throws JsonProcessingException {
+        return orderWriter.writeValueAsString(order);
+    }
+
+    public byte[] writeOrderAsBytes(Order order) throws JsonProcessingException {
+        return orderWriter.writeValueAsBytes(order);
+    }
+
+    public OrderEvent readOrderEvent(byte[] payload) throws IOException {
+        return orderEventReader.readValue(payload);
+    }
+
+    public byte[] writeOrderEvent(OrderEvent event) throws JsonProcessingException {
+        return orderEventWriter.writeValueAsBytes(event);
+    }
+
+    // Splices orderJson, the output of writeOrder for the event's order, in place of serializing it again
+    public byte[] writeOrderEvent(OrderEvent event, String orderJson) throws JsonProcessingException {
+        return orderEventWriter
+                .withAttribute(WrittenOrder.class, new WrittenOrder(event.getOrder(), orderJson))
+                .writeValueAsBytes(event);
+    }
+
+    public FraudCheckResult readFraudResult(byte[] payload) throws IOException {
+        return fraudResultReader.readValue(payload);
+    }
+
+    public byte[] writeFraudResult(FraudCheckResult result) throws JsonProcessingException {
+        return fraudResultWriter.writeValueAsBytes(result);
+    }
+
+    private record WrittenOrder(Order order, String json) {
+    }
+
+    private abstract static class OrderEventMixIn {
+
+        @JsonSerialize(using = WrittenOrderSerializer.class)
+        abstract Order getOrder();
+    }
+
+    private static final class WrittenOrderSerializer extends StdSerializer<Order> {
+
+        WrittenOrderSerializer() {
+            super(Order.class);
+        }
+
+        @Override
+        public void serialize(Order order, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (provider.getAttribute(WrittenOrder.class) instanceof WrittenOrder written && written.order() == order) {
+                generator.writeRawValue(written.json());
+                return;
+            }
+            provider.findValueSerializer(Order.class).serialize(order, generator, provider);
+        }
+    }
+}
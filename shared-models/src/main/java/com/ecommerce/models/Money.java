@@ -0,0 +1,163 @@
+package com.ecommerce.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+
+// An amount as a whole number of minor units (sen for IDR) plus its currency, for arithmetic that
+// would otherwise allocate a BigDecimal per step. Sums and products are exact and throw
+// ArithmeticException on overflow. Operations that can leave a fraction of a minor unit take a
+// RoundingMode and default to HALF_UP; UNNECESSARY throws instead, for callers that fall back to
+// exact BigDecimal arithmetic. Payloads and columns keep BigDecimal through toBigDecimal().
+public record Money(long minor, String currency) implements Comparable<Money> {
+
+    public static final String DEFAULT_CURRENCY = "IDR";
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0, DEFAULT_CURRENCY);
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+    }
+
+    public static Money ofMinor(long minor) {
+        return new Money(minor, DEFAULT_CURRENCY);
+    }
+
+    // Throws ArithmeticException when the amount has a fraction of a minor unit
+    public static Money of(BigDecimal amount) {
+        return of(amount, DEFAULT_CURRENCY, RoundingMode.UNNECESSARY);
+    }
+
+    public static Money rounded(BigDecimal amount) {
+        return of(amount, DEFAULT_CURRENCY, RoundingMode.HALF_UP);
+    }
+
+    public static Money of(BigDecimal amount, String currency, RoundingMode rounding) {
+        return new Money(amount.setScale(SCALE, rounding).unscaledValue().longValueExact(), currency);
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minor, other.minor), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minor, other.minor), currency);
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(minor, quantity), currency);
+    }
+
+    // this * rate, rounded HALF_UP to a minor unit
+    public Money times(BigDecimal rate) {
+        return scaled(rate, 0, SCALE, RoundingMode.HALF_UP);
+    }
+
+    // this * rate, rounded once to the given number of decimals, e.g. 0 for whole rupiah
+    public Money times(BigDecimal rate, int decimals, RoundingMode rounding) {
+        return scaled(rate, 0, decimals, rounding);
+    }
+
+    // this * percent / 100, rounded HALF_UP to a minor unit
+    public Money percent(BigDecimal percent) {
+        return scaled(percent, 2, SCALE, RoundingMode.HALF_UP);
+    }
+
+    public Money percent(BigDecimal percent, RoundingMode rounding) {
+        return scaled(percent, 2, SCALE, rounding);
+    }
+
+    public int signum() {
+        return Long.signum(minor);
+    }
+
+    // Always at SCALE, so totals keep one scale in payloads and columns whatever their value
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    // Scale an exact BigDecimal expression whose preferred scale is given would leave this amount
+    // at: the preferred scale, or more when the amount has more decimals than that (divide)
+    int scaleFor(int preferredScale) {
+        if (minor == 0) {
+            return preferredScale;
+        }
+        long digits = minor;
+        int scale = SCALE;
+        while (digits % 10 == 0) {
+            digits /= 10;
+            scale--;
+        }
+        return Math.max(preferredScale, scale);
+    }
+
+    // The amount at a scale from scaleFor, which is never below the decimals it needs
+    BigDecimal toBigDecimal(int scale) {
+        return BigDecimal.valueOf(minor, SCALE).setScale(scale);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minor, other.minor);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency;
+    }
+
+    // HALF_UP and UNNECESSARY stay in long arithmetic; other modes, and products beyond a long, go
+    // through BigDecimal
+    private Money scaled(BigDecimal factor, int extraScale, int decimals, RoundingMode rounding) {
+        int drop = Math.max(SCALE - decimals, 0);
+        int scale = factor.scale() + extraScale + drop;
+        boolean longRounding = rounding == RoundingMode.HALF_UP || rounding == RoundingMode.UNNECESSARY;
+        if (longRounding && factor.scale() >= 0 && scale < POWERS_OF_TEN.length && factor.precision() <= 18) {
+            long unscaled = factor.movePointRight(factor.scale()).longValueExact();
+            long high = Math.multiplyHigh(minor, unscaled);
+            long product = minor * unscaled;
+            if ((high == 0 && product >= 0) || (high == -1 && product < 0)) {
+                long rounded = divide(product, POWERS_OF_TEN[scale], rounding);
+                return new Money(Math.multiplyExact(rounded, POWERS_OF_TEN[drop]), currency);
+            }
+        }
+        BigDecimal exact = BigDecimal.valueOf(minor).multiply(factor).movePointLeft(extraScale + drop);
+        long rounded = exact.setScale(0, rounding).longValueExact();
+        return new Money(Math.multiplyExact(rounded, POWERS_OF_TEN[drop]), currency);
+    }
+
+    // HALF_UP sends ties away from zero, for negative amounts as well
+    private static long divide(long dividend, long divisor, RoundingMode rounding) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        if (remainder == 0) {
+            return quotient;
+        }
+        if (rounding == RoundingMode.UNNECESSARY) {
+            throw new ArithmeticException("Rounding necessary");
+        }
+        if (remainder >= divisor - remainder) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+}
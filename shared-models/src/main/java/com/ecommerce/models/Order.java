@@ -1,10 +1,15 @@
 package com.ecommerce.models;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -19,6 +24,8 @@ import java.util.List;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+// Computed totals come first, in the order payloads have always had them
+@JsonPropertyOrder({"suspicious", "subtotal", "totalItems", "grandTotal", "finalState"})
 public class Order {
 
     @NotBlank(message = "Order ID is required")
@@ -80,22 +87,59 @@ public class Order {
     private String source = "WEB"; 
 
 
+    // Computed once and dropped by the setters of the inputs. Initialised and final, so Lombok keeps
+    // it out of the builder and the all-args constructor
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient Totals totals = new Totals();
+
+    public void setItems(List<OrderItem> items) {
+        this.items = items;
+        totals.clear();
+    }
+
+    public void setShippingCost(BigDecimal shippingCost) {
+        this.shippingCost = shippingCost;
+        totals.clearGrandTotal();
+    }
+
+    public void setVoucherDiscount(BigDecimal voucherDiscount) {
+        this.voucherDiscount = voucherDiscount;
+        totals.clearGrandTotal();
+    }
+
     public int getTotalItems() {
-        return items.stream()
-                .mapToInt(OrderItem::getQuantity)
-                .sum();
+        int totalItems = 0;
+        for (OrderItem item : items) {
+            totalItems += item.getQuantity();
+        }
+        return totalItems;
     }
 
     public BigDecimal getSubtotal() {
-        return items.stream()
-                .map(OrderItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Totals t = itemTotals();
+        if (t.subtotalValue == null) {
+            t.subtotalValue = t.subtotal.toBigDecimal(t.subtotalScale);
+        }
+        return t.subtotalValue;
     }
 
     public BigDecimal getGrandTotal() {
-        return getSubtotal()
-                .add(shippingCost)
-                .subtract(voucherDiscount);
+        Totals t = grandTotals();
+        if (t.grandTotalValue == null) {
+            t.grandTotalValue = t.grandTotal.toBigDecimal(t.grandTotalScale);
+        }
+        return t.grandTotalValue;
+    }
+
+    // Rounded HALF_UP to the sen in the rare case the exact grand total carries a fraction of one
+    public Money grandTotalMoney() {
+        Totals t = grandTotals();
+        if (t.grandTotal == null) {
+            t.grandTotal = Money.rounded(t.grandTotalValue);
+        }
+        return t.grandTotal;
     }
 
     public boolean isFinalState() {
@@ -107,4 +151,103 @@ public class Order {
     public boolean isSuspicious() {
         return fraudScore != null && fraudScore > 70.0;
     }
+
+    // The item list can change without going through setItems, so the cached sums are checked
+    // against the items they were computed from and each item's revision before they are reused
+    private Totals itemTotals() {
+        Totals t = totals;
+        if (!t.matches(items)) {
+            t.clear();
+            Money subtotal = Money.ZERO;
+            int scale = 0;
+            for (OrderItem item : items) {
+                Money totalPrice = item.totalPriceMoney();
+                if (totalPrice == null) {
+                    subtotal = null;
+                    break;
+                }
+                subtotal = subtotal.plus(totalPrice);
+                scale = Math.max(scale, item.totalPriceScale());
+            }
+            if (subtotal == null) {
+                BigDecimal exact = BigDecimal.ZERO;
+                for (OrderItem item : items) {
+                    exact = exact.add(item.getTotalPrice());
+                }
+                t.subtotalValue = exact;
+            }
+            t.subtotal = subtotal;
+            t.subtotalScale = scale;
+            t.remember(items);
+        }
+        return t;
+    }
+
+    private Totals grandTotals() {
+        Totals t = itemTotals();
+        if (t.grandTotal != null || t.grandTotalValue != null) {
+            return t;
+        }
+        if (t.subtotal != null) {
+            try {
+                t.grandTotal = t.subtotal
+                        .plus(Money.of(shippingCost))
+                        .minus(Money.of(voucherDiscount));
+                t.grandTotalScale = Math.max(t.subtotalScale, Math.max(shippingCost.scale(), voucherDiscount.scale()));
+                return t;
+            } catch (ArithmeticException e) {
+                // Shipping or voucher with a fraction of a sen; fall through to the exact sum
+            }
+        }
+        t.grandTotalValue = getSubtotal()
+                .add(shippingCost)
+                .subtract(voucherDiscount);
+        return t;
+    }
+
+    private static final class Totals {
+        List<OrderItem> items;
+        OrderItem[] itemRefs;
+        int[] itemRevisions;
+        Money subtotal;
+        Money grandTotal;
+        int subtotalScale;
+        int grandTotalScale;
+        BigDecimal subtotalValue;
+        BigDecimal grandTotalValue;
+
+        boolean matches(List<OrderItem> current) {
+            if (items == null || current != items || current.size() != itemRefs.length) {
+                return false;
+            }
+            for (int i = 0; i < itemRefs.length; i++) {
+                OrderItem item = current.get(i);
+                if (item != itemRefs[i] || item.revision() != itemRevisions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void remember(List<OrderItem> current) {
+            items = current;
+            itemRefs = current.toArray(new OrderItem[0]);
+            itemRevisions = new int[itemRefs.length];
+            for (int i = 0; i < itemRefs.length; i++) {
+                itemRevisions[i] = itemRefs[i].revision();
+            }
+        }
+
+        void clear() {
+            items = null;
+            subtotal = null;
+            subtotalValue = null;
+            clearGrandTotal();
+        }
+
+        void clearGrandTotal() {
+            grandTotal = null;
+            grandTotalValue = null;
+        }
+    }
 }
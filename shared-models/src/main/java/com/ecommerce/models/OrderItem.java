@@ -1,23 +1,33 @@
 package com.ecommerce.models;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+// Computed totals come first, in the order payloads have always had them
+@JsonPropertyOrder({"discountAmount", "taxAmount", "subtotal", "totalPrice"})
 public class OrderItem {
 
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
     @NotBlank(message = "Product ID is required")
     @JsonProperty("product_id")
     private String productId;
@@ -53,20 +63,138 @@ public class OrderItem {
     @JsonProperty("category")
     private String category;
 
+    // Computed once and dropped by the setters of the four inputs. Initialised and final, so Lombok
+    // keeps it out of the builder and the all-args constructor
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient Totals totals = new Totals();
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+        totals.clear();
+    }
+
+    public void setUnitPrice(BigDecimal unitPrice) {
+        this.unitPrice = unitPrice;
+        totals.clear();
+    }
+
+    public void setDiscountPercent(BigDecimal discountPercent) {
+        this.discountPercent = discountPercent;
+        totals.clear();
+    }
+
+    public void setTaxPercent(BigDecimal taxPercent) {
+        this.taxPercent = taxPercent;
+        totals.clear();
+    }
+
     public BigDecimal getSubtotal() {
-        return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        Totals t = totals();
+        if (t.subtotalValue == null) {
+            t.subtotalValue = t.subtotal.toBigDecimal(t.subtotalScale);
+        }
+        return t.subtotalValue;
     }
 
     public BigDecimal getDiscountAmount() {
-        return getSubtotal().multiply(discountPercent).divide(BigDecimal.valueOf(100));
+        Totals t = totals();
+        if (t.discountAmountValue == null) {
+            t.discountAmountValue = t.discountAmount.toBigDecimal(t.discountScale);
+        }
+        return t.discountAmountValue;
     }
 
     public BigDecimal getTaxAmount() {
-        BigDecimal afterDiscount = getSubtotal().subtract(getDiscountAmount());
-        return afterDiscount.multiply(taxPercent).divide(BigDecimal.valueOf(100));
+        Totals t = totals();
+        if (t.taxAmountValue == null) {
+            t.taxAmountValue = t.taxAmount.toBigDecimal(t.taxScale);
+        }
+        return t.taxAmountValue;
     }
 
     public BigDecimal getTotalPrice() {
-        return getSubtotal().subtract(getDiscountAmount()).add(getTaxAmount());
+        Totals t = totals();
+        if (t.totalPriceValue == null) {
+            t.totalPriceValue = t.totalPrice.toBigDecimal(t.totalPriceScale);
+        }
+        return t.totalPriceValue;
+    }
+
+    // Null when the total carries a fraction of a sen and only exists as getTotalPrice()
+    public Money totalPriceMoney() {
+        return totals().totalPrice;
+    }
+
+    // Scale of getTotalPrice() while totalPriceMoney() is not null
+    int totalPriceScale() {
+        return totals().totalPriceScale;
+    }
+
+    // Bumped on every change to an input, so an Order can tell its cached subtotal went stale
+    int revision() {
+        return totals.revision;
+    }
+
+    private Totals totals() {
+        Totals t = totals;
+        if (!t.computed) {
+            try {
+                Money subtotal = Money.of(unitPrice).times(quantity);
+                Money discountAmount = subtotal.percent(discountPercent, RoundingMode.UNNECESSARY);
+                Money afterDiscount = subtotal.minus(discountAmount);
+                Money taxAmount = afterDiscount.percent(taxPercent, RoundingMode.UNNECESSARY);
+                t.subtotal = subtotal;
+                t.discountAmount = discountAmount;
+                t.taxAmount = taxAmount;
+                t.totalPrice = afterDiscount.plus(taxAmount);
+                // The getters keep the scales the BigDecimal expressions below would give them
+                t.subtotalScale = unitPrice.scale();
+                t.discountScale = discountAmount.scaleFor(t.subtotalScale + discountPercent.scale());
+                int afterDiscountScale = Math.max(t.subtotalScale, t.discountScale);
+                t.taxScale = taxAmount.scaleFor(afterDiscountScale + taxPercent.scale());
+                t.totalPriceScale = Math.max(afterDiscountScale, t.taxScale);
+            } catch (ArithmeticException e) {
+                // A price or percentage that does not come out in whole sen keeps the exact BigDecimal result
+                t.subtotalValue = unitPrice.multiply(BigDecimal.valueOf(quantity));
+                t.discountAmountValue = t.subtotalValue.multiply(discountPercent).divide(HUNDRED);
+                BigDecimal afterDiscount = t.subtotalValue.subtract(t.discountAmountValue);
+                t.taxAmountValue = afterDiscount.multiply(taxPercent).divide(HUNDRED);
+                t.totalPriceValue = afterDiscount.add(t.taxAmountValue);
+            }
+            t.computed = true;
+        }
+        return t;
+    }
+
+    private static final class Totals {
+        int revision;
+        boolean computed;
+        Money subtotal;
+        Money discountAmount;
+        Money taxAmount;
+        Money totalPrice;
+        int subtotalScale;
+        int discountScale;
+        int taxScale;
+        int totalPriceScale;
+        BigDecimal subtotalValue;
+        BigDecimal discountAmountValue;
+        BigDecimal taxAmountValue;
+        BigDecimal totalPriceValue;
+
+        void clear() {
+            revision++;
+            computed = false;
+            subtotal = null;
+            discountAmount = null;
+            taxAmount = null;
+            totalPrice = null;
+            subtotalValue = null;
+            discountAmountValue = null;
+            taxAmountValue = null;
+            totalPriceValue = null;
+        }
     }
 }
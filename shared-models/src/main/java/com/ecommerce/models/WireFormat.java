@@ -0,0 +1,79 @@
+package com.ecommerce.models;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+// How a Kafka value is encoded. Producers name the format in the content-type header of every
+// record and consumers decode each record by its header, so JSON and binary records can share a
+// topic while services move over one at a time. Records without the header are JSON, as every
+// record was before the header existed.
+public enum WireFormat {
+
+    JSON("application/json"),
+    BINARY("application/vnd.ecommerce.binary");
+
+    public static final String HEADER = "content-type";
+
+    private final String contentType;
+    private final byte[] headerValue;
+
+    WireFormat(String contentType) {
+        this.contentType = contentType;
+        this.headerValue = contentType.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    // Compares the raw header bytes so the header is not decoded for every record
+    public static WireFormat fromHeader(byte[] value) {
+        if (value == null || Arrays.equals(value, JSON.headerValue)) {
+            return JSON;
+        }
+        if (Arrays.equals(value, BINARY.headerValue)) {
+            return BINARY;
+        }
+        throw new IllegalArgumentException("Unsupported content type: " + new String(value, StandardCharsets.UTF_8));
+    }
+
+    public Order readOrder(byte[] payload) throws IOException {
+        return this == BINARY
+                ? BinaryCodec.shared().readOrder(payload)
+                : JsonCodec.shared().readOrder(payload);
+    }
+
+    public byte[] writeOrder(Order order) throws JsonProcessingException {
+        return this == BINARY
+                ? BinaryCodec.shared().writeOrder(order)
+                : JsonCodec.shared().writeOrderAsBytes(order);
+    }
+
+    public OrderEvent readOrderEvent(byte[] payload) throws IOException {
+        return this == BINARY
+                ? BinaryCodec.shared().readOrderEvent(payload)
+                : JsonCodec.shared().readOrderEvent(payload);
+    }
+
+    public byte[] writeOrderEvent(OrderEvent event) throws JsonProcessingException {
+        return this == BINARY
+                ? BinaryCodec.shared().writeOrderEvent(event)
+                : JsonCodec.shared().writeOrderEvent(event);
+    }
+
+    public FraudCheckResult readFraudResult(byte[] payload) throws IOException {
+        return this == BINARY
+                ? BinaryCodec.shared().readFraudResult(payload)
+                : JsonCodec.shared().readFraudResult(payload);
+    }
+
+    public byte[] writeFraudResult(FraudCheckResult result) throws JsonProcessingException {
+        return this == BINARY
+                ? BinaryCodec.shared().writeFraudResult(result)
+                : JsonCodec.shared().writeFraudResult(result);
+    }
+}
@@ -0,0 +1,176 @@
+package com.ecommerce.models;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Binary Codec Tests")
+class BinaryCodecTest {
+
+    private final BinaryCodec codec = BinaryCodec.shared();
+
+    @Test
+    @DisplayName("Should read back orders, events and fraud results equal to what was written")
+    void testRoundTrip() throws Exception {
+        Order order = order();
+        OrderEvent event = OrderEvent.builder()
+                .eventId("EVT-001")
+                .eventType("ORDER_VALIDATED")
+                .timestamp(LocalDateTime.of(2024, 3, 1, 10, 0, 0, 123_456_789))
+                .sourceService("test")
+                .order(order)
+                .metadata(OrderEvent.EventMetadata.builder().correlationId("CORR-1").build())
+                .build();
+        FraudCheckResult result = FraudCheckResult.builder()
+                .orderId("ORD-001")
+                .fraudScore(72.5)
+                .isSuspicious(true)
+                .riskLevel(FraudCheckResult.RiskLevel.HIGH)
+                .flags(List.of("HIGH_VALUE_ORDER", "NEW_CUSTOMER"))
+                .build();
+
+        Order read = codec.readOrder(codec.writeOrder(order));
+
+        assertThat(read).isEqualTo(order);
+        assertThat(read.getGrandTotal()).isEqualTo(order.getGrandTotal());
+        assertThat(codec.readOrderEvent(codec.writeOrderEvent(event))).isEqualTo(event);
+        assertThat(codec.readFraudResult(codec.writeFraudResult(result))).isEqualTo(result);
+    }
+
+    @Test
+    @DisplayName("Should keep nulls, decimal scales and non-ASCII text")
+    void testFieldEdgeCases() throws Exception {
+        Order order = order();
+        order.setNotes("Titip di pos satpam — jangan dibanting ☕");
+        order.setVoucherCode(null);
+        order.setFraudScore(null);
+        order.setShippingCost(new BigDecimal("15000.00"));
+        order.setVoucherDiscount(new BigDecimal("-12345678901234567890.125"));
+        order.getCustomer().setTotalOrders(Integer.MIN_VALUE);
+        List<OrderItem> items = new ArrayList<>(order.getItems());
+        items.add(null);
+        order.setItems(items);
+
+        Order read = codec.readOrder(codec.writeOrder(order));
+
+        assertThat(read).isEqualTo(order);
+        assertThat(read.getShippingCost().scale()).isEqualTo(2);
+        Order empty = new Order();
+        assertThat(codec.readOrder(codec.writeOrder(empty))).isEqualTo(empty);
+    }
+
+    @Test
+    @DisplayName("Should refuse payloads of another schema, unknown schemas and truncated payloads")
+    void testRejectsForeignPayloads() {
+        byte[] order = codec.writeOrder(order());
+        byte[] unknownSchema = order.clone();
+        unknownSchema[4] = 99;
+
+        assertThatThrownBy(() -> codec.readOrderEvent(order)).isInstanceOf(IOException.class)
+                .hasMessageContaining("expected OrderEvent");
+        assertThatThrownBy(() -> codec.readOrder(unknownSchema)).isInstanceOf(IOException.class)
+                .hasMessageContaining("Unknown schema id 99");
+        assertThatThrownBy(() -> codec.readOrder(Arrays.copyOf(order, order.length - 3)))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> codec.readOrder("{\"order_id\":\"ORD-001\"}".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IOException.class);
+        assertThat(codec.peekOrderId(order)).isEqualTo("ORD-001");
+        assertThat(codec.peekOrderId(unknownSchema)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should keep the wire code of every enum constant that payloads already carry")
+    void testEnumCodesPinned() throws Exception {
+        assertThat(Arrays.stream(OrderStatus.values()).map(BinaryCodec.ORDER_STATUSES::code))
+                .containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+        assertThat(BinaryCodec.ORDER_STATUSES.constant(5)).isEqualTo(OrderStatus.VALIDATED);
+        assertThat(BinaryCodec.ORDER_STATUSES.constant(11)).isEqualTo(OrderStatus.FRAUD_SUSPECTED);
+        assertThat(BinaryCodec.PAYMENT_METHODS.code(PaymentMethod.CREDIT_CARD)).isEqualTo(1);
+        assertThat(BinaryCodec.PAYMENT_METHODS.code(PaymentMethod.COD)).isEqualTo(5);
+        assertThat(BinaryCodec.RISK_LEVELS.code(FraudCheckResult.RiskLevel.HIGH)).isEqualTo(3);
+        assertThat(BinaryCodec.RISK_LEVELS.code(null)).isZero();
+        assertThat(BinaryCodec.RISK_LEVELS.constant(0)).isNull();
+
+        assertThatThrownBy(() -> BinaryCodec.RISK_LEVELS.constant(4)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> new BinaryCodec.EnumCodes<>(FraudCheckResult.RiskLevel.class,
+                FraudCheckResult.RiskLevel.LOW, FraudCheckResult.RiskLevel.MEDIUM))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Should be smaller than JSON and chosen by the content-type header")
+    void testWireFormat() throws Exception {
+        Order order = order();
+        byte[] binary = WireFormat.BINARY.writeOrder(order);
+        byte[] json = WireFormat.JSON.writeOrder(order);
+
+        assertThat(binary.length).isLessThan(json.length / 2);
+        assertThat(WireFormat.fromHeader(null)).isEqualTo(WireFormat.JSON);
+        assertThat(WireFormat.fromHeader(WireFormat.BINARY.contentType().getBytes(StandardCharsets.UTF_8)))
+                .isEqualTo(WireFormat.BINARY);
+        assertThat(WireFormat.fromHeader("application/json".getBytes(StandardCharsets.UTF_8)))
+                .isEqualTo(WireFormat.JSON);
+        assertThatThrownBy(() -> WireFormat.fromHeader("text/plain".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(WireFormat.BINARY.readOrder(binary)).isEqualTo(WireFormat.JSON.readOrder(json));
+    }
+
+    private static Order order() {
+        LocalDateTime now = LocalDateTime.of(2024, 3, 1, 9, 59, 30);
+        return Order.builder()
+                .orderId("ORD-001")
+                .customer(Customer.builder()
+                        .customerId("CUST-001")
+                        .name("Test Customer")
+                        .email("test@example.com")
+                        .phone("+6281234567890")
+                        .isVerified(true)
+                        .totalOrders(12)
+                        .build())
+                .items(List.of(
+                        OrderItem.builder()
+                                .productId("P001")
+                                .productName("Product 1")
+                                .quantity(2)
+                                .unitPrice(new BigDecimal("100000"))
+                                .discountPercent(new BigDecimal("12.5"))
+                                .taxPercent(new BigDecimal("11"))
+                                .weightGrams(500)
+                                .category("Electronics")
+                                .build(),
+                        OrderItem.builder()
+                                .productId("P002")
+                                .productName("Product 2")
+                                .quantity(1)
+                                .unitPrice(new BigDecimal("49999.99"))
+                                .build()))
+                .shippingAddress(Address.builder()
+                        .street("Jl. Sudirman No. 1")
+                        .city("Jakarta")
+                        .province("DKI Jakarta")
+                        .postalCode("10110")
+                        .country("Indonesia")
+                        .build())
+                .payment(Payment.builder()
+                        .method(PaymentMethod.CREDIT_CARD)
+                        .amount(new BigDecimal("222000"))
+                        .cardLastFour("4242")
+                        .build())
+                .status(OrderStatus.VALIDATED)
+                .createdAt(now)
+                .updatedAt(now)
+                .voucherCode("HEMAT10")
+                .fraudScore(12.0)
+                .build();
+    }
+}
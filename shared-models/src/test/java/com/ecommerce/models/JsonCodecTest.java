@@ -0,0 +1,205 @@
+package com.ecommerce.models;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("JSON Codec Tests")
+class JsonCodecTest {
+
+    private final JsonCodec codec = JsonCodec.shared();
+
+    private final ObjectMapper plainMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    @DisplayName("Should write the same JSON as a plain ObjectMapper")
+    void testMatchesPlainMapper() throws Exception {
+        Order order = order();
+        OrderEvent event = event(order);
+        FraudCheckResult result = FraudCheckResult.builder()
+                .orderId("ORD-001")
+                .fraudScore(75.0)
+                .isSuspicious(true)
+                .riskLevel(FraudCheckResult.RiskLevel.HIGH)
+                .flags(List.of("HIGH_VALUE_ORDER"))
+                .build();
+
+        assertThat(codec.writeOrder(order)).isEqualTo(plainMapper.writeValueAsString(order));
+        assertThat(codec.writeOrderAsBytes(order)).isEqualTo(plainMapper.writeValueAsBytes(order));
+        assertThat(codec.writeOrderEvent(event)).isEqualTo(plainMapper.writeValueAsBytes(event));
+        assertThat(codec.writeFraudResult(result)).isEqualTo(plainMapper.writeValueAsBytes(result));
+    }
+
+    @Test
+    @DisplayName("Should splice an already written order into its event")
+    void testSplicedOrder() throws Exception {
+        Order order = order();
+        OrderEvent event = event(order);
+        String orderJson = codec.writeOrder(order);
+
+        byte[] spliced = codec.writeOrderEvent(event, orderJson);
+
+        assertThat(spliced).isEqualTo(codec.writeOrderEvent(event));
+        OrderEvent read = codec.readOrderEvent(spliced);
+        assertThat(read.getOrder()).isEqualTo(order);
+        assertThat(read.getEventId()).isEqualTo("EVT-001");
+    }
+
+    @Test
+    @DisplayName("Should read back an order with its computed totals ignored")
+    void testOrderRoundTrip() throws Exception {
+        Order order = order();
+
+        Order read = codec.readOrder(codec.writeOrderAsBytes(order));
+
+        assertThat(read).isEqualTo(order);
+        assertThat(read.getGrandTotal()).isEqualByComparingTo(order.getGrandTotal());
+    }
+
+    @Test
+    @DisplayName("Should write whole money totals without decimals")
+    void testTotalsScale() throws Exception {
+        String json = codec.writeOrder(order());
+
+        assertThat(json).contains("\"subtotal\":222000,", "\"grandTotal\":222000,", "\"subtotal\":200000,",
+                "\"discountAmount\":0,", "\"taxAmount\":22000,", "\"totalPrice\":222000,");
+    }
+
+    @Test
+    @DisplayName("Should write the totals the BigDecimal getters wrote before Money, at the same scale")
+    void testTotalsMatchBaseline() throws Exception {
+        assertTotalsMatch(wholeSenOrder(), "baseline-order-whole-sen.json");
+        assertTotalsMatch(fractionOrder(), "baseline-order-fraction.json");
+    }
+
+    @Test
+    @DisplayName("Should write orders byte for byte as they were written before totals were memoized")
+    void testMatchesBaselineBytes() throws Exception {
+        Order order = wholeSenOrder();
+        byte[] baseline = baseline("baseline-order-whole-sen.json").getBytes(StandardCharsets.UTF_8);
+
+        assertThat(codec.writeOrderAsBytes(order)).isEqualTo(baseline);
+        // Again from the memoized totals, and through the plain mapper the processor used to write with
+        assertThat(codec.writeOrderAsBytes(order)).isEqualTo(baseline);
+        assertThat(plainMapper.writeValueAsBytes(order)).isEqualTo(baseline);
+
+        Order fraction = fractionOrder();
+        assertThat(codec.writeOrder(fraction)).isEqualTo(baseline("baseline-order-fraction.json"));
+    }
+
+    @Test
+    @DisplayName("Should write the baseline bytes again after an item changes back")
+    void testMatchesBaselineAfterChange() throws Exception {
+        Order order = wholeSenOrder();
+        codec.writeOrder(order);
+        OrderItem socks = order.getItems().get(1);
+
+        socks.setQuantity(3);
+        assertThat(codec.writeOrder(order)).contains("\"subtotal\":75015,");
+        socks.setQuantity(1);
+
+        assertThat(codec.writeOrder(order)).isEqualTo(baseline("baseline-order-whole-sen.json"));
+    }
+
+    private void assertTotalsMatch(Order order, String baselineResource) throws Exception {
+        ObjectMapper exact = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        JsonNode actual = exact.readTree(codec.writeOrder(order));
+        JsonNode baseline = exact.readTree(baseline(baselineResource));
+
+        for (String total : List.of("subtotal", "grandTotal")) {
+            assertThat(actual.get(total)).as(total).isEqualTo(baseline.get(total));
+        }
+        for (int i = 0; i < baseline.get("items").size(); i++) {
+            for (String total : List.of("subtotal", "discountAmount", "taxAmount", "totalPrice")) {
+                assertThat(actual.get("items").get(i).get(total)).as("items[%d].%s", i, total)
+                        .isEqualTo(baseline.get("items").get(i).get(total));
+            }
+        }
+    }
+
+    // Captured from the shared-models sources before totals moved to Money
+    private static String baseline(String resource) throws IOException {
+        try (InputStream in = JsonCodecTest.class.getResourceAsStream(resource)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).strip();
+        }
+    }
+
+    private static OrderEvent event(Order order) {
+        return OrderEvent.builder()
+                .eventId("EVT-001")
+                .eventType("ORDER_VALIDATED")
+                .timestamp(LocalDateTime.of(2024, 3, 1, 10, 0))
+                .sourceService("test")
+                .order(order)
+                .build();
+    }
+
+    // Every total in whole sen, at scales of zero to two
+    private static Order wholeSenOrder() {
+        return Order.builder()
+                .orderId("ORD-002")
+                .customer(Customer.builder().customerId("CUST-002").name("Golden Customer").build())
+                .items(List.of(
+                        OrderItem.builder().productId("P001").productName("Running Shoes").sku("SKU-001")
+                                .quantity(2).unitPrice(new BigDecimal("150000.50"))
+                                .discountPercent(new BigDecimal("10")).taxPercent(new BigDecimal("20"))
+                                .weightGrams(800).category("shoes").build(),
+                        OrderItem.builder().productId("P002").productName("Socks")
+                                .quantity(1).unitPrice(new BigDecimal("25005"))
+                                .discountPercent(new BigDecimal("10")).build()))
+                .shippingCost(new BigDecimal("15000"))
+                .voucherDiscount(new BigDecimal("7500.50"))
+                .payment(Payment.builder().method(PaymentMethod.CREDIT_CARD).amount(new BigDecimal("470036.50")).build())
+                .status(OrderStatus.VALIDATED)
+                .createdAt(LocalDateTime.of(2024, 3, 1, 9, 59, 30))
+                .updatedAt(LocalDateTime.of(2024, 3, 1, 9, 59, 30))
+                .build();
+    }
+
+    // Totals with a fraction of a sen, which stay exact BigDecimal arithmetic
+    private static Order fractionOrder() {
+        return Order.builder()
+                .orderId("ORD-003")
+                .customer(Customer.builder().customerId("CUST-003").name("Fraction Customer").build())
+                .items(List.of(OrderItem.builder().productId("P003").productName("Bulk Screws")
+                        .quantity(2).unitPrice(new BigDecimal("0.335")).taxPercent(new BigDecimal("11")).build()))
+                .shippingCost(new BigDecimal("10000"))
+                .status(OrderStatus.PENDING)
+                .createdAt(LocalDateTime.of(2024, 3, 1, 9, 59, 30))
+                .updatedAt(LocalDateTime.of(2024, 3, 1, 9, 59, 30))
+                .build();
+    }
+
+    private static Order order() {
+        LocalDateTime now = LocalDateTime.of(2024, 3, 1, 9, 59, 30);
+        return Order.builder()
+                .orderId("ORD-001")
+                .customer(Customer.builder().customerId("CUST-001").name("Test Customer").build())
+                .items(List.of(OrderItem.builder()
+                        .productId("P001")
+                        .productName("Product 1")
+                        .quantity(2)
+                        .unitPrice(new BigDecimal("100000"))
+                        .taxPercent(new BigDecimal("11"))
+                        .build()))
+                .payment(Payment.builder().method(PaymentMethod.CREDIT_CARD).amount(new BigDecimal("222000")).build())
+                .status(OrderStatus.VALIDATED)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+}
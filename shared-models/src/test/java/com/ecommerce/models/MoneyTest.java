@@ -0,0 +1,91 @@
+package com.ecommerce.models;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Money Tests")
+class MoneyTest {
+
+    @Test
+    @DisplayName("Should round percentages HALF_UP like BigDecimal")
+    void testPercentMatchesBigDecimal() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong(-10_000_000_000L, 10_000_000_000L), 2);
+            BigDecimal percent = BigDecimal.valueOf(random.nextInt(0, 10_000), random.nextInt(0, 4));
+
+            BigDecimal expected = amount.multiply(percent)
+                    .divide(BigDecimal.valueOf(100))
+                    .setScale(Money.SCALE, RoundingMode.HALF_UP);
+
+            assertThat(Money.of(amount).percent(percent).toBigDecimal()).isEqualByComparingTo(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("Should round ties away from zero")
+    void testHalfUpTies() {
+        assertThat(Money.ofMinor(5).percent(BigDecimal.TEN).minor()).isEqualTo(1);
+        assertThat(Money.ofMinor(-5).percent(BigDecimal.TEN).minor()).isEqualTo(-1);
+        assertThat(Money.ofMinor(4).percent(BigDecimal.TEN).minor()).isZero();
+
+        // 12.34 * 0.15 = 1.851, rounded once to whole rupiah rather than first to the sen
+        BigDecimal rate = new BigDecimal("0.15");
+        assertThat(Money.of(new BigDecimal("12.34")).times(rate, 0, RoundingMode.HALF_UP).minor()).isEqualTo(200);
+        assertThat(Money.of(new BigDecimal("3.30")).times(rate, 0, RoundingMode.HALF_UP).minor()).isZero();
+        assertThat(Money.of(new BigDecimal("10.5")).times(BigDecimal.ONE, 0, RoundingMode.HALF_UP).minor())
+                .isEqualTo(1100);
+    }
+
+    @Test
+    @DisplayName("Should give whole and fractional amounts the same scale")
+    void testToBigDecimal() {
+        assertThat(Money.of(new BigDecimal("199800")).toBigDecimal()).isEqualTo(new BigDecimal("199800.00"));
+        assertThat(Money.of(new BigDecimal("10.50")).toBigDecimal()).isEqualTo(new BigDecimal("10.50"));
+        assertThat(Money.rounded(new BigDecimal("1543.125")).toBigDecimal()).isEqualTo(new BigDecimal("1543.13"));
+    }
+
+    @Test
+    @DisplayName("Should keep the scale an exact BigDecimal expression would give the amount")
+    void testScaleFor() {
+        Money whole = Money.of(new BigDecimal("2500"));
+        Money half = Money.of(new BigDecimal("2500.5"));
+
+        assertThat(whole.scaleFor(0)).isZero();
+        assertThat(whole.toBigDecimal(whole.scaleFor(0))).isEqualTo(new BigDecimal("2500"));
+        assertThat(half.scaleFor(0)).isEqualTo(1);
+        assertThat(half.toBigDecimal(half.scaleFor(2))).isEqualTo(new BigDecimal("2500.50"));
+        assertThat(Money.ZERO.toBigDecimal(Money.ZERO.scaleFor(1))).isEqualTo(new BigDecimal("0.0"));
+        assertThat(Money.of(new BigDecimal("3000")).scaleFor(-3)).isEqualTo(-3);
+    }
+
+    @Test
+    @DisplayName("Should refuse to drop a fraction of a sen unless asked to round")
+    void testUnnecessaryRounding() {
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1543.125"))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.ofMinor(1234500).percent(new BigDecimal("12.5"), RoundingMode.UNNECESSARY))
+                .isInstanceOf(ArithmeticException.class);
+        assertThat(Money.ofMinor(1000000).percent(new BigDecimal("12.5"), RoundingMode.UNNECESSARY).minor())
+                .isEqualTo(125000);
+    }
+
+    @Test
+    @DisplayName("Should refuse mixed currencies and overflow")
+    void testGuards() {
+        Money rupiah = Money.ofMinor(100);
+        Money dollars = new Money(100, "USD");
+
+        assertThatThrownBy(() -> rupiah.plus(dollars)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.ofMinor(Long.MAX_VALUE).plus(rupiah)).isInstanceOf(ArithmeticException.class);
+        assertThat(Money.ofMinor(Long.MAX_VALUE / 2).percent(new BigDecimal("150")).minor())
+                .isEqualTo(new BigDecimal(Long.MAX_VALUE / 2).multiply(new BigDecimal("1.5"))
+                        .setScale(0, RoundingMode.HALF_UP).longValueExact());
+    }
+}
@@ -1,5 +1,8 @@
 package com.ecommerce.models;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -164,4 +167,58 @@ class OrderTest {
         // Subtotal: 421800 + Shipping: 0 - Voucher: 50000 = 371800
         assertThat(grandTotal).isEqualByComparingTo(new BigDecimal("371800"));
     }
+
+    @Test
+    @DisplayName("Should recalculate totals after an item changes")
+    void testTotalsFollowItemChanges() {
+        assertThat(order.getGrandTotal()).isEqualByComparingTo(new BigDecimal("396800"));
+
+        // Item 2 now 2 * 200000 + 11% tax = 444000
+        items.get(1).setQuantity(2);
+        assertThat(order.getSubtotal()).isEqualByComparingTo(new BigDecimal("643800"));
+        assertThat(order.getGrandTotal()).isEqualByComparingTo(new BigDecimal("618800"));
+
+        items.set(1, items.get(0));
+        assertThat(order.getSubtotal()).isEqualByComparingTo(new BigDecimal("399600"));
+
+        order.setItems(List.of(items.get(0)));
+        assertThat(order.getSubtotal()).isEqualByComparingTo(new BigDecimal("199800"));
+    }
+
+    @Test
+    @DisplayName("Should serialize computed totals but not the cache behind them")
+    void testJsonTotals() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        order.getGrandTotal();
+
+        JsonNode json = mapper.valueToTree(order);
+
+        assertThat(json.get("subtotal").decimalValue()).isEqualByComparingTo(new BigDecimal("421800"));
+        assertThat(json.get("grandTotal").decimalValue()).isEqualByComparingTo(new BigDecimal("396800"));
+        assertThat(json.get("totalItems").asInt()).isEqualTo(3);
+        assertThat(json.has("totals")).isFalse();
+        assertThat(json.get("items").get(0).get("totalPrice").decimalValue())
+                .isEqualByComparingTo(new BigDecimal("199800"));
+        assertThat(json.get("items").get(0).has("totals")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should keep exact totals when an amount has a fraction of a sen")
+    void testFractionalSenTotals() {
+        OrderItem item = OrderItem.builder()
+                .productId("P003")
+                .productName("Product 3")
+                .quantity(1)
+                .unitPrice(new BigDecimal("12345"))
+                .discountPercent(new BigDecimal("12.5"))
+                .taxPercent(new BigDecimal("11"))
+                .build();
+        order.setItems(List.of(item));
+
+        // 12345 - 1543.125 discount = 10801.875, + 1188.20625 tax = 11990.08125
+        assertThat(item.getTotalPrice()).isEqualTo(new BigDecimal("11990.08125"));
+        assertThat(item.totalPriceMoney()).isNull();
+        assertThat(order.getGrandTotal()).isEqualTo(new BigDecimal("-13009.91875"));
+        assertThat(order.grandTotalMoney()).isEqualTo(Money.ofMinor(-1300992));
+    }
 }